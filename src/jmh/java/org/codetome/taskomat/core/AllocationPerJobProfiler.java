@@ -0,0 +1,77 @@
+package org.codetome.taskomat.core;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * Reports the bytes allocated by all threads of the benchmark JVM divided by
+ * the number of {@link Job}s run in the iteration. The number of {@link Job}s
+ * of an operation is taken from the <code>nodes</code> parameter. Threads
+ * which end during an iteration are not counted, so the benchmarks have to
+ * keep their pools across iterations. Enable it with
+ * <code>-prof org.codetome.taskomat.core.AllocationPerJobProfiler</code>.
+ */
+public class AllocationPerJobProfiler implements InternalProfiler {
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Map<Long, Long> allocatedBytesBefore;
+
+    @Override
+    public String getDescription() {
+        return "Bytes allocated by all threads per job.";
+    }
+
+    @Override
+    public void beforeIteration(final BenchmarkParams benchmarkParams, final IterationParams iterationParams) {
+        allocatedBytesBefore = snapshotAllocatedBytes();
+    }
+
+    @Override
+    public Collection<? extends Result<?>> afterIteration(final BenchmarkParams benchmarkParams,
+                                                          final IterationParams iterationParams,
+                                                          final IterationResult result) {
+        long allocatedBytes = 0;
+        for (final Map.Entry<Long, Long> thread : snapshotAllocatedBytes().entrySet()) {
+            allocatedBytes += thread.getValue() - allocatedBytesBefore.getOrDefault(thread.getKey(), 0L);
+        }
+        final String nodes = benchmarkParams.getParam("nodes");
+        final long operationCount = result.getMetadata().getAllOps();
+        if (nodes == null || operationCount == 0) {
+            return emptyList();
+        }
+        final double jobCount = (double) operationCount * Integer.parseInt(nodes);
+        return singletonList(new ScalarResult("alloc.per.job", allocatedBytes / jobCount, "B/job", AggregationPolicy.AVG));
+    }
+
+    /**
+     * Returns the bytes allocated so far by each live thread, keyed by the id
+     * of the thread.
+     */
+    private Map<Long, Long> snapshotAllocatedBytes() {
+        final long[] threadIds = threadMXBean.getAllThreadIds();
+        final long[] allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadIds);
+        final Map<Long, Long> snapshot = new HashMap<>();
+        for (int i = 0; i < threadIds.length; i++) {
+            // -1 means the thread has ended meanwhile
+            if (allocatedBytes[i] >= 0) {
+                snapshot.put(threadIds[i], allocatedBytes[i]);
+            }
+        }
+        return snapshot;
+    }
+}
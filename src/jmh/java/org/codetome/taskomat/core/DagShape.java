@@ -0,0 +1,119 @@
+package org.codetome.taskomat.core;
+
+import java.util.Random;
+
+/**
+ * Represents the shapes of the generated {@link JobSuite}s the benchmarks run
+ * on. Each shape tells which of the earlier nodes a node depends on.
+ */
+public enum DagShape {
+    /**
+     * Every node depends on the first one.
+     */
+    WIDE_FAN_OUT {
+        @Override
+        int[] createDependencies(final int node, final Random random) {
+            return node == 0 ? NO_DEPENDENCIES : new int[]{0};
+        }
+    },
+    /**
+     * Every node depends on the previous one.
+     */
+    DEEP_CHAIN {
+        @Override
+        int[] createDependencies(final int node, final Random random) {
+            return node == 0 ? NO_DEPENDENCIES : new int[]{node - 1};
+        }
+    },
+    /**
+     * A chain of diamonds where each diamond is a source, two parallel nodes
+     * and a sink. The source of a diamond depends on the sink of the previous
+     * one.
+     */
+    DIAMONDS {
+        @Override
+        int[] createDependencies(final int node, final Random random) {
+            final int source = node - node % 4;
+            switch (node % 4) {
+                case 0:
+                    return node == 0 ? NO_DEPENDENCIES : new int[]{node - 1};
+                case 3:
+                    return new int[]{source + 1, source + 2};
+                default:
+                    return new int[]{source};
+            }
+        }
+    },
+    /**
+     * Every node depends on one to three randomly chosen earlier nodes.
+     */
+    RANDOM {
+        @Override
+        int[] createDependencies(final int node, final Random random) {
+            if (node == 0) {
+                return NO_DEPENDENCIES;
+            }
+            final int[] dependencies = new int[1 + random.nextInt(Math.min(node, 3))];
+            for (int i = 0; i < dependencies.length; i++) {
+                dependencies[i] = random.nextInt(node);
+            }
+            return dependencies;
+        }
+    };
+
+    private static final int[] NO_DEPENDENCIES = new int[0];
+
+    abstract int[] createDependencies(int node, Random random);
+
+    /**
+     * Creates the dependencies of each of the <code>nodeCount</code> nodes.
+     * The same seed always gives the same graph.
+     */
+    int[][] createGraph(final int nodeCount, final long seed) {
+        final Random random = new Random(seed);
+        final int[][] dependencies = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            dependencies[node] = createDependencies(node, random);
+        }
+        return dependencies;
+    }
+
+    /**
+     * Creates a {@link JobSuiteBuilder} which contains the given jobs
+     * connected by the given dependencies.
+     */
+    static JobSuiteBuilder createBuilder(final Job[] jobs, final int[][] dependencies) {
+        final JobSuiteBuilder builder = new JobSuiteBuilder();
+        for (int node = 0; node < jobs.length; node++) {
+            final Job[] jobDependencies = new Job[dependencies[node].length];
+            for (int i = 0; i < jobDependencies.length; i++) {
+                jobDependencies[i] = jobs[dependencies[node][i]];
+            }
+            builder.addJob(jobs[node], jobDependencies);
+        }
+        return builder;
+    }
+
+    /**
+     * Creates <code>jobCount</code> jobs which do nothing.
+     */
+    static Job[] createNoOpJobs(final int jobCount) {
+        final Job[] jobs = new Job[jobCount];
+        for (int i = 0; i < jobCount; i++) {
+            jobs[i] = new NoOpJob("job-" + i);
+        }
+        return jobs;
+    }
+
+    private static final class NoOpJob extends Job {
+
+        private NoOpJob(final String name) {
+            super(name);
+        }
+
+        @Override
+        public JobResult<?> call() {
+            return new JobResult<>();
+        }
+    }
+}
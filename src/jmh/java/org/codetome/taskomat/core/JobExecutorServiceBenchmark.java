@@ -0,0 +1,70 @@
+package org.codetome.taskomat.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Measures the dispatch overhead of {@link JobExecutorService#runJobSuite}
+ * by running a generated graph of {@link Job}s which do nothing. The pool is
+ * kept across runs so thread creation is not part of the measurement. Run it
+ * with the {@link AllocationPerJobProfiler} to see the bytes allocated for
+ * each {@link Job}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JobExecutorServiceBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int nodes;
+
+    @Param({"WIDE_FAN_OUT", "DEEP_CHAIN", "DIAMONDS", "RANDOM"})
+    private DagShape shape;
+
+    @Param({"WAVE", "DEPENDENCY_DRIVEN"})
+    private SchedulingMode schedulingMode;
+
+    @Param({"false", "true"})
+    private boolean workStealing;
+
+    private JobSuite jobSuite;
+    private JobExecutorService jobExecutorService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jobSuite = DagShape.createBuilder(DagShape.createNoOpJobs(nodes), shape.createGraph(nodes, 42)).build();
+        final JobExecutorServiceBuilder builder = new JobExecutorServiceBuilder().withSchedulingMode(schedulingMode);
+        if (workStealing) {
+            builder.withWorkStealingPool(Runtime.getRuntime().availableProcessors());
+        } else {
+            builder.withFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+        jobExecutorService = builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jobExecutorService.shutdown();
+    }
+
+    @Benchmark
+    public JobSuiteResult runJobSuite() {
+        return jobExecutorService.runJobSuite(jobSuite);
+    }
+}
@@ -0,0 +1,49 @@
+package org.codetome.taskomat.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Measures how long it takes to add the {@link Job}s of a generated graph to
+ * a {@link JobSuiteBuilder} and build the {@link JobSuite}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JobSuiteBuilderBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int nodes;
+
+    @Param({"WIDE_FAN_OUT", "DEEP_CHAIN", "DIAMONDS", "RANDOM"})
+    private DagShape shape;
+
+    private Job[] jobs;
+    private int[][] dependencies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jobs = DagShape.createNoOpJobs(nodes);
+        dependencies = shape.createGraph(nodes, 42);
+    }
+
+    @Benchmark
+    public JobSuite build() {
+        return DagShape.createBuilder(jobs, dependencies).build();
+    }
+}
@@ -0,0 +1,64 @@
+package org.codetome.taskomat.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Measures how long it takes to simulate a run of a generated graph whose
+ * {@link Job}s have random durations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JobSuiteSimulatorBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int nodes;
+
+    @Param({"WIDE_FAN_OUT", "DEEP_CHAIN", "DIAMONDS", "RANDOM"})
+    private DagShape shape;
+
+    @Param({"WAVE", "DEPENDENCY_DRIVEN"})
+    private SchedulingMode schedulingMode;
+
+    @Param({"4", "64"})
+    private int threadCount;
+
+    private JobSuiteSimulator simulator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Job[] jobs = DagShape.createNoOpJobs(nodes);
+        final Random random = new Random(42);
+        final Map<Job, Duration> durations = new HashMap<>();
+        for (final Job job : jobs) {
+            durations.put(job, Duration.ofNanos(1_000 + random.nextInt(1_000_000)));
+        }
+        simulator = new JobSuiteSimulator(DagShape.createBuilder(jobs, shape.createGraph(nodes, 42)).build(), durations);
+    }
+
+    @Benchmark
+    public SimulationResult simulate() {
+        return simulator.simulate(schedulingMode, threadCount);
+    }
+}
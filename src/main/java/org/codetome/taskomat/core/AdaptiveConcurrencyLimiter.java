@@ -0,0 +1,153 @@
+package org.codetome.taskomat.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits how many {@link Job}s of a {@link JobExecutorService} are in
+ * flight at the same time and adjusts the limit from the observed latency.
+ * A {@link Job} which doesn't get a slot is parked together with the action
+ * which starts it, so no thread waits for a slot.
+ * <p>
+ * {@link Job}s differ too much in their durations to compare them directly,
+ * so each sample is the run time of a {@link Job} divided by the baseline of
+ * its name: the shortest run time seen so far. Only runs which had the
+ * machine nearly to themselves, with at most {@link #UNCONTENDED_IN_FLIGHT}
+ * or the minimum limit of {@link Job}s in flight, can raise the baseline,
+ * so a {@link Job} which got slower for good is eventually accepted while a
+ * slowdown caused by the concurrency itself is not. The baseline is kept
+ * here rather than taken from the {@link JobDurationHistory}, which follows
+ * every run and would soon take a sustained slowdown for the normal run
+ * time. The limit follows a gradient: it is multiplied by the tolerated
+ * ratio divided by the short term average of the samples, so it shrinks as
+ * long as the {@link Job}s run clearly slower than their baseline because
+ * they compete for the machine, and grows by its square root otherwise. The
+ * limit is only raised while at least half of it is in use.
+ */
+final class AdaptiveConcurrencyLimiter {
+
+    private static final double SHORT_TERM_WEIGHT = 0.1;
+    /**
+     * How far the baseline of a name follows a slower uncontended run.
+     */
+    private static final double BASELINE_DRIFT = 0.1;
+    /**
+     * The number of {@link Job}s in flight up to which the gradient can't
+     * shrink the limit anymore, so runs at that level tell how long a
+     * {@link Job} takes without contention.
+     */
+    private static final int UNCONTENDED_IN_FLIGHT = 4;
+    /**
+     * How much slower than their baseline the {@link Job}s may run before
+     * the limit shrinks.
+     */
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final ArrayDeque<Runnable> waiters = new ArrayDeque<>();
+    /**
+     * Contains the baseline run time in nanoseconds by the name of the
+     * {@link Job}.
+     */
+    private final Map<String, Double> baselines = new HashMap<>();
+    private double estimatedLimit;
+    private volatile int limit;
+    private int inFlight;
+    /**
+     * The exponentially weighted average of the samples, zero until the
+     * first sample.
+     */
+    private double shortTermRatio;
+
+    AdaptiveConcurrencyLimiter(final int minLimit, final int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = minLimit;
+        this.limit = minLimit;
+    }
+
+    /**
+     * Takes a slot if one is free.
+     */
+    synchronized boolean tryAcquire() {
+        if (inFlight < limit) {
+            inFlight++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Runs <code>onAcquired</code> on the current thread if a slot is free,
+     * otherwise on the thread which frees one later.
+     */
+    void acquire(final Runnable onAcquired) {
+        synchronized (this) {
+            if (inFlight >= limit) {
+                waiters.add(onAcquired);
+                return;
+            }
+            inFlight++;
+        }
+        onAcquired.run();
+    }
+
+    /**
+     * Gives back a slot and starts the parked {@link Job}s which fit into
+     * the limit now.
+     *
+     * @param jobName       the name of the {@link Job} or <code>null</code>
+     *                      if it was not run.
+     * @param durationNanos the run time of the {@link Job}.
+     */
+    void release(final String jobName, final long durationNanos) {
+        final List<Runnable> acquired = new ArrayList<>();
+        synchronized (this) {
+            if (jobName != null && durationNanos > 0) {
+                update(jobName, durationNanos);
+            }
+            inFlight--;
+            while (inFlight < limit && !waiters.isEmpty()) {
+                inFlight++;
+                acquired.add(waiters.poll());
+            }
+        }
+        for (final Runnable onAcquired : acquired) {
+            onAcquired.run();
+        }
+    }
+
+    int getLimit() {
+        return limit;
+    }
+
+    private void update(final String jobName, final long durationNanos) {
+        final Double baseline = baselines.get(jobName);
+        if (baseline == null) {
+            // the first run of a name tells nothing about the contention
+            baselines.put(jobName, (double) durationNanos);
+            return;
+        }
+        if (durationNanos < baseline) {
+            baselines.put(jobName, (double) durationNanos);
+        } else if (inFlight <= Math.max(minLimit, UNCONTENDED_IN_FLIGHT)) {
+            baselines.put(jobName, baseline + (durationNanos - baseline) * BASELINE_DRIFT);
+        }
+        final double latencyRatio = durationNanos / baseline;
+        shortTermRatio = shortTermRatio == 0 ? latencyRatio : shortTermRatio + (latencyRatio - shortTermRatio) * SHORT_TERM_WEIGHT;
+        if (inFlight * 2 < estimatedLimit) {
+            // the limit is not what holds the jobs back, it can't be judged
+            return;
+        }
+        final double gradient = Math.max(MIN_GRADIENT, Math.min(1, TOLERANCE / shortTermRatio));
+        final double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+}
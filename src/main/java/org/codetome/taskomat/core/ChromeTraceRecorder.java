@@ -0,0 +1,237 @@
+package org.codetome.taskomat.core;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A {@link JobExecutionListener} which writes the timeline of sampled runs to
+ * files in the Chrome trace event format which can be opened with
+ * <code>chrome://tracing</code> or Perfetto. Each {@link Job} shows up as a
+ * slice on the thread which ran it, named by {@link Job#getName()}, and each
+ * dependency as an arrow from the end of the dependency to the start of the
+ * dependent.
+ * <p>
+ * The timestamps are taken from the {@link JobResult}s which are recorded for
+ * every run anyway, so runs which are not sampled cost nothing. The trace of
+ * a sampled run is streamed to its file by a background thread without
+ * building an intermediate model, so the run completes without waiting for
+ * the disk.
+ */
+public class ChromeTraceRecorder implements JobExecutionListener, AutoCloseable {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final Path directory;
+    private final int sampleEvery;
+    private final AtomicLong finishedSuiteCount = new AtomicLong();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "task-o-mat-trace-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Creates a {@link ChromeTraceRecorder} which writes the trace of every
+     * <code>sampleEvery</code>th run into the given directory.
+     */
+    public ChromeTraceRecorder(final Path directory, final int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("Sample rate must be positive, got " + sampleEvery + ".");
+        }
+        this.directory = directory;
+        this.sampleEvery = sampleEvery;
+    }
+
+    @Override
+    public void onSuiteFinished(final JobSuite jobSuite, final JobSuiteResult jobSuiteResult) {
+        final long suiteNumber = finishedSuiteCount.getAndIncrement();
+        if (suiteNumber % sampleEvery != 0) {
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                Files.createDirectories(directory);
+                try (Writer traceWriter = Files.newBufferedWriter(directory.resolve("trace-" + suiteNumber + ".json"), UTF_8)) {
+                    writeTrace(jobSuite, jobSuiteResult, traceWriter);
+                }
+            } catch (final IOException e) {
+                // tracing is best effort, it must not fail the run
+            }
+        });
+    }
+
+    /**
+     * Waits until the traces of the runs finished so far are written.
+     */
+    public void flush() {
+        try {
+            writer.submit(() -> {
+            }).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Writing the traces failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Writes the pending traces and stops the background thread.
+     */
+    @Override
+    public void close() {
+        flush();
+        writer.shutdown();
+    }
+
+    /**
+     * Writes the timeline of the given run to <code>writer</code> in the
+     * Chrome trace event format.
+     */
+    public static void writeTrace(final JobSuite jobSuite, final JobSuiteResult jobSuiteResult, final Writer writer) throws IOException {
+        final Writer out = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+        final long origin = jobSuiteResult.getStartTimeNanos();
+        final Map<String, Integer> threadIds = new HashMap<>();
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        for (int jobId = 0; jobId < jobSuite.getTotalJobCount(); jobId++) {
+            final Job job = jobSuite.getJob(jobId);
+            final JobResult<?> jobResult = jobSuiteResult.getJobResults().get(job);
+            if (jobResult == null || jobResult.getStartTimeNanos() == 0) {
+                continue;
+            }
+            final String threadName = jobResult.getWorkerThreadName().orElse("unknown");
+            Integer threadId = threadIds.get(threadName);
+            if (threadId == null) {
+                threadId = threadIds.size() + 1;
+                threadIds.put(threadName, threadId);
+                first = writeSeparator(out, first);
+                out.write("{\"ph\":\"M\",\"name\":\"thread_name\",\"pid\":1,\"tid\":");
+                out.write(Integer.toString(threadId));
+                out.write(",\"args\":{\"name\":");
+                writeString(out, threadName);
+                out.write("}}");
+            }
+            first = writeSeparator(out, first);
+            out.write("{\"ph\":\"X\",\"cat\":\"job\",\"name\":");
+            writeString(out, job.getName());
+            out.write(",\"pid\":1,\"tid\":");
+            out.write(Integer.toString(threadId));
+            out.write(",\"ts\":");
+            writeMicros(out, jobResult.getStartTimeNanos() - origin);
+            out.write(",\"dur\":");
+            writeMicros(out, jobResult.getEndTimeNanos() - jobResult.getStartTimeNanos());
+            out.write(",\"args\":{\"result\":\"");
+            out.write(jobResult.getJobResultType().name());
+            out.write("\",\"attempts\":");
+            out.write(Integer.toString(jobResult.getAttemptCount()));
+            if (jobResult.isSpeculated()) {
+                out.write(",\"speculated\":true,\"fromSpeculativeCopy\":");
+                out.write(Boolean.toString(jobResult.isFromSpeculativeCopy()));
+            }
+            out.write(",\"queueWaitUs\":");
+            writeMicros(out, jobResult.getStartTimeNanos() - jobResult.getSubmitTimeNanos());
+            out.write("}}");
+            first = writeDependencyArrows(jobSuite, jobSuiteResult, jobId, threadId, threadIds, origin, out, first);
+        }
+        out.write("]}");
+        out.flush();
+    }
+
+    /**
+     * Writes a flow event pair for each dependency of the given {@link Job}.
+     * The start of an arrow is bound to the last microsecond of the
+     * dependency slice, the end to the start of the dependent slice.
+     */
+    private static boolean writeDependencyArrows(final JobSuite jobSuite,
+                                                 final JobSuiteResult jobSuiteResult,
+                                                 final int jobId,
+                                                 final int threadId,
+                                                 final Map<String, Integer> threadIds,
+                                                 final long origin,
+                                                 final Writer out,
+                                                 boolean first) throws IOException {
+        final JobResult<?> jobResult = jobSuiteResult.getJobResults().get(jobSuite.getJob(jobId));
+        for (int i = 0; i < jobSuite.getDependencyCount(jobId); i++) {
+            final int dependencyId = jobSuite.getDependencyId(jobId, i);
+            final JobResult<?> dependencyResult = jobSuiteResult.getJobResults().get(jobSuite.getJob(dependencyId));
+            // dependencies come first in id order so their threads are known already
+            final Integer dependencyThreadId = dependencyResult == null || dependencyResult.getStartTimeNanos() == 0
+                    ? null : threadIds.get(dependencyResult.getWorkerThreadName().orElse("unknown"));
+            if (dependencyThreadId == null) {
+                continue;
+            }
+            final long flowId = (long) dependencyId * jobSuite.getTotalJobCount() + jobId;
+            final long dependencyEnd = dependencyResult.getEndTimeNanos() - origin;
+            final long dependencyDuration = dependencyResult.getEndTimeNanos() - dependencyResult.getStartTimeNanos();
+            first = writeSeparator(out, first);
+            out.write("{\"ph\":\"s\",\"cat\":\"dependency\",\"name\":\"dependency\",\"pid\":1,\"tid\":");
+            out.write(Integer.toString(dependencyThreadId));
+            out.write(",\"id\":");
+            out.write(Long.toString(flowId));
+            out.write(",\"ts\":");
+            writeMicros(out, dependencyEnd - Math.min(1000, dependencyDuration / 2));
+            out.write("},{\"ph\":\"f\",\"bp\":\"e\",\"cat\":\"dependency\",\"name\":\"dependency\",\"pid\":1,\"tid\":");
+            out.write(Integer.toString(threadId));
+            out.write(",\"id\":");
+            out.write(Long.toString(flowId));
+            out.write(",\"ts\":");
+            writeMicros(out, jobResult.getStartTimeNanos() - origin);
+            out.write("}");
+        }
+        return first;
+    }
+
+    private static boolean writeSeparator(final Writer out, final boolean first) throws IOException {
+        if (!first) {
+            out.write(',');
+        }
+        return false;
+    }
+
+    /**
+     * Writes the given nanoseconds as microseconds with three decimals.
+     */
+    private static void writeMicros(final Writer out, final long nanos) throws IOException {
+        final long value = Math.max(0, nanos);
+        out.write(Long.toString(value / 1000));
+        out.write('.');
+        final long fraction = value % 1000;
+        if (fraction < 100) {
+            out.write('0');
+        }
+        if (fraction < 10) {
+            out.write('0');
+        }
+        out.write(Long.toString(fraction));
+    }
+
+    private static void writeString(final Writer out, final String value) throws IOException {
+        out.write('"');
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.write('\\');
+                    out.write(c);
+                } else if (c < 0x20) {
+                    out.write(String.format("\\u%04x", (int) c));
+                } else {
+                    out.write(c);
+                }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -1,12 +1,33 @@
 package org.codetome.taskomat.core;
 
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
 /**
- * Thrown if the topological sort detects a circular dependency in the DAG.
+ * Thrown if a dependency would close a cycle in the DAG.
  */
 public class CircularDependencyException extends RuntimeException {
     private static final long serialVersionUID = -4133518769724603211L;
 
+    private final transient List<Job> cycle;
+
     public CircularDependencyException(String message) {
+        this(message, emptyList());
+    }
+
+    public CircularDependencyException(final String message, final List<Job> cycle) {
         super(message);
+        this.cycle = unmodifiableList(cycle);
+    }
+
+    /**
+     * Returns the {@link Job}s of the cycle, each depending on the next one,
+     * starting and ending with the same {@link Job}. Empty if the cycle is not
+     * known.
+     */
+    public List<Job> getCycle() {
+        return cycle;
     }
 }
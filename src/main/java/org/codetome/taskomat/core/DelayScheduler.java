@@ -0,0 +1,38 @@
+package org.codetome.taskomat.core;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Runs short actions (timeouts, deadlines) after a delay. The single daemon
+ * thread is only started when the first action is scheduled so
+ * {@link JobExecutorService}s which never need it don't pay for it.
+ */
+final class DelayScheduler {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private ScheduledThreadPoolExecutor executor;
+
+    synchronized ScheduledFuture<?> schedule(final Runnable action, final long delayNanos) {
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                final Thread thread = new Thread(runnable, "task-o-mat-scheduler-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+        }
+        return executor.schedule(action, delayNanos, NANOSECONDS);
+    }
+
+    synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.codetome.taskomat.core;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs a {@link JobSuite} using {@link SchedulingMode#DEPENDENCY_DRIVEN}. Each
+ * {@link Job} has a counter of unfinished dependencies and the thread which
+ * brings it to zero submits the {@link Job}. After the first failure no new
+ * {@link Job}s are submitted but the already running ones are waited for,
+ * unless {@link FailureMode#SKIP_DEPENDENTS} is used, in which case only the
+ * dependents of the failed {@link Job} are skipped. The successor of a
+ * {@link Job} in a linear chain is not submitted but run right away by the
+ * thread which finished the {@link Job}. The consumer of a stream is
+ * submitted as soon as its producer has published the first element.
+ */
+final class DependencyDrivenJobSuiteExecution extends JobSuiteExecution {
+
+    private final AtomicIntegerArray remainingDependencyCounts;
+    /**
+     * The number of submitted but not yet finished {@link Job}s plus one
+     * while the initial {@link Job}s are being submitted.
+     */
+    private final AtomicInteger unfinishedJobCount = new AtomicInteger(1);
+
+    DependencyDrivenJobSuiteExecution(final JobSuite jobSuite,
+                                      final ExecutionConfiguration configuration,
+                                      final Executor executor,
+                                      final BiConsumer<Job, JobResult<?>> jobCompletionListener) {
+        super(jobSuite, configuration, executor, jobCompletionListener);
+        this.remainingDependencyCounts = new AtomicIntegerArray(jobSuite.createDependencyCounts());
+    }
+
+    @Override
+    void submitInitialJobs() {
+        final JobSuite jobSuite = getJobSuite();
+        // not just the first wave, a producer may be moved into the later wave of its consumer
+        for (int jobId = 0; jobId < jobSuite.getTotalJobCount(); jobId++) {
+            if (jobSuite.getDependencyCount(jobId) == 0) {
+                unfinishedJobCount.incrementAndGet();
+                submitJob(jobId);
+            }
+        }
+        finishOne();
+    }
+
+    @Override
+    void onStreamAvailable(final int producerId) {
+        final int consumerId = getJobSuite().getStreamConsumerId(producerId);
+        if (remainingDependencyCounts.decrementAndGet(consumerId) == 0 && canSubmitMoreJobs()) {
+            // the caller still holds an unfinished job so the run can't complete meanwhile
+            if (hasFailedDependency(consumerId)) {
+                skipJob(consumerId);
+                releaseDependents(consumerId, false);
+            } else {
+                unfinishedJobCount.incrementAndGet();
+                submitJob(consumerId);
+            }
+        }
+    }
+
+    @Override
+    int onJobFinished(final int jobId, final boolean canRunInline) {
+        final int inlineJobId = canSubmitMoreJobs() ? releaseDependents(jobId, canRunInline) : -1;
+        finishOne();
+        return inlineJobId;
+    }
+
+    /**
+     * Submits the dependents of the given {@link Job} which have no
+     * unfinished dependencies left. A dependent with a failed dependency is
+     * skipped instead, which in turn releases its own dependents. The skipped
+     * {@link Job}s are kept on a stack rather than handled recursively so
+     * long chains can't overflow the stack of the calling thread.
+     *
+     * @return the id of the chain successor of the given {@link Job} if the
+     * caller has to run it or -1.
+     */
+    private int releaseDependents(final int jobId, final boolean canRunInline) {
+        final JobSuite jobSuite = getJobSuite();
+        final int chainSuccessorId = canRunInline ? jobSuite.getChainSuccessor(jobId) : -1;
+        int inlineJobId = -1;
+        int[] finishedIds = {jobId};
+        int finishedCount = 1;
+        while (finishedCount > 0) {
+            final int finishedId = finishedIds[--finishedCount];
+            for (int i = 0; i < jobSuite.getDependentCount(finishedId); i++) {
+                final int dependentId = jobSuite.getDependentId(finishedId, i);
+                // a streaming dependency is released by its stream
+                if (jobSuite.getStreamConsumerId(finishedId) != dependentId
+                        && remainingDependencyCounts.decrementAndGet(dependentId) == 0) {
+                    if (hasFailedDependency(dependentId)) {
+                        skipJob(dependentId);
+                        if (finishedCount == finishedIds.length) {
+                            finishedIds = Arrays.copyOf(finishedIds, finishedCount * 2);
+                        }
+                        finishedIds[finishedCount++] = dependentId;
+                    } else {
+                        unfinishedJobCount.incrementAndGet();
+                        if (dependentId == chainSuccessorId) {
+                            inlineJobId = submitOrRunInline(dependentId, true);
+                        } else {
+                            submitJob(dependentId);
+                        }
+                    }
+                }
+            }
+        }
+        return inlineJobId;
+    }
+
+    private void finishOne() {
+        if (unfinishedJobCount.decrementAndGet() == 0) {
+            complete();
+        }
+    }
+}
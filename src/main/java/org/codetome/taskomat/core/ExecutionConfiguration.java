@@ -0,0 +1,210 @@
+package org.codetome.taskomat.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import static java.util.concurrent.Executors.defaultThreadFactory;
+import static org.codetome.taskomat.core.FailureMode.FINISH_RUNNING_JOBS;
+import static org.codetome.taskomat.core.SchedulingMode.WAVE;
+
+/**
+ * Holds the settings of a {@link JobExecutorService}. It is filled by a
+ * {@link JobExecutorServiceBuilder} and must not be modified after the
+ * {@link JobExecutorService} is built.
+ */
+final class ExecutionConfiguration {
+
+    private SchedulingMode schedulingMode = WAVE;
+    /**
+     * The {@link ExecutorService} used for every run or <code>null</code> if a
+     * new one is created for each run.
+     */
+    private ExecutorService sharedExecutorService;
+    private boolean ownsSharedExecutorService;
+    /**
+     * The pool shared fairly by all runs or <code>null</code> if there is
+     * none.
+     */
+    private FairSharePool fairSharePool;
+    private ThreadFactory threadFactory = defaultThreadFactory();
+    private boolean criticalPathScheduling;
+    private JobDurationHistory jobDurationHistory = new JobDurationHistory();
+    private FailureMode failureMode = FINISH_RUNNING_JOBS;
+    /**
+     * The maximum duration of a run or <code>null</code> if there is none.
+     */
+    private Duration suiteDeadline;
+    /**
+     * The cache of the {@link Job} results or <code>null</code> if nothing
+     * is cached.
+     */
+    private JobResultCache jobResultCache;
+    /**
+     * The journal the completed {@link Job}s are recorded in or
+     * <code>null</code> if there is none.
+     */
+    private JobJournal jobJournal;
+    private final List<JobExecutionListener> executionListeners = new ArrayList<>();
+    /**
+     * Limits the resources used by the running {@link Job}s or
+     * <code>null</code> if there are no limits.
+     */
+    private ResourceLimiter resourceLimiter;
+    private boolean resultRelease;
+    /**
+     * Moves large results off the heap or <code>null</code> if they stay
+     * there.
+     */
+    private ResultSpill resultSpill;
+    /**
+     * Decides when stragglers are duplicated or <code>null</code> if they
+     * are not.
+     */
+    private SpeculationPolicy speculationPolicy;
+    /**
+     * Limits the number of {@link Job}s in flight or <code>null</code> if
+     * only the pool limits them.
+     */
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final DelayScheduler delayScheduler = new DelayScheduler();
+
+    SchedulingMode getSchedulingMode() {
+        return schedulingMode;
+    }
+
+    void setSchedulingMode(final SchedulingMode schedulingMode) {
+        this.schedulingMode = schedulingMode;
+    }
+
+    ExecutorService getSharedExecutorService() {
+        return sharedExecutorService;
+    }
+
+    boolean ownsSharedExecutorService() {
+        return ownsSharedExecutorService;
+    }
+
+    void setSharedExecutorService(final ExecutorService sharedExecutorService, final boolean ownsSharedExecutorService) {
+        this.sharedExecutorService = sharedExecutorService;
+        this.ownsSharedExecutorService = ownsSharedExecutorService;
+    }
+
+    FairSharePool getFairSharePool() {
+        return fairSharePool;
+    }
+
+    void setFairSharePool(final FairSharePool fairSharePool) {
+        this.fairSharePool = fairSharePool;
+    }
+
+    ThreadFactory getThreadFactory() {
+        return threadFactory;
+    }
+
+    void setThreadFactory(final ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    boolean isCriticalPathScheduling() {
+        return criticalPathScheduling;
+    }
+
+    void setCriticalPathScheduling(final boolean criticalPathScheduling) {
+        this.criticalPathScheduling = criticalPathScheduling;
+    }
+
+    JobDurationHistory getJobDurationHistory() {
+        return jobDurationHistory;
+    }
+
+    void setJobDurationHistory(final JobDurationHistory jobDurationHistory) {
+        this.jobDurationHistory = jobDurationHistory;
+    }
+
+    FailureMode getFailureMode() {
+        return failureMode;
+    }
+
+    void setFailureMode(final FailureMode failureMode) {
+        this.failureMode = failureMode;
+    }
+
+    Duration getSuiteDeadline() {
+        return suiteDeadline;
+    }
+
+    void setSuiteDeadline(final Duration suiteDeadline) {
+        this.suiteDeadline = suiteDeadline;
+    }
+
+    JobResultCache getJobResultCache() {
+        return jobResultCache;
+    }
+
+    void setJobResultCache(final JobResultCache jobResultCache) {
+        this.jobResultCache = jobResultCache;
+    }
+
+    JobJournal getJobJournal() {
+        return jobJournal;
+    }
+
+    void setJobJournal(final JobJournal jobJournal) {
+        this.jobJournal = jobJournal;
+    }
+
+    List<JobExecutionListener> getExecutionListeners() {
+        return executionListeners;
+    }
+
+    void addExecutionListener(final JobExecutionListener executionListener) {
+        executionListeners.add(executionListener);
+    }
+
+    ResourceLimiter getResourceLimiter() {
+        return resourceLimiter;
+    }
+
+    void setResourceLimiter(final ResourceLimiter resourceLimiter) {
+        this.resourceLimiter = resourceLimiter;
+    }
+
+    boolean isResultRelease() {
+        return resultRelease;
+    }
+
+    void setResultRelease(final boolean resultRelease) {
+        this.resultRelease = resultRelease;
+    }
+
+    ResultSpill getResultSpill() {
+        return resultSpill;
+    }
+
+    void setResultSpill(final ResultSpill resultSpill) {
+        this.resultSpill = resultSpill;
+    }
+
+    SpeculationPolicy getSpeculationPolicy() {
+        return speculationPolicy;
+    }
+
+    void setSpeculationPolicy(final SpeculationPolicy speculationPolicy) {
+        this.speculationPolicy = speculationPolicy;
+    }
+
+    AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    void setConcurrencyLimiter(final AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    DelayScheduler getDelayScheduler() {
+        return delayScheduler;
+    }
+}
@@ -0,0 +1,24 @@
+package org.codetome.taskomat.core;
+
+/**
+ * Represents the possible ways a {@link JobExecutorService} can react to a
+ * failed {@link Job}.
+ */
+public enum FailureMode {
+    /**
+     * No new {@link Job}s are started but the already running ones are
+     * allowed to complete
+     */
+    FINISH_RUNNING_JOBS,
+    /**
+     * No new {@link Job}s are started and the already running ones are
+     * cancelled (interrupted) right away
+     */
+    CANCEL_RUNNING_JOBS,
+    /**
+     * Only the {@link Job}s which depend (transitively) on the failed
+     * {@link Job} are skipped, each with a {@link JobResultType#JOB_IGNORED}
+     * result. Every other {@link Job} is run
+     */
+    SKIP_DEPENDENTS
+}
@@ -0,0 +1,199 @@
+package org.codetome.taskomat.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A bounded pool of worker threads shared by many runs. Each run submits its
+ * tasks through its own {@link Share}. A free worker takes the next task of
+ * the highest {@link SuitePriority} which has any, and within a priority the
+ * task of the {@link Share} which has used the least thread time relative to
+ * its weight (start-time fair queuing). So a huge run can't starve the small
+ * ones, and a run with weight 2 gets twice the thread time of a run with
+ * weight 1 while both have ready {@link Job}s.
+ * <p>
+ * The thread time used is measured per task. A worker may run a chain of
+ * {@link Job}s as one task, which is charged as a whole.
+ */
+final class FairSharePool {
+
+    private static final Comparator<Share> VIRTUAL_TIME_ORDER = Comparator
+            .<Share>comparingLong(share -> share.virtualTime)
+            .thenComparingLong(share -> share.id);
+
+    private final int threadCount;
+    private final ThreadFactory threadFactory;
+    /**
+     * Contains the {@link Share}s with queued tasks of each priority, ordered
+     * by their virtual time, indexed by the ordinal of the priority.
+     */
+    private final List<TreeSet<Share>> activeShares;
+    /**
+     * Contains the virtual time of the last {@link Share} which got a worker
+     * for each priority. A {@link Share} which becomes active starts from
+     * there so it can't save up thread time while it is idle.
+     */
+    private final long[] priorityVirtualTimes;
+    private long nextShareId;
+    private int workerCount;
+    private int idleWorkerCount;
+    /**
+     * The number of idle workers which are woken up but haven't taken a task
+     * yet.
+     */
+    private int wakeUpCount;
+    private boolean shutdown;
+
+    FairSharePool(final int threadCount, final ThreadFactory threadFactory) {
+        this.threadCount = threadCount;
+        this.threadFactory = threadFactory;
+        this.activeShares = new ArrayList<>(SuitePriority.values().length);
+        for (int priority = 0; priority < SuitePriority.values().length; priority++) {
+            activeShares.add(new TreeSet<>(VIRTUAL_TIME_ORDER));
+        }
+        this.priorityVirtualTimes = new long[activeShares.size()];
+    }
+
+    /**
+     * Creates the {@link Executor} a single run submits its tasks to.
+     */
+    synchronized Executor newShare(final SuitePriority priority, final int weight) {
+        return new Share(nextShareId++, priority.ordinal(), weight);
+    }
+
+    /**
+     * Rejects new tasks and stops the workers once the queued tasks are done.
+     */
+    synchronized void shutdown() {
+        shutdown = true;
+        notifyAll();
+    }
+
+    private synchronized void enqueue(final Share share, final Runnable task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("The pool is shut down.");
+        }
+        share.tasks.addLast(requireNonNull(task));
+        if (!share.active) {
+            share.virtualTime = Math.max(share.virtualTime, priorityVirtualTimes[share.priority]);
+            share.active = true;
+            activeShares.get(share.priority).add(share);
+        }
+        if (idleWorkerCount > wakeUpCount) {
+            wakeUpCount++;
+            notify();
+        } else if (workerCount < threadCount) {
+            workerCount++;
+            threadFactory.newThread(this::runWorker).start();
+        }
+    }
+
+    private void runWorker() {
+        Share share = null;
+        long runTime = 0;
+        while (true) {
+            final Runnable task;
+            synchronized (this) {
+                if (share != null) {
+                    charge(share, runTime);
+                }
+                share = awaitShare();
+                if (share == null) {
+                    workerCount--;
+                    return;
+                }
+                task = share.tasks.removeFirst();
+                if (share.tasks.isEmpty()) {
+                    activeShares.get(share.priority).remove(share);
+                    share.active = false;
+                }
+            }
+            final long startTime = System.nanoTime();
+            try {
+                task.run();
+            } catch (final RuntimeException e) {
+                // the runs report the failures of their tasks themselves
+            }
+            runTime = System.nanoTime() - startTime;
+        }
+    }
+
+    /**
+     * Returns the {@link Share} the next task is taken from, waiting until
+     * there is one, or <code>null</code> if the pool is shut down and there
+     * are no queued tasks left. Interrupts are ignored, otherwise a worker
+     * which was woken up for a task could leave it queued.
+     */
+    private Share awaitShare() {
+        while (true) {
+            for (int priority = 0; priority < activeShares.size(); priority++) {
+                if (!activeShares.get(priority).isEmpty()) {
+                    final Share share = activeShares.get(priority).first();
+                    priorityVirtualTimes[priority] = Math.max(priorityVirtualTimes[priority], share.virtualTime);
+                    return share;
+                }
+            }
+            if (shutdown) {
+                return null;
+            }
+            idleWorkerCount++;
+            while (wakeUpCount == 0 && !shutdown) {
+                try {
+                    wait();
+                } catch (final InterruptedException e) {
+                    // only shutdown stops a worker, this is a late cancellation of a task it has run
+                }
+            }
+            idleWorkerCount--;
+            if (wakeUpCount > 0) {
+                wakeUpCount--;
+            }
+        }
+    }
+
+    private void charge(final Share share, final long runTime) {
+        final long cost = Math.max(1, runTime / share.weight);
+        if (share.active) {
+            activeShares.get(share.priority).remove(share);
+            share.virtualTime += cost;
+            activeShares.get(share.priority).add(share);
+        } else {
+            share.virtualTime += cost;
+        }
+    }
+
+    /**
+     * The part of the pool used by a single run. Guarded by the pool.
+     */
+    private final class Share implements Executor {
+
+        private final long id;
+        private final int priority;
+        private final int weight;
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        /**
+         * The thread time used so far divided by the weight.
+         */
+        private long virtualTime;
+        private boolean active;
+
+        private Share(final long id, final int priority, final int weight) {
+            this.id = id;
+            this.priority = priority;
+            this.weight = weight;
+        }
+
+        @Override
+        public void execute(final Runnable task) {
+            enqueue(this, task);
+        }
+    }
+}
@@ -1,26 +1,42 @@
 package org.codetome.taskomat.core;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.unmodifiableList;
+import static java.util.Optional.empty;
 import static java.util.UUID.randomUUID;
 
 /**
  * Represents a {@link Job} which is an abstraction over the {@link Callable}
- * interface. It contains the results of all {@link Job}s whose results are
- * needed in this {@link Job}.
+ * interface. While {@link #call()} is running it can access the results of
+ * all {@link Job}s whose results are needed in this {@link Job} and add new
+ * {@link Job}s to the running {@link JobSuite} with
+ * {@link #spawn(Job, Job...)}.
+ * <p>
+ * The dependency results belong to the run, not to the {@link Job}, so the
+ * same {@link Job} can be part of several concurrently running
+ * {@link JobSuite}s. They are only visible on the thread running
+ * {@link #call()}.
  */
 public abstract class Job implements Callable<JobResult<?>> {
 
+    /**
+     * Holds the {@link Job} running on the current thread together with its
+     * dependency results.
+     */
+    private static final ThreadLocal<Invocation> CURRENT_INVOCATION = new ThreadLocal<>();
+
     private final UUID uuid = randomUUID();
     private final String name;
 
-    private List<JobResult<?>> dependencyResults = emptyList();
-
     public Job(final String name) {
         this.name = name;
     }
@@ -29,17 +45,206 @@ public abstract class Job implements Callable<JobResult<?>> {
         return name;
     }
 
+    /**
+     * Returns the expected duration of {@link #call()}. Used to order the
+     * ready {@link Job}s when critical path scheduling is enabled. Override it
+     * if the cost is known up front, otherwise the durations measured in
+     * earlier runs are used.
+     */
+    public Optional<Duration> getCostHint() {
+        return empty();
+    }
+
+    /**
+     * Returns how long {@link #call()} may run before it is interrupted and
+     * its result is recorded as {@link JobResultType#TIMED_OUT}. No timeout by
+     * default.
+     */
+    public Optional<Duration> getTimeout() {
+        return empty();
+    }
+
+    /**
+     * Returns the {@link RetryPolicy} used when {@link #call()} fails or times
+     * out. Between attempts no thread is held. Not retried by default.
+     */
+    public Optional<RetryPolicy> getRetryPolicy() {
+        return empty();
+    }
+
+    /**
+     * Returns the key under which the result of this {@link Job} is stored in
+     * the {@link JobResultCache}. The key must change whenever anything
+     * besides the dependency results changes the outcome of {@link #call()}.
+     * Not cached by default.
+     */
+    public Optional<String> getCacheKey() {
+        return empty();
+    }
+
+    /**
+     * Returns a key which identifies the content of the given result of this
+     * {@link Job}. The {@link JobResultCache} uses it to tell whether the
+     * inputs of a dependent {@link Job} changed, so equal keys must only be
+     * returned for results which are interchangeable. By default
+     * {@link java.io.Serializable} results are identified by their serialized
+     * form and the dependents of other results are not cached.
+     */
+    public Optional<String> getResultFingerprint(final Object result) {
+        return empty();
+    }
+
+    /**
+     * Returns how much of each resource class (for example
+     * <code>"memory"</code> or <code>"io"</code>) this {@link Job} uses while
+     * it runs. The {@link JobExecutorService} only starts it when its limit of
+     * each class allows. Classes without a limit are ignored. Needs nothing
+     * by default.
+     */
+    public Map<String, Integer> getResourceDemands() {
+        return emptyMap();
+    }
+
+    /**
+     * Tells whether {@link #call()} spends most of its time blocked, for
+     * example on I/O. On a {@link java.util.concurrent.ForkJoinPool} such a
+     * {@link Job} is run as a
+     * {@link java.util.concurrent.ForkJoinPool.ManagedBlocker} so the pool
+     * starts a spare thread while it is blocked, see
+     * {@link JobExecutorServiceBuilder#withWorkStealingPool(int)}. Not
+     * blocking by default.
+     */
+    public boolean isBlocking() {
+        return false;
+    }
+
+    /**
+     * Tells whether {@link #call()} can safely run twice at the same time
+     * with the same outcome. With speculative execution a duplicate of such
+     * a {@link Job} is started when it runs much longer than usual, see
+     * {@link JobExecutorServiceBuilder#withSpeculativeExecution(double, double)}.
+     * Not idempotent by default.
+     */
+    public boolean isIdempotent() {
+        return false;
+    }
+
+    /**
+     * Tells whether the value of the result of this {@link Job} has to be
+     * kept in the {@link JobSuiteResult} even though other {@link Job}s
+     * depend on it, see {@link JobExecutorServiceBuilder#withResultRelease()}.
+     * Results which no {@link Job} depends on are always kept. Not kept by
+     * default.
+     */
+    public boolean isResultKept() {
+        return false;
+    }
+
+    /**
+     * Returns the results of the dependencies of this {@link Job} in the order
+     * they were added. Only available on the thread running {@link #call()}.
+     */
     public List<JobResult<?>> getDependencyResults() {
-        return unmodifiableList(dependencyResults);
+        return unmodifiableList(currentDependencyResults());
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getDependencyResult(final int parameterIndex) {
-        return (T) dependencyResults.get(parameterIndex).getResult().get();
+        return (T) currentDependencyResults().get(parameterIndex).getResult().get();
+    }
+
+    /**
+     * Publishes an element to the {@link Job} which consumes the output of
+     * this {@link Job} through a streaming dependency, see
+     * {@link JobSuiteBuilder#addStreamingJob(Job, Job, int)}. Waits while the
+     * buffer of the {@link JobStream} is full. Only available on the thread
+     * running {@link #call()}.
+     *
+     * @throws IllegalStateException if this {@link Job} is not running or
+     *                               does not stream.
+     */
+    protected final void publish(final Object element) throws InterruptedException {
+        final Invocation invocation = CURRENT_INVOCATION.get();
+        if (invocation == null || invocation.job != this || invocation.outputStream == null) {
+            throw new IllegalStateException("Job " + name + " can only publish while it is running and has a streaming dependent.");
+        }
+        invocation.outputStream.publish(element);
+    }
+
+    /**
+     * Adds a new {@link Job} to the running {@link JobSuite}, for example one
+     * for each partition of the data this {@link Job} has discovered. The
+     * <code>dependencies</code> have to be spawned by this call before.
+     * Spawning a {@link Job} again adds the dependencies to it. The spawned
+     * {@link Job}s are started once {@link #call()} has returned, on the same
+     * threads as the rest of the {@link JobSuite}. The dependents of this
+     * {@link Job} wait until the spawned {@link Job}s are finished as well
+     * and this {@link Job} fails if any of them fails. Their results are part
+     * of the {@link JobSuiteResult}. Only available on the thread running
+     * {@link #call()}.
+     *
+     * @throws IllegalStateException      if this {@link Job} is not running or
+     *                                    a dependency was not spawned.
+     * @throws CircularDependencyException if the dependencies would close a
+     *                                    cycle.
+     */
+    protected final void spawn(final Job job, final Job... dependencies) {
+        final Invocation invocation = CURRENT_INVOCATION.get();
+        if (invocation == null || invocation.job != this) {
+            throw new IllegalStateException("Job " + name + " can only spawn jobs while it is running.");
+        }
+        if (invocation.spawnedJobs == null) {
+            invocation.spawnedJobs = new JobSuiteBuilder();
+        }
+        final JobSuiteBuilder spawnedJobs = invocation.spawnedJobs;
+        for (final Job dependency : dependencies) {
+            if (!spawnedJobs.containsJob(dependency) && !dependency.equals(job)) {
+                throw new IllegalStateException("Job " + job.getName() + " depends on " + dependency.getName() + " which was never spawned.");
+            }
+        }
+        spawnedJobs.addJob(job, dependencies);
     }
 
-    void setDependencyResults(final List<JobResult<?>> dependencyResults) {
-        this.dependencyResults = dependencyResults;
+    /**
+     * Calls <code>job</code> while making <code>dependencyResults</code> and
+     * the {@link JobStream} it publishes to, if any, available to it on the
+     * current thread. The {@link Job}s it spawned are attached to the
+     * returned {@link JobResult}.
+     */
+    static JobResult<?> callWithDependencyResults(final Job job,
+                                                  final List<JobResult<?>> dependencyResults,
+                                                  final JobStream<?> outputStream) throws Exception {
+        final Invocation previousInvocation = CURRENT_INVOCATION.get();
+        final Invocation invocation = new Invocation(job, dependencyResults, outputStream);
+        CURRENT_INVOCATION.set(invocation);
+        try {
+            final JobResult<?> jobResult = job.call();
+            if (jobResult != null && invocation.spawnedJobs != null) {
+                jobResult.setSpawnedJobs(invocation.spawnedJobs);
+            }
+            return jobResult;
+        } finally {
+            if (previousInvocation == null) {
+                CURRENT_INVOCATION.remove();
+            } else {
+                CURRENT_INVOCATION.set(previousInvocation);
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link Optional} the given method of <code>job</code> has
+     * returned. An overriding method has to return an empty {@link Optional}
+     * rather than <code>null</code>.
+     */
+    static <T> Optional<T> requireOptional(final Optional<T> value, final Job job, final String methodName) {
+        return Objects.requireNonNull(value, () -> "Job " + job.getName() + " returned null from " + methodName
+                + " instead of an empty Optional.");
+    }
+
+    private List<JobResult<?>> currentDependencyResults() {
+        final Invocation invocation = CURRENT_INVOCATION.get();
+        return invocation != null && invocation.job == this ? invocation.dependencyResults : emptyList();
     }
 
     @Override
@@ -58,4 +263,18 @@ public abstract class Job implements Callable<JobResult<?>> {
     public int hashCode() {
         return Objects.hash(uuid);
     }
+
+    private static final class Invocation {
+
+        private final Job job;
+        private final List<JobResult<?>> dependencyResults;
+        private final JobStream<?> outputStream;
+        private JobSuiteBuilder spawnedJobs;
+
+        private Invocation(final Job job, final List<JobResult<?>> dependencyResults, final JobStream<?> outputStream) {
+            this.job = job;
+            this.dependencyResults = dependencyResults;
+            this.outputStream = outputStream;
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package org.codetome.taskomat.core;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+
+/**
+ * Keeps track of how long {@link Job}s took in earlier runs. {@link Job}s are
+ * identified by their name so the history carries over to newly built
+ * {@link JobSuite}s. The estimate of a {@link Job} is an exponentially
+ * weighted moving average of its measured durations. This class is thread
+ * safe and can be shared by several {@link JobExecutorService}s.
+ */
+public class JobDurationHistory {
+
+    /**
+     * The weight of the latest measurement is <code>1 / SMOOTHING_DIVISOR</code>.
+     */
+    private static final long SMOOTHING_DIVISOR = 4;
+
+    private final Map<String, Long> estimatedNanos = new ConcurrentHashMap<>();
+
+    /**
+     * Records that the {@link Job} with the given name took
+     * <code>durationNanos</code> to complete.
+     */
+    public void record(final String jobName, final long durationNanos) {
+        if (jobName != null) {
+            estimatedNanos.merge(jobName, durationNanos,
+                    (estimate, measurement) -> estimate + (measurement - estimate) / SMOOTHING_DIVISOR);
+        }
+    }
+
+    /**
+     * Returns the estimated duration of the {@link Job} with the given name or
+     * an empty {@link Optional} if it was never recorded.
+     */
+    public Optional<Duration> getEstimate(final String jobName) {
+        final Long estimate = jobName == null ? null : estimatedNanos.get(jobName);
+        return estimate == null ? empty() : of(Duration.ofNanos(estimate));
+    }
+
+    /**
+     * Returns the estimated cost of each {@link Job} of the given
+     * {@link JobSuite} in nanoseconds, indexed by job id. The
+     * {@link Job#getCostHint()} is used if present, then the estimate of this
+     * history. {@link Job}s without either are assumed to cost as much as the
+     * average of the others.
+     */
+    long[] estimateCosts(final JobSuite jobSuite) {
+        return estimateCosts(jobSuite, job -> {
+            final Optional<Duration> costHint = Job.requireOptional(job.getCostHint(), job, "getCostHint()");
+            return costHint.isPresent() ? costHint : getEstimate(job.getName());
+        });
+    }
+
+    /**
+     * Returns the cost of each {@link Job} of the given {@link JobSuite} in
+     * nanoseconds as given by <code>estimates</code>, indexed by job id.
+     * {@link Job}s without an estimate are assumed to cost as much as the
+     * average of the others.
+     */
+    static long[] estimateCosts(final JobSuite jobSuite, final Function<Job, Optional<Duration>> estimates) {
+        final int jobCount = jobSuite.getTotalJobCount();
+        final long[] costs = new long[jobCount];
+        long knownCostSum = 0;
+        int knownCostCount = 0;
+        for (int jobId = 0; jobId < jobCount; jobId++) {
+            costs[jobId] = estimates.apply(jobSuite.getJob(jobId)).map(Duration::toNanos).orElse(-1L);
+            if (costs[jobId] >= 0) {
+                knownCostSum += costs[jobId];
+                knownCostCount++;
+            }
+        }
+        final long defaultCost = knownCostCount == 0 ? 1 : Math.max(1, knownCostSum / knownCostCount);
+        for (int jobId = 0; jobId < jobCount; jobId++) {
+            if (costs[jobId] < 0) {
+                costs[jobId] = defaultCost;
+            }
+        }
+        return costs;
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void clear() {
+        estimatedNanos.clear();
+    }
+}
@@ -0,0 +1,46 @@
+package org.codetome.taskomat.core;
+
+/**
+ * Gets notified about the progress of every run of a
+ * {@link JobExecutorService}. The methods are called on the threads doing the
+ * work, so they have to be thread safe and return quickly. Exceptions thrown
+ * by them are ignored. All methods do nothing by default.
+ *
+ * @see JobExecutionMetrics
+ */
+public interface JobExecutionListener {
+
+    /**
+     * Called before the first {@link Job} of a run is submitted.
+     */
+    default void onSuiteStarted(final JobSuite jobSuite) {
+    }
+
+    /**
+     * Called when a {@link Job} is handed to the executor, once for each
+     * attempt.
+     */
+    default void onJobSubmitted(final Job job) {
+    }
+
+    /**
+     * Called on the thread running the {@link Job} right before it is called,
+     * once for each attempt.
+     */
+    default void onJobStarted(final Job job) {
+    }
+
+    /**
+     * Called once the final {@link JobResult} of a {@link Job} is known,
+     * including skipped {@link Job}s and results taken from a cache. The
+     * timestamps of the run are available from the {@link JobResult}.
+     */
+    default void onJobFinished(final Job job, final JobResult<?> jobResult) {
+    }
+
+    /**
+     * Called right before the {@link JobSuiteResult} is handed to the caller.
+     */
+    default void onSuiteFinished(final JobSuite jobSuite, final JobSuiteResult jobSuiteResult) {
+    }
+}
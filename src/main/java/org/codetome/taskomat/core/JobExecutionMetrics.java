@@ -0,0 +1,190 @@
+package org.codetome.taskomat.core;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link JobExecutionListener} which aggregates the runs of one or more
+ * {@link JobExecutorService}s into counters and {@link DurationHistogram}s
+ * which can be read at any time. The per {@link Job} work is a few striped
+ * counter and histogram increments, the suite level numbers (makespan,
+ * parallelism and critical path) are computed once each run is finished.
+ * <p>
+ * A high queue wait with a low average parallelism points to too few
+ * threads, a critical path close to the makespan points to a chain of
+ * {@link Job}s which limits the run no matter how many threads there are.
+ */
+public class JobExecutionMetrics implements JobExecutionListener {
+
+    private final LongAdder submittedJobCount = new LongAdder();
+    private final LongAdder startedJobCount = new LongAdder();
+    private final LongAdder finishedJobCount = new LongAdder();
+    private final LongAdder failedJobCount = new LongAdder();
+    private final LongAdder finishedSuiteCount = new LongAdder();
+    private final LongAdder speculatedJobCount = new LongAdder();
+    private final LongAdder speculativeWinCount = new LongAdder();
+    private final AtomicInteger peakParallelism = new AtomicInteger();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAdder makespanNanos = new LongAdder();
+    private final DurationHistogram queueWaits = new DurationHistogram();
+    private final DurationHistogram runTimes = new DurationHistogram();
+    private final DurationHistogram makespans = new DurationHistogram();
+    private final DurationHistogram criticalPathLengths = new DurationHistogram();
+
+    @Override
+    public void onJobSubmitted(final Job job) {
+        submittedJobCount.increment();
+    }
+
+    @Override
+    public void onJobStarted(final Job job) {
+        startedJobCount.increment();
+    }
+
+    @Override
+    public void onJobFinished(final Job job, final JobResult<?> jobResult) {
+        finishedJobCount.increment();
+        if (jobResult.getJobResultType().isFailure()) {
+            failedJobCount.increment();
+        }
+        if (jobResult.isSpeculated()) {
+            speculatedJobCount.increment();
+        }
+        if (jobResult.isFromSpeculativeCopy()) {
+            speculativeWinCount.increment();
+        }
+        if (jobResult.getStartTimeNanos() != 0) {
+            queueWaits.record(jobResult.getStartTimeNanos() - jobResult.getSubmitTimeNanos());
+            runTimes.record(jobResult.getEndTimeNanos() - jobResult.getStartTimeNanos());
+        }
+    }
+
+    @Override
+    public void onSuiteFinished(final JobSuite jobSuite, final JobSuiteResult jobSuiteResult) {
+        finishedSuiteCount.increment();
+        final long makespan = jobSuiteResult.getMakespan().toNanos();
+        makespans.record(makespan);
+        makespanNanos.add(makespan);
+        final int jobCount = jobSuite.getTotalJobCount();
+        final long[] runTimes = new long[jobCount];
+        final long[] startTimes = new long[jobCount];
+        final long[] endTimes = new long[jobCount];
+        int startedJobCount = 0;
+        for (int jobId = 0; jobId < jobCount; jobId++) {
+            final JobResult<?> jobResult = jobSuiteResult.getJobResults().get(jobSuite.getJob(jobId));
+            if (jobResult != null && jobResult.getStartTimeNanos() != 0) {
+                runTimes[jobId] = jobResult.getEndTimeNanos() - jobResult.getStartTimeNanos();
+                startTimes[startedJobCount] = jobResult.getStartTimeNanos();
+                endTimes[startedJobCount] = jobResult.getEndTimeNanos();
+                startedJobCount++;
+                busyNanos.add(runTimes[jobId]);
+            }
+        }
+        criticalPathLengths.record(Arrays.stream(jobSuite.computeRemainingPathCosts(runTimes)).max().orElse(0));
+        final int parallelism = computePeakParallelism(startTimes, endTimes, startedJobCount);
+        peakParallelism.accumulateAndGet(parallelism, Math::max);
+    }
+
+    public long getSubmittedJobCount() {
+        return submittedJobCount.sum();
+    }
+
+    public long getStartedJobCount() {
+        return startedJobCount.sum();
+    }
+
+    public long getFinishedJobCount() {
+        return finishedJobCount.sum();
+    }
+
+    public long getFailedJobCount() {
+        return failedJobCount.sum();
+    }
+
+    /**
+     * Returns the number of {@link Job}s a duplicate was started for, see
+     * {@link JobExecutorServiceBuilder#withSpeculativeExecution(double, double)}.
+     */
+    public long getSpeculatedJobCount() {
+        return speculatedJobCount.sum();
+    }
+
+    /**
+     * Returns the number of {@link Job}s whose duplicate finished before the
+     * original call.
+     */
+    public long getSpeculativeWinCount() {
+        return speculativeWinCount.sum();
+    }
+
+    public long getFinishedSuiteCount() {
+        return finishedSuiteCount.sum();
+    }
+
+    /**
+     * Returns the largest number of {@link Job}s which were running at the
+     * same time within a single run.
+     */
+    public int getPeakParallelism() {
+        return peakParallelism.get();
+    }
+
+    /**
+     * Returns the total run time of the {@link Job}s divided by the total
+     * makespan of the finished runs, which is the average number of busy
+     * threads.
+     */
+    public double getAverageParallelism() {
+        final long makespan = makespanNanos.sum();
+        return makespan == 0 ? 0 : (double) busyNanos.sum() / makespan;
+    }
+
+    /**
+     * Returns the time the {@link Job}s spent between being submitted and
+     * being started.
+     */
+    public DurationHistogram getQueueWaits() {
+        return queueWaits;
+    }
+
+    public DurationHistogram getRunTimes() {
+        return runTimes;
+    }
+
+    /**
+     * Returns the time from the start of each run until its result was
+     * available.
+     */
+    public DurationHistogram getMakespans() {
+        return makespans;
+    }
+
+    /**
+     * Returns the length of the longest chain of dependent {@link Job}s of
+     * each run, measured by their run times.
+     */
+    public DurationHistogram getCriticalPathLengths() {
+        return criticalPathLengths;
+    }
+
+    /**
+     * Returns the largest number of the given intervals which overlap.
+     */
+    private static int computePeakParallelism(final long[] startTimes, final long[] endTimes, final int count) {
+        Arrays.sort(startTimes, 0, count);
+        Arrays.sort(endTimes, 0, count);
+        int running = 0;
+        int peak = 0;
+        int end = 0;
+        for (int start = 0; start < count; start++) {
+            while (endTimes[end] < startTimes[start]) {
+                end++;
+                running--;
+            }
+            running++;
+            peak = Math.max(peak, running);
+        }
+        return peak;
+    }
+}
@@ -1,69 +1,225 @@
 package org.codetome.taskomat.core;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorCompletionService;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 
+import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.Executors.newCachedThreadPool;
-import static java.util.stream.Collectors.toList;
-import static org.codetome.taskomat.core.JobResultType.SERVICE_ERROR;
-import static org.codetome.taskomat.core.JobResultType.SUCCESS;
+import static org.codetome.taskomat.core.SchedulingMode.WAVE;
+import static org.codetome.taskomat.core.SuitePriority.NORMAL;
 
 /**
- * This service can be used to run {@link JobSuite}s.
+ * This service can be used to run {@link JobSuite}s. Use a
+ * {@link JobExecutorServiceBuilder} to configure it.
  */
 public class JobExecutorService {
 
+    private final ExecutionConfiguration configuration;
+
+    /**
+     * Creates a {@link JobExecutorService} which uses {@link SchedulingMode#WAVE}.
+     */
+    public JobExecutorService() {
+        this(WAVE);
+    }
+
+    public JobExecutorService(final SchedulingMode schedulingMode) {
+        this(new ExecutionConfiguration());
+        configuration.setSchedulingMode(schedulingMode);
+    }
+
+    JobExecutorService(final ExecutionConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
     /**
      * Runs a {@link JobSuite}. Blocks until either all {@link Job}s are
      * completed or an {@link Exception} was thrown.
      */
     public JobSuiteResult runJobSuite(final JobSuite jobSuite) {
-        final ExecutorService executorService = newCachedThreadPool();
-        final ExecutorCompletionService<JobResult<?>> executorCompletionService = new ExecutorCompletionService<>(executorService);
-        final Map<Job, JobResult<?>> jobResults = new HashMap<>();
-        final Map<Future<JobResult<?>>, Job> tempResults = new HashMap<>();
-        while (jobSuite.hasJobsLeft()) {
-            final Queue<Job> nextJobs = jobSuite.getNextJobs();
-            int currentJobCount = nextJobs.size();
-            nextJobs.forEach(job ->
-            {
-                final List<JobResult<?>> dependencyResults = jobSuite.getDependenciesOf(job)
-                        .stream()
-                        .map(currentJob -> jobResults.get(currentJob))
-                        .collect(toList());
-                job.setDependencyResults(dependencyResults);
-                tempResults.put(executorCompletionService.submit(job), job);
-            });
-            int exceptionCount = 0;
-            while (currentJobCount > 0) {
-                JobResult<?> jobResult;
-                Future<JobResult<?>> resultFuture = null;
-                try {
-                    resultFuture = executorCompletionService.take();
-                    jobResult = resultFuture.get();
-                    jobResult.setJobResultType(SUCCESS);
-                    jobResults.put(tempResults.get(resultFuture), jobResult);
-                } catch (InterruptedException | ExecutionException e) {
-                    exceptionCount++;
-                    jobResult = new JobResult<>();
-                    jobResult.setException(e);
-                    jobResult.setJobResultType(SERVICE_ERROR);
-                    jobResults.put(tempResults.get(resultFuture), jobResult);
-                }
-                jobResult.setJobName(tempResults.get(resultFuture).getName());
-                currentJobCount--;
-            }
-            if (exceptionCount > 0) {
-                break;
-            }
+        return runJobSuiteAsync(jobSuite).join();
+    }
+
+    /**
+     * Runs a {@link JobSuite} with the given priority and weight like
+     * {@link #runJobSuiteAsync(JobSuite, SuitePriority, int)} and blocks until
+     * it is done.
+     */
+    public JobSuiteResult runJobSuite(final JobSuite jobSuite, final SuitePriority priority, final int weight) {
+        return runJobSuiteAsync(jobSuite, priority, weight).join();
+    }
+
+    /**
+     * Starts running a {@link JobSuite} and returns immediately.
+     *
+     * @return a {@link CompletableFuture} which is completed with the
+     * {@link JobSuiteResult} after either all {@link Job}s are completed or an
+     * {@link Exception} was thrown.
+     */
+    public CompletableFuture<JobSuiteResult> runJobSuiteAsync(final JobSuite jobSuite) {
+        return runJobSuiteAsync(jobSuite, (job, jobResult) -> {
+        });
+    }
+
+    /**
+     * Starts running a {@link JobSuite} with the given priority and weight
+     * and returns immediately. These only matter with
+     * {@link JobExecutorServiceBuilder#withFairSharedPool(int)}: runs of the
+     * same priority get thread time in proportion to their weight while they
+     * have ready {@link Job}s. The time each {@link Job} waited for a thread
+     * is reported by {@link JobSuiteResult#getTotalQueueWait()}.
+     *
+     * @return a {@link CompletableFuture} which is completed with the
+     * {@link JobSuiteResult} after either all {@link Job}s are completed or an
+     * {@link Exception} was thrown.
+     */
+    public CompletableFuture<JobSuiteResult> runJobSuiteAsync(final JobSuite jobSuite,
+                                                              final SuitePriority priority,
+                                                              final int weight) {
+        requireNonNull(priority);
+        if (weight < 1) {
+            throw new IllegalArgumentException("Weight must be positive, got " + weight + ".");
+        }
+        return run(jobSuite, priority, weight, (job, jobResult) -> {
+        }, null, false);
+    }
+
+    /**
+     * Starts running a {@link JobSuite} and returns immediately.
+     * <code>jobCompletionListener</code> is called with each {@link Job} and
+     * its {@link JobResult} as soon as the {@link Job} is completed, on the
+     * thread which ran the {@link Job} and before its dependents are
+     * submitted, so it should return quickly.
+     *
+     * @return a {@link CompletableFuture} which is completed with the
+     * {@link JobSuiteResult} after either all {@link Job}s are completed or an
+     * {@link Exception} was thrown.
+     */
+    public CompletableFuture<JobSuiteResult> runJobSuiteAsync(final JobSuite jobSuite,
+                                                              final BiConsumer<Job, JobResult<?>> jobCompletionListener) {
+        return run(jobSuite, NORMAL, 1, jobCompletionListener, null, false);
+    }
+
+    /**
+     * Runs a {@link JobSuite} like {@link #runJobSuiteAsync(JobSuite, String)}
+     * and blocks until it is done.
+     */
+    public JobSuiteResult runJobSuite(final JobSuite jobSuite, final String runId) {
+        return runJobSuiteAsync(jobSuite, runId).join();
+    }
+
+    /**
+     * Starts running a {@link JobSuite} whose completed {@link Job}s are
+     * recorded in the {@link JobJournal} under the given run id and returns
+     * immediately. Whatever was recorded under the run id before is
+     * discarded. If the run is interrupted it can be continued with
+     * {@link #resumeJobSuiteAsync(JobSuite, String)}.
+     *
+     * @throws IllegalStateException    if this service has no
+     *                                  {@link JobJournal}.
+     * @throws IllegalArgumentException if the run id contains a
+     *                                  <code>/</code>.
+     */
+    public CompletableFuture<JobSuiteResult> runJobSuiteAsync(final JobSuite jobSuite, final String runId) {
+        checkJournaled(runId).discard(runId);
+        return run(jobSuite, NORMAL, 1, (job, jobResult) -> {
+        }, runId, false);
+    }
+
+    /**
+     * Resumes a {@link JobSuite} like
+     * {@link #resumeJobSuiteAsync(JobSuite, String)} and blocks until it is
+     * done.
+     */
+    public JobSuiteResult resumeJobSuite(final JobSuite jobSuite, final String runId) {
+        return resumeJobSuiteAsync(jobSuite, runId).join();
+    }
+
+    /**
+     * Resumes the run of a {@link JobSuite} which was started with the given
+     * run id and returns immediately. The {@link Job}s recorded as completed
+     * in the {@link JobJournal} under the run id are not run again, their
+     * recorded result is used instead.
+     *
+     * @throws IllegalStateException    if this service has no
+     *                                  {@link JobJournal}.
+     * @throws IllegalArgumentException if the run id contains a
+     *                                  <code>/</code>.
+     */
+    public CompletableFuture<JobSuiteResult> resumeJobSuiteAsync(final JobSuite jobSuite, final String runId) {
+        checkJournaled(runId);
+        return run(jobSuite, NORMAL, 1, (job, jobResult) -> {
+        }, runId, true);
+    }
+
+    private JobJournal checkJournaled(final String runId) {
+        JobJournal.checkRunId(requireNonNull(runId));
+        final JobJournal jobJournal = configuration.getJobJournal();
+        if (jobJournal == null) {
+            throw new IllegalStateException("Runs can only be journaled with a JobJournal.");
+        }
+        return jobJournal;
+    }
+
+    private CompletableFuture<JobSuiteResult> run(final JobSuite jobSuite,
+                                                  final SuitePriority priority,
+                                                  final int weight,
+                                                  final BiConsumer<Job, JobResult<?>> jobCompletionListener,
+                                                  final String runId,
+                                                  final boolean resume) {
+        final FairSharePool fairSharePool = configuration.getFairSharePool();
+        if (fairSharePool != null) {
+            return JobSuiteExecution
+                    .create(configuration, jobSuite, fairSharePool.newShare(priority, weight), jobCompletionListener)
+                    .journalAs(runId, resume)
+                    .start();
+        }
+        final ExecutorService sharedExecutorService = configuration.getSharedExecutorService();
+        final ExecutorService executorService = sharedExecutorService == null
+                ? newCachedThreadPool(configuration.getThreadFactory())
+                : sharedExecutorService;
+        final CompletableFuture<JobSuiteResult> result = JobSuiteExecution
+                .create(configuration, jobSuite, executorService, jobCompletionListener)
+                .journalAs(runId, resume)
+                .start();
+        if (executorService != sharedExecutorService) {
+            result.whenComplete((jobSuiteResult, throwable) -> executorService.shutdown());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the {@link JobDurationHistory} the durations of the
+     * {@link Job}s run by this service are recorded into.
+     */
+    public JobDurationHistory getJobDurationHistory() {
+        return configuration.getJobDurationHistory();
+    }
+
+    /**
+     * Returns how many {@link Job}s may be in flight right now if an
+     * adaptive concurrency limit is used, see
+     * {@link JobExecutorServiceBuilder#withAdaptiveConcurrencyLimit(int, int)}.
+     */
+    public OptionalInt getConcurrencyLimit() {
+        final AdaptiveConcurrencyLimiter concurrencyLimiter = configuration.getConcurrencyLimiter();
+        return concurrencyLimiter == null ? OptionalInt.empty() : OptionalInt.of(concurrencyLimiter.getLimit());
+    }
+
+    /**
+     * Shuts down the thread pool this {@link JobExecutorService} keeps across
+     * runs and the thread used for timeouts. Pools supplied by the caller are
+     * left alone.
+     */
+    public void shutdown() {
+        configuration.getDelayScheduler().shutdown();
+        if (configuration.ownsSharedExecutorService()) {
+            configuration.getSharedExecutorService().shutdown();
+        }
+        if (configuration.getFairSharePool() != null) {
+            configuration.getFairSharePool().shutdown();
         }
-        executorService.shutdown();
-        return new JobSuiteResult(jobResults, jobSuite.getTotalJobCount());
     }
 }
@@ -0,0 +1,339 @@
+package org.codetome.taskomat.core;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+/**
+ * Responsible for building a {@link JobExecutorService}. By default the
+ * resulting {@link JobExecutorService} creates a new thread pool for each
+ * {@link JobSuite} it runs. Use one of the pool options to keep the threads
+ * across runs instead. After the {@link JobExecutorService} is built this
+ * builder can't be used anymore.
+ */
+public class JobExecutorServiceBuilder {
+
+    private final ExecutionConfiguration configuration = new ExecutionConfiguration();
+    private ExecutorService executorService;
+    private int threadCount;
+    private boolean virtualThreads;
+    private int fairThreadCount;
+    private int workStealingParallelism;
+    private final Map<String, Integer> resourceLimits = new LinkedHashMap<>();
+
+    private volatile boolean isBuilding = false;
+
+    /**
+     * Sets the {@link SchedulingMode} which decides when a {@link Job} is
+     * submitted. Defaults to {@link SchedulingMode#WAVE}.
+     */
+    public JobExecutorServiceBuilder withSchedulingMode(final SchedulingMode schedulingMode) {
+        checkNotBuilt();
+        configuration.setSchedulingMode(requireNonNull(schedulingMode));
+        return this;
+    }
+
+    /**
+     * Uses the given {@link ExecutorService} for every run. Its lifecycle is
+     * managed by the caller so {@link JobExecutorService#shutdown()} won't
+     * touch it.
+     */
+    public JobExecutorServiceBuilder withExecutorService(final ExecutorService executorService) {
+        checkNotBuilt();
+        this.executorService = requireNonNull(executorService);
+        return this;
+    }
+
+    /**
+     * Uses a pool of <code>threadCount</code> threads which is kept across
+     * runs. This also limits the number of {@link Job}s running at the same
+     * time.
+     */
+    public JobExecutorServiceBuilder withFixedThreadPool(final int threadCount) {
+        checkNotBuilt();
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive, got " + threadCount + ".");
+        }
+        this.threadCount = threadCount;
+        return this;
+    }
+
+    /**
+     * Runs each {@link Job} on its own virtual thread. This is the preferred
+     * option for {@link Job}s which spend most of their time blocked on I/O.
+     * Needs Java 21 or newer.
+     */
+    public JobExecutorServiceBuilder withVirtualThreads() {
+        checkNotBuilt();
+        if (!VirtualThreads.isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads need Java 21 or newer.");
+        }
+        this.virtualThreads = true;
+        return this;
+    }
+
+    /**
+     * Uses a {@link ForkJoinPool} with the given parallelism which is kept
+     * across runs. A worker which finishes a {@link Job} pushes the
+     * {@link Job}s it released onto its own deque, idle workers steal from
+     * the others. This suits large graphs of short {@link Job}s with a high
+     * fan-out. {@link Job}s which are {@link Job#isBlocking()} and waits for
+     * a {@link JobStream} make the pool start spare threads so the
+     * parallelism is kept. The pool ignores the
+     * {@link #withThreadFactory(ThreadFactory)}.
+     */
+    public JobExecutorServiceBuilder withWorkStealingPool(final int parallelism) {
+        checkNotBuilt();
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive, got " + parallelism + ".");
+        }
+        this.workStealingParallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Runs the ready {@link Job}s of all runs on a pool of
+     * <code>threadCount</code> threads which is shared fairly between them.
+     * A run only gets a thread if no run of a higher {@link SuitePriority}
+     * has a ready {@link Job}, and runs of the same priority get thread time
+     * in proportion to their weight, see
+     * {@link JobExecutorService#runJobSuiteAsync(JobSuite, SuitePriority, int)}.
+     * So a huge run can't starve the small ones.
+     */
+    public JobExecutorServiceBuilder withFairSharedPool(final int threadCount) {
+        checkNotBuilt();
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive, got " + threadCount + ".");
+        }
+        this.fairThreadCount = threadCount;
+        return this;
+    }
+
+    /**
+     * Sets the {@link ThreadFactory} used by the thread pools this
+     * {@link JobExecutorService} creates for itself.
+     */
+    public JobExecutorServiceBuilder withThreadFactory(final ThreadFactory threadFactory) {
+        checkNotBuilt();
+        configuration.setThreadFactory(requireNonNull(threadFactory));
+        return this;
+    }
+
+    /**
+     * Starts the ready {@link Job} with the longest remaining path to the end
+     * of the {@link JobSuite} first. The length of a path is the sum of the
+     * costs of its {@link Job}s where the cost of a {@link Job} is its
+     * {@link Job#getCostHint()}, or its estimate in the
+     * {@link JobDurationHistory} if it has no hint. This only matters if there
+     * are more ready {@link Job}s than threads, so it should be combined with
+     * a bounded pool.
+     */
+    public JobExecutorServiceBuilder withCriticalPathScheduling() {
+        checkNotBuilt();
+        configuration.setCriticalPathScheduling(true);
+        return this;
+    }
+
+    /**
+     * Sets the {@link JobDurationHistory} the measured durations are recorded
+     * into. Useful to share the history between {@link JobExecutorService}s.
+     */
+    public JobExecutorServiceBuilder withJobDurationHistory(final JobDurationHistory jobDurationHistory) {
+        checkNotBuilt();
+        configuration.setJobDurationHistory(requireNonNull(jobDurationHistory));
+        return this;
+    }
+
+    /**
+     * Sets what happens to the other {@link Job}s after a {@link Job} fails.
+     * Defaults to {@link FailureMode#FINISH_RUNNING_JOBS}.
+     */
+    public JobExecutorServiceBuilder withFailureMode(final FailureMode failureMode) {
+        checkNotBuilt();
+        configuration.setFailureMode(requireNonNull(failureMode));
+        return this;
+    }
+
+    /**
+     * Limits how long a run may take. When the deadline passes no more
+     * {@link Job}s are started and the running ones are cancelled.
+     */
+    public JobExecutorServiceBuilder withSuiteDeadline(final Duration suiteDeadline) {
+        checkNotBuilt();
+        if (suiteDeadline.isNegative() || suiteDeadline.isZero()) {
+            throw new IllegalArgumentException("Suite deadline must be positive, got " + suiteDeadline + ".");
+        }
+        configuration.setSuiteDeadline(suiteDeadline);
+        return this;
+    }
+
+    /**
+     * Looks up the result of each {@link Job} which has a
+     * {@link Job#getCacheKey()} in the given {@link JobResultCache} before
+     * running it and stores it there after it succeeded.
+     */
+    public JobExecutorServiceBuilder withJobResultCache(final JobResultCache jobResultCache) {
+        checkNotBuilt();
+        configuration.setJobResultCache(requireNonNull(jobResultCache));
+        return this;
+    }
+
+    /**
+     * Records the successfully completed {@link Job}s of the runs started
+     * with a run id in the given {@link JobJournal}, so a run interrupted by
+     * a crash can be resumed with
+     * {@link JobExecutorService#resumeJobSuiteAsync(JobSuite, String)}.
+     * Runs without a run id are not journaled.
+     */
+    public JobExecutorServiceBuilder withJobJournal(final JobJournal jobJournal) {
+        checkNotBuilt();
+        configuration.setJobJournal(requireNonNull(jobJournal));
+        return this;
+    }
+
+    /**
+     * Adds a {@link JobExecutionListener} which is notified about every run.
+     * Use a {@link JobExecutionMetrics} to collect timing and utilization
+     * metrics.
+     */
+    public JobExecutorServiceBuilder withExecutionListener(final JobExecutionListener executionListener) {
+        checkNotBuilt();
+        configuration.addExecutionListener(requireNonNull(executionListener));
+        return this;
+    }
+
+    /**
+     * Starts a duplicate of each {@link Job} which is
+     * {@link Job#isIdempotent()} once it has run <code>slowdownFactor</code>
+     * times longer than the given percentile (between 0 and 100) of its
+     * earlier successful calls. The call which finishes first wins and the
+     * other one is cancelled, which cuts the tail latency caused by slow
+     * machines or pauses. Nothing is duplicated before
+     * {@value SpeculationPolicy#MIN_SAMPLE_COUNT} calls of a {@link Job} were
+     * measured. Streaming {@link Job}s and those which
+     * need limited resources are never duplicated. With
+     * {@link #withAdaptiveConcurrencyLimit(int, int)} a duplicate takes a
+     * slot like any other call and is only started if one is free.
+     */
+    public JobExecutorServiceBuilder withSpeculativeExecution(final double percentile, final double slowdownFactor) {
+        checkNotBuilt();
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, got " + percentile + ".");
+        }
+        if (slowdownFactor < 1) {
+            throw new IllegalArgumentException("Slowdown factor must be at least 1, got " + slowdownFactor + ".");
+        }
+        configuration.setSpeculationPolicy(new SpeculationPolicy(percentile, slowdownFactor));
+        return this;
+    }
+
+    /**
+     * Drops the value of each intermediate result as soon as the last
+     * {@link Job} depending on it has started, so it can be garbage
+     * collected before the run ends. The {@link JobSuiteResult} then only
+     * holds the values of the {@link Job}s nothing depends on and of those
+     * whose {@link Job#isResultKept()} is set, the other results are
+     * {@link JobResult#isReleased()}.
+     */
+    public JobExecutorServiceBuilder withResultRelease() {
+        checkNotBuilt();
+        configuration.setResultRelease(true);
+        return this;
+    }
+
+    /**
+     * Moves each {@link java.nio.ByteBuffer} result on the heap which holds
+     * at least <code>thresholdBytes</code> into a temporary file in the given
+     * directory and replaces it with a read only buffer mapped from that
+     * file. The pages of the file are managed by the operating system, so
+     * large results don't count against the heap.
+     */
+    public JobExecutorServiceBuilder withResultSpill(final Path directory, final int thresholdBytes) {
+        checkNotBuilt();
+        if (thresholdBytes < 1) {
+            throw new IllegalArgumentException("Threshold must be positive, got " + thresholdBytes + ".");
+        }
+        configuration.setResultSpill(new ResultSpill(requireNonNull(directory), thresholdBytes));
+        return this;
+    }
+
+    /**
+     * Limits the number of {@link Job}s in flight across all runs to a limit
+     * between <code>minLimit</code> and <code>maxLimit</code> which is
+     * adjusted from the observed run times: it is lowered while the
+     * {@link Job}s take clearly longer than the fastest earlier run of the
+     * same name, which means they compete for the machine, and raised
+     * otherwise. This finds the point where more concurrency stops paying
+     * off as the mix of {@link Job}s changes. Consumers of a stream don't
+     * count towards the limit since their producers wait for them. It works best
+     * with a pool which doesn't limit the threads itself, like the default
+     * one or {@link #withVirtualThreads()}. The current limit is reported by
+     * {@link JobExecutorService#getConcurrencyLimit()}.
+     */
+    public JobExecutorServiceBuilder withAdaptiveConcurrencyLimit(final int minLimit, final int maxLimit) {
+        checkNotBuilt();
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must be positive and ordered, got " + minLimit + " and " + maxLimit + ".");
+        }
+        configuration.setConcurrencyLimiter(new AdaptiveConcurrencyLimiter(minLimit, maxLimit));
+        return this;
+    }
+
+    /**
+     * Limits the total amount of the given resource class the running
+     * {@link Job}s may use, as declared by {@link Job#getResourceDemands()}.
+     * The limit is shared by all runs of the {@link JobExecutorService}.
+     * {@link Job}s waiting for resources don't hold a thread.
+     */
+    public JobExecutorServiceBuilder withResourceLimit(final String resourceClass, final int capacity) {
+        checkNotBuilt();
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity + ".");
+        }
+        resourceLimits.put(requireNonNull(resourceClass), capacity);
+        return this;
+    }
+
+    /**
+     * Builds a {@link JobExecutorService} with the given configuration.
+     *
+     * @throws IllegalStateException if more than one pool option is set.
+     */
+    public JobExecutorService build() {
+        checkNotBuilt();
+        final int poolOptionCount = (executorService != null ? 1 : 0) + (threadCount > 0 ? 1 : 0) + (virtualThreads ? 1 : 0)
+                + (fairThreadCount > 0 ? 1 : 0) + (workStealingParallelism > 0 ? 1 : 0);
+        if (poolOptionCount > 1) {
+            throw new IllegalStateException("Only one of executor service, fixed thread pool, virtual threads, fair shared pool and work stealing pool can be used.");
+        }
+        isBuilding = true;
+        if (!resourceLimits.isEmpty()) {
+            configuration.setResourceLimiter(new ResourceLimiter(resourceLimits));
+        }
+        if (executorService != null) {
+            configuration.setSharedExecutorService(executorService, false);
+        } else if (threadCount > 0) {
+            configuration.setSharedExecutorService(newFixedThreadPool(threadCount, configuration.getThreadFactory()), true);
+        } else if (virtualThreads) {
+            configuration.setSharedExecutorService(VirtualThreads.newVirtualThreadPerTaskExecutor(), true);
+        } else if (workStealingParallelism > 0) {
+            configuration.setSharedExecutorService(new ForkJoinPool(workStealingParallelism), true);
+        } else if (fairThreadCount > 0) {
+            configuration.setFairSharePool(new FairSharePool(fairThreadCount, configuration.getThreadFactory()));
+        }
+        return new JobExecutorService(configuration);
+    }
+
+    private void checkNotBuilt() {
+        if (isBuilding) {
+            throw new IllegalStateException("This builder is used up. Create a new one!");
+        }
+    }
+}
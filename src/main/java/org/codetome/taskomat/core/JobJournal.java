@@ -0,0 +1,317 @@
+package org.codetome.taskomat.core;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static org.codetome.taskomat.core.JobResultType.SUCCESS;
+
+/**
+ * Records the result of each successfully completed {@link Job} in an append
+ * only file so a run which was interrupted by a crash can be resumed. Only
+ * runs started with a run id are recorded, see
+ * {@link JobExecutorService#runJobSuiteAsync(JobSuite, String)}, and the
+ * results are only taken from the journal when the run is resumed explicitly
+ * with {@link JobExecutorService#resumeJobSuiteAsync(JobSuite, String)}.
+ * Within a run {@link Job}s are identified by their name, so the names have
+ * to be unique within the {@link JobSuite}; spawned {@link Job}s and the
+ * {@link Job}s of a {@link SubSuiteJob} are recorded under the name of the
+ * {@link Job} which spawned or contains them. Only {@link Serializable}
+ * results are recorded.
+ * <p>
+ * The records are written by a background thread so a completing
+ * {@link Job} never waits for the disk. Each record carries a checksum and a
+ * torn record at the end of the file, left behind by a crash, is dropped when
+ * the journal is opened. A complete record which can't be read, for example
+ * since the class of its result is missing, is skipped but kept in the file.
+ * The records of a run are discarded once it completes without failures or
+ * when it is started again.
+ */
+public class JobJournal implements AutoCloseable {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    private static final byte RESULT_RECORD = 0;
+    private static final byte DISCARD_RECORD = 1;
+    private static final String NESTED_RUN_SEPARATOR = "/";
+
+    private final FileChannel channel;
+    /**
+     * Contains the recorded results by the id of their run and the name of
+     * their {@link Job}.
+     */
+    private final Map<String, Map<String, Object>> completedResults = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "task-o-mat-journal-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Opens the journal in the given file and reads the results recorded so
+     * far. The file is created if it does not exist.
+     */
+    public JobJournal(final Path file) throws IOException {
+        this.channel = FileChannel.open(file, CREATE, READ, WRITE);
+        readRecords();
+        channel.position(channel.size());
+    }
+
+    /**
+     * Returns the number of {@link Job}s recorded as completed in the run
+     * with the given id.
+     */
+    public int getCompletedJobCount(final String runId) {
+        final Map<String, Object> runResults = completedResults.get(runId);
+        return runResults == null ? 0 : runResults.size();
+    }
+
+    /**
+     * Forgets the results recorded in the run with the given id and in the
+     * nested runs of its spawned {@link Job}s and {@link SubSuiteJob}s.
+     * Returns right away, the record is written in the background.
+     *
+     * @throws IllegalArgumentException if the run id contains a
+     *                                  <code>/</code>.
+     */
+    public void discard(final String runId) {
+        checkRunId(runId);
+        writer.execute(() -> {
+            try {
+                channel.write(ByteBuffer.wrap(encode(DISCARD_RECORD, runId, null, null)));
+                removeRun(runId);
+            } catch (final IOException e) {
+                // the results are ignored unless the run is resumed
+            }
+        });
+    }
+
+    /**
+     * Forgets the results of every run and empties the file.
+     */
+    public void reset() {
+        awaitWriter(() -> {
+            channel.truncate(0);
+            channel.force(true);
+            completedResults.clear();
+        });
+    }
+
+    /**
+     * Waits until the results recorded so far are written and forced to disk.
+     */
+    public void flush() {
+        awaitWriter(() -> channel.force(true));
+    }
+
+    /**
+     * Writes the pending records and closes the file.
+     */
+    @Override
+    public void close() {
+        awaitWriter(channel::close);
+        writer.shutdown();
+    }
+
+    /**
+     * Returns a new successful {@link JobResult} with the result recorded for
+     * the {@link Job} with the given name in the run with the given id or an
+     * empty {@link Optional} if it was not completed.
+     */
+    Optional<JobResult<?>> getResult(final String runId, final String jobName) {
+        final Map<String, Object> runResults = completedResults.get(runId);
+        final Object result = jobName == null || runResults == null ? null : runResults.get(jobName);
+        if (result == null) {
+            return empty();
+        }
+        final JobResult<?> jobResult = new JobResult<>(result == NullResult.INSTANCE ? null : result);
+        jobResult.setJobResultType(SUCCESS);
+        return of(jobResult);
+    }
+
+    /**
+     * Records the result of the completed {@link Job} with the given name in
+     * the run with the given id. Returns right away, the record is written in
+     * the background.
+     */
+    void record(final String runId, final String jobName, final JobResult<?> jobResult) {
+        final Object result = jobResult.getResult().orElse(null);
+        if (jobName == null || (result != null && !(result instanceof Serializable))) {
+            return;
+        }
+        final Object recordedResult = result == null ? NullResult.INSTANCE : result;
+        writer.execute(() -> {
+            try {
+                channel.write(ByteBuffer.wrap(encode(RESULT_RECORD, runId, jobName, recordedResult)));
+                completedResults.computeIfAbsent(runId, id -> new ConcurrentHashMap<>()).put(jobName, recordedResult);
+            } catch (final IOException e) {
+                // the job has already succeeded, it is only run again after a crash
+            }
+        });
+    }
+
+    /**
+     * Removes the results of the given run and of its nested runs, whose ids
+     * start with the id of the run and the separator.
+     */
+    private void removeRun(final String runId) {
+        completedResults.keySet().removeIf(id -> id.equals(runId) || id.startsWith(runId + NESTED_RUN_SEPARATOR));
+    }
+
+    /**
+     * Makes sure that a run id chosen by the caller can't be mistaken for
+     * the id of a nested run.
+     *
+     * @throws IllegalArgumentException if the run id contains a
+     *                                  <code>/</code>.
+     */
+    static void checkRunId(final String runId) {
+        if (runId.contains(NESTED_RUN_SEPARATOR)) {
+            throw new IllegalArgumentException("Run id must not contain '" + NESTED_RUN_SEPARATOR + "', got " + runId + ".");
+        }
+    }
+
+    /**
+     * Returns the id of the nested run of the given {@link Job} in the run
+     * with the given id. The separator and the escape character are escaped
+     * in the name of the {@link Job}, so the id of a nested run only starts
+     * with the id of another run and the separator if it is nested in it.
+     */
+    static String nestedRunId(final String runId, final String jobName) {
+        return runId + NESTED_RUN_SEPARATOR + jobName.replace("\\", "\\\\").replace(NESTED_RUN_SEPARATOR, "\\" + NESTED_RUN_SEPARATOR);
+    }
+
+    private static byte[] encode(final byte kind, final String runId, final String jobName, final Object result) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream dataOutputStream = new DataOutputStream(body);
+        dataOutputStream.writeByte(kind);
+        dataOutputStream.writeUTF(runId);
+        if (kind == RESULT_RECORD) {
+            dataOutputStream.writeUTF(jobName);
+            try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(body)) {
+                objectOutputStream.writeObject(result);
+            }
+        }
+        final byte[] bodyBytes = body.toByteArray();
+        final CRC32 checksum = new CRC32();
+        checksum.update(bodyBytes);
+        final ByteBuffer record = ByteBuffer.allocate(4 + bodyBytes.length + 8);
+        record.putInt(bodyBytes.length).put(bodyBytes).putLong(checksum.getValue());
+        return record.array();
+    }
+
+    /**
+     * Reads the records of the file one by one and cuts it off after the
+     * last complete one. Only a wrong length or checksum tells a torn record,
+     * one which is complete but can't be read is skipped. Only one record is
+     * held in memory at a time so the file may be larger than any array.
+     * With no run left to resume the file is emptied, unless it holds records
+     * which could not be read.
+     */
+    private void readRecords() throws IOException {
+        final long size = channel.size();
+        final DataInputStream content = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+        long validLength = 0;
+        boolean hasUnreadableRecords = false;
+        while (size - validLength >= 4) {
+            final int bodyLength = content.readInt();
+            if (bodyLength < 0 || size - validLength - 4 < bodyLength + 8L) {
+                break;
+            }
+            final byte[] bodyBytes = new byte[bodyLength];
+            content.readFully(bodyBytes);
+            final CRC32 checksum = new CRC32();
+            checksum.update(bodyBytes);
+            if (checksum.getValue() != content.readLong()) {
+                break;
+            }
+            if (!decode(bodyBytes)) {
+                hasUnreadableRecords = true;
+            }
+            validLength += 4 + bodyLength + 8;
+        }
+        channel.truncate(completedResults.isEmpty() && !hasUnreadableRecords ? 0 : validLength);
+    }
+
+    /**
+     * Applies the given record and tells whether it could be read. The run of
+     * a result which can't be read is still known, so the file is not emptied
+     * while it may be resumed.
+     */
+    private boolean decode(final byte[] bodyBytes) {
+        final ByteArrayInputStream body = new ByteArrayInputStream(bodyBytes);
+        final String runId;
+        final String jobName;
+        try {
+            final DataInputStream dataInputStream = new DataInputStream(body);
+            final byte kind = dataInputStream.readByte();
+            runId = dataInputStream.readUTF();
+            if (kind == DISCARD_RECORD) {
+                removeRun(runId);
+                return true;
+            }
+            if (kind != RESULT_RECORD) {
+                return false;
+            }
+            jobName = dataInputStream.readUTF();
+        } catch (final IOException e) {
+            return false;
+        }
+        final Map<String, Object> runResults = completedResults.computeIfAbsent(runId, id -> new ConcurrentHashMap<>());
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(body)) {
+            runResults.put(jobName, objectInputStream.readObject());
+            return true;
+        } catch (final IOException | ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private void awaitWriter(final WriterAction action) {
+        try {
+            writer.submit(() -> {
+                action.run();
+                return null;
+            }).get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            throw new UncheckedIOException(new IOException("Journal operation failed.", e.getCause()));
+        }
+    }
+
+    private interface WriterAction {
+
+        void run() throws IOException;
+    }
+
+    /**
+     * Stands for a recorded empty result since the map of results can't hold
+     * <code>null</code>.
+     */
+    private enum NullResult {
+        INSTANCE
+    }
+}
@@ -1,5 +1,6 @@
 package org.codetome.taskomat.core;
 
+import java.time.Duration;
 import java.util.Optional;
 
 import static java.util.Optional.empty;
@@ -15,6 +16,20 @@ public class JobResult<T> {
     private Optional<Throwable> throwable = empty();
     private JobResultType jobResultType = JOB_IGNORED;
     private Optional<String> jobName = empty();
+    private int attemptCount;
+    private boolean cacheHit;
+    private boolean released;
+    private boolean speculated;
+    private boolean fromSpeculativeCopy;
+    private long submitTimeNanos;
+    private long startTimeNanos;
+    private long endTimeNanos;
+    private Optional<String> workerThreadName = empty();
+    /**
+     * The {@link Job}s spawned by the call which returned this result until
+     * the {@link JobExecutorService} takes them over.
+     */
+    private JobSuiteBuilder spawnedJobs;
 
     public JobResult() {
     }
@@ -36,17 +51,29 @@ public class JobResult<T> {
     }
 
     public Optional<String> getErrorMessage() {
-        return throwable.get().getCause() == null ? empty() : ofNullable(throwable.get().getCause().getMessage());
+        return getThrowable() == null ? empty() : ofNullable(getThrowable().getMessage());
     }
 
+    /**
+     * Returns the cause of the failure or <code>null</code> if the
+     * {@link Job} did not fail.
+     */
     Throwable getThrowable() {
-        return throwable.get().getCause();
+        return throwable.map(Throwable::getCause).orElse(null);
     }
 
-    JobResultType getJobResultType() {
+    public JobResultType getJobResultType() {
         return jobResultType;
     }
 
+    /**
+     * Returns how many times the {@link Job} was called. More than one means
+     * it was retried, zero means it was never started.
+     */
+    public int getAttemptCount() {
+        return attemptCount;
+    }
+
     void setJobName(final String jobName) {
         this.jobName = ofNullable(jobName);
     }
@@ -55,7 +82,155 @@ public class JobResult<T> {
         this.jobResultType = jobResultType;
     }
 
+    /**
+     * Tells whether this result was taken from a {@link JobResultCache}
+     * instead of running the {@link Job}.
+     */
+    public boolean isCacheHit() {
+        return cacheHit;
+    }
+
+    /**
+     * Tells whether a duplicate of the {@link Job} was started because it ran
+     * much longer than usual, see
+     * {@link JobExecutorServiceBuilder#withSpeculativeExecution(double, double)}.
+     */
+    public boolean isSpeculated() {
+        return speculated;
+    }
+
+    /**
+     * Tells whether this result was returned by the duplicate of the
+     * {@link Job} which finished before the original call.
+     */
+    public boolean isFromSpeculativeCopy() {
+        return fromSpeculativeCopy;
+    }
+
+    /**
+     * Tells whether the value of this result was dropped after every
+     * dependent {@link Job} had read it, see
+     * {@link JobExecutorServiceBuilder#withResultRelease()}.
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} when the last attempt of the
+     * {@link Job} was submitted or zero if it was never submitted.
+     */
+    public long getSubmitTimeNanos() {
+        return submitTimeNanos;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} when the last attempt of the
+     * {@link Job} was started or zero if it was never started.
+     */
+    public long getStartTimeNanos() {
+        return startTimeNanos;
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} when the result of the
+     * {@link Job} was recorded.
+     */
+    public long getEndTimeNanos() {
+        return endTimeNanos;
+    }
+
+    /**
+     * Returns how long the last attempt of the {@link Job} waited for a
+     * thread.
+     */
+    public Duration getQueueWait() {
+        return Duration.ofNanos(startTimeNanos == 0 ? 0 : startTimeNanos - submitTimeNanos);
+    }
+
+    /**
+     * Returns how long the last attempt of the {@link Job} ran.
+     */
+    public Duration getRunTime() {
+        return Duration.ofNanos(startTimeNanos == 0 ? 0 : endTimeNanos - startTimeNanos);
+    }
+
+    /**
+     * Returns the name of the thread which ran the last attempt of the
+     * {@link Job}.
+     */
+    public Optional<String> getWorkerThreadName() {
+        return workerThreadName;
+    }
+
+    void setWorkerThreadName(final String workerThreadName) {
+        this.workerThreadName = ofNullable(workerThreadName);
+    }
+
+    void setTimes(final long submitTimeNanos, final long startTimeNanos, final long endTimeNanos) {
+        this.submitTimeNanos = submitTimeNanos;
+        this.startTimeNanos = startTimeNanos;
+        this.endTimeNanos = endTimeNanos;
+    }
+
+    void setCacheHit(final boolean cacheHit) {
+        this.cacheHit = cacheHit;
+    }
+
+    void setSpeculated(final boolean speculated) {
+        this.speculated = speculated;
+    }
+
+    void setFromSpeculativeCopy(final boolean fromSpeculativeCopy) {
+        this.fromSpeculativeCopy = fromSpeculativeCopy;
+    }
+
+    void setAttemptCount(final int attemptCount) {
+        this.attemptCount = attemptCount;
+    }
+
     void setException(final Throwable throwable) {
         this.throwable = ofNullable(throwable);
     }
+
+    /**
+     * Returns a copy of this result which holds the given value instead.
+     */
+    JobResult<?> withValue(final Object value) {
+        final JobResult<Object> copy = new JobResult<>(value);
+        copy.throwable = throwable;
+        copy.jobResultType = jobResultType;
+        copy.jobName = jobName;
+        copy.attemptCount = attemptCount;
+        copy.cacheHit = cacheHit;
+        copy.released = released;
+        copy.speculated = speculated;
+        copy.fromSpeculativeCopy = fromSpeculativeCopy;
+        copy.setTimes(submitTimeNanos, startTimeNanos, endTimeNanos);
+        copy.workerThreadName = workerThreadName;
+        return copy;
+    }
+
+    /**
+     * Returns a copy of this result without its value.
+     */
+    JobResult<?> release() {
+        final JobResult<?> copy = withValue(null);
+        copy.released = true;
+        return copy;
+    }
+
+    void setSpawnedJobs(final JobSuiteBuilder spawnedJobs) {
+        this.spawnedJobs = spawnedJobs;
+    }
+
+    /**
+     * Returns the {@link Job}s spawned by the call which returned this result
+     * or <code>null</code> if there are none, and forgets them.
+     */
+    JobSuiteBuilder takeSpawnedJobs() {
+        final JobSuiteBuilder jobs = spawnedJobs;
+        spawnedJobs = null;
+        return jobs;
+    }
 }
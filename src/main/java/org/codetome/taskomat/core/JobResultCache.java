@@ -0,0 +1,252 @@
+package org.codetome.taskomat.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static java.util.Optional.ofNullable;
+import static org.codetome.taskomat.core.JobResultType.SUCCESS;
+
+/**
+ * Keeps the results of successful {@link Job}s which declare a
+ * {@link Job#getCacheKey()}. The entry of a {@link Job} is addressed by its
+ * cache key together with a digest of the content of its dependency results,
+ * so a {@link Job} whose inputs did not change is not run again. A dependency
+ * result is identified by the {@link Job#getResultFingerprint(Object)} of its
+ * {@link Job} or by its serialized form, a {@link Job} with a dependency
+ * result which has neither is not cached. The results are
+ * kept in memory up to a maximum number of entries, evicting the least
+ * recently used one first. Optionally the results are also written to a
+ * directory so they survive a restart; only {@link Serializable} results are
+ * written there. This class is thread safe and can be shared by several
+ * {@link JobExecutorService}s.
+ */
+public class JobResultCache {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final byte NULL_RESULT = 0;
+    private static final byte FINGERPRINTED_RESULT = 1;
+    private static final byte SERIALIZED_RESULT = 2;
+    private static final OutputStream NULL_OUTPUT_STREAM = new OutputStream() {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    };
+
+    private final Map<String, Optional<?>> entries;
+    /**
+     * The directory the results are written to or <code>null</code> if the
+     * results are only kept in memory.
+     */
+    private final Path directory;
+
+    /**
+     * Creates a {@link JobResultCache} which keeps at most
+     * <code>maxEntries</code> results in memory.
+     */
+    public JobResultCache(final int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    /**
+     * Creates a {@link JobResultCache} which keeps at most
+     * <code>maxEntries</code> results in memory and all of them in the given
+     * directory.
+     */
+    public JobResultCache(final int maxEntries, final Path directory) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be positive, got " + maxEntries + ".");
+        }
+        this.entries = new LinkedHashMap<String, Optional<?>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Optional<?>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.directory = directory;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (final IOException e) {
+                throw new IllegalArgumentException("Can't create cache directory " + directory + ".", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of results kept in memory.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Forgets the results kept in memory. The results written to the
+     * directory are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Computes the key of the {@link Job} with the given cache key and
+     * dependency results, the dependency results are given in the order of
+     * the given dependencies. Returns <code>null</code> if the content of a
+     * dependency result can't be identified.
+     */
+    static String computeKey(final String cacheKey, final List<Job> dependencies, final List<JobResult<?>> dependencyResults) {
+        final MessageDigest digest = createDigest();
+        updateWithLength(digest, cacheKey.getBytes(UTF_8));
+        for (int i = 0; i < dependencyResults.size(); i++) {
+            final Object result = dependencyResults.get(i).getResult().orElse(null);
+            final Job dependency = dependencies.get(i);
+            final Optional<String> fingerprint = result == null ? empty()
+                    : Job.requireOptional(dependency.getResultFingerprint(result), dependency, "getResultFingerprint(Object)");
+            if (result == null) {
+                digest.update(NULL_RESULT);
+            } else if (fingerprint.isPresent()) {
+                digest.update(FINGERPRINTED_RESULT);
+                updateWithLength(digest, fingerprint.get().getBytes(UTF_8));
+            } else if (result instanceof Serializable) {
+                digest.update(SERIALIZED_RESULT);
+                // the serialized form delimits itself
+                try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(new DigestOutputStream(NULL_OUTPUT_STREAM, digest))) {
+                    objectOutputStream.writeObject(result);
+                } catch (final IOException e) {
+                    // a field of the result is not serializable
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        final byte[] hash = digest.digest();
+        final char[] key = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            key[i * 2] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            key[i * 2 + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(key);
+    }
+
+    /**
+     * Returns a new successful {@link JobResult} with the result stored
+     * under the given key or an empty {@link Optional} if there is none.
+     */
+    Optional<JobResult<?>> get(final String key) {
+        Optional<?> result;
+        synchronized (this) {
+            result = entries.get(key);
+        }
+        if (result == null && directory != null) {
+            result = read(key);
+            if (result != null) {
+                synchronized (this) {
+                    entries.put(key, result);
+                }
+            }
+        }
+        if (result == null) {
+            return empty();
+        }
+        final JobResult<?> jobResult = new JobResult<>(result.orElse(null));
+        jobResult.setJobResultType(SUCCESS);
+        jobResult.setCacheHit(true);
+        return of(jobResult);
+    }
+
+    /**
+     * Stores the result of the given successful {@link JobResult} under the
+     * given key.
+     */
+    void put(final String key, final JobResult<?> jobResult) {
+        final Optional<?> result = jobResult.getResult();
+        synchronized (this) {
+            entries.put(key, result);
+        }
+        if (directory != null && result.orElse(null) instanceof Serializable) {
+            write(key, (Serializable) result.get());
+        }
+    }
+
+    /**
+     * Reads the result stored under the given key from the directory. A
+     * missing or unreadable file counts as a miss.
+     */
+    private Optional<?> read(final String key) {
+        final Path file = directory.resolve(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (InputStream inputStream = Files.newInputStream(file);
+             ObjectInputStream objectInputStream = new ObjectInputStream(inputStream)) {
+            return ofNullable(objectInputStream.readObject());
+        } catch (final IOException | ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes the result to a temporary file first and moves it in place so a
+     * crash can't leave a partially written entry behind.
+     */
+    private void write(final String key, final Serializable result) {
+        Path temporaryFile = null;
+        try {
+            temporaryFile = Files.createTempFile(directory, key, ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(temporaryFile);
+                 ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+                objectOutputStream.writeObject(result);
+            }
+            Files.move(temporaryFile, directory.resolve(key), ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (final IOException e) {
+            // the cache is only an optimization, the job has already succeeded
+            deleteQuietly(temporaryFile);
+        }
+    }
+
+    private static void deleteQuietly(final Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (final IOException e) {
+                // nothing else to do
+            }
+        }
+    }
+
+    private static void updateWithLength(final MessageDigest digest, final byte[] bytes) {
+        final int length = bytes.length;
+        digest.update(new byte[]{(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(bytes);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+}
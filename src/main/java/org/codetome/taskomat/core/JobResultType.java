@@ -15,5 +15,21 @@ public enum JobResultType {
     /**
      * Job was not run due to a failure of a previous Job
      */
-    JOB_IGNORED
+    JOB_IGNORED,
+    /**
+     * Job did not complete within its timeout and was interrupted
+     */
+    TIMED_OUT,
+    /**
+     * Job was interrupted because another Job failed, the suite deadline
+     * passed or the run was cancelled
+     */
+    CANCELLED;
+
+    /**
+     * Tells whether this type means that the Job was run but did not succeed.
+     */
+    public boolean isFailure() {
+        return this == SERVICE_ERROR || this == TIMED_OUT || this == CANCELLED;
+    }
 }
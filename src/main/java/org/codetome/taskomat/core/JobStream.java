@@ -0,0 +1,219 @@
+package org.codetome.taskomat.core;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Carries the elements a producer {@link Job} publishes with
+ * {@link Job#publish(Object)} to the {@link Job} consuming them through a
+ * streaming dependency, see
+ * {@link JobSuiteBuilder#addStreamingJob(Job, Job, int)}. The consumer gets
+ * the {@link JobStream} as the result of the dependency and iterates over it
+ * while the producer is still running. The iteration blocks until the next
+ * element is published and ends once the producer has returned.
+ * <p>
+ * The buffer is bounded so a producer which is ahead of its consumer waits,
+ * which caps the memory held by the elements in flight. Once the consumer
+ * is finished the producer's further elements are dropped. A
+ * {@link JobStream} is part of a single run and can be iterated only once.
+ */
+public final class JobStream<T> implements Iterable<T> {
+
+    private static final int UNCLAIMED = 0;
+    private static final int CLAIMED = 1;
+    private static final int DETACHED = 2;
+
+    private final ArrayDeque<Object> buffer = new ArrayDeque<>();
+    private final int bufferCapacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicBoolean available = new AtomicBoolean();
+    /**
+     * Called once when the first element is published or the stream is
+     * closed, whichever comes first.
+     */
+    private final Runnable onAvailable;
+    private int consumerState = UNCLAIMED;
+    private boolean closed;
+    private Throwable failure;
+
+    JobStream(final int bufferCapacity, final Runnable onAvailable) {
+        this.bufferCapacity = bufferCapacity;
+        this.onAvailable = onAvailable;
+    }
+
+    /**
+     * Returns an {@link Iterator} over the published elements. Its methods
+     * block until the next element is published or the producer has
+     * returned and throw an {@link IllegalStateException} if the producer
+     * has failed.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return awaitElement();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return take();
+            }
+        };
+    }
+
+    /**
+     * Adds the element to the buffer, waiting while it is full. The element
+     * is dropped if the consumer is already finished.
+     */
+    void publish(final Object element) throws InterruptedException {
+        requireNonNull(element);
+        lock.lockInterruptibly();
+        try {
+            while (buffer.size() >= bufferCapacity && consumerState != DETACHED && !closed) {
+                ManagedBlocking.await(notFull);
+            }
+            if (closed) {
+                throw new IllegalStateException("The stream is already closed.");
+            }
+            if (consumerState == DETACHED) {
+                return;
+            }
+            buffer.addLast(element);
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        signalAvailable();
+    }
+
+    /**
+     * Ends the stream after the producer has returned successfully.
+     */
+    void close() {
+        closeWith(null);
+    }
+
+    /**
+     * Ends the stream after the producer has failed or was not run. The
+     * consumer gets the elements published so far and then the failure.
+     */
+    void fail(final Throwable cause) {
+        closeWith(cause == null ? new CancellationException("The producer of the stream was not run.") : cause);
+    }
+
+    /**
+     * Marks the stream as consumed by the {@link Job} which is submitted.
+     */
+    void claim() {
+        lock.lock();
+        try {
+            if (consumerState == UNCLAIMED) {
+                consumerState = CLAIMED;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the producer if the consumer was not submitted and won't be
+     * submitted anymore.
+     */
+    void abandon() {
+        lock.lock();
+        try {
+            if (consumerState == UNCLAIMED) {
+                detachLocked();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the producer after the consumer is finished.
+     */
+    void detach() {
+        lock.lock();
+        try {
+            detachLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void detachLocked() {
+        consumerState = DETACHED;
+        buffer.clear();
+        notFull.signalAll();
+        notEmpty.signalAll();
+    }
+
+    private void closeWith(final Throwable cause) {
+        lock.lock();
+        try {
+            closed = true;
+            failure = cause;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        signalAvailable();
+    }
+
+    private void signalAvailable() {
+        if (available.compareAndSet(false, true)) {
+            onAvailable.run();
+        }
+    }
+
+    private boolean awaitElement() {
+        lock.lock();
+        try {
+            while (buffer.isEmpty() && !closed && consumerState != DETACHED) {
+                ManagedBlocking.await(notEmpty);
+            }
+            if (!buffer.isEmpty()) {
+                return true;
+            }
+            if (consumerState == DETACHED) {
+                throw new CancellationException("The stream was abandoned.");
+            }
+            if (failure != null) {
+                throw new IllegalStateException("The producer of the stream has failed.", failure);
+            }
+            return false;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for the next element.");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T take() {
+        lock.lock();
+        try {
+            final T element = (T) buffer.removeFirst();
+            notFull.signal();
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
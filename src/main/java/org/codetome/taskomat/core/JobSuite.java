@@ -1,92 +1,365 @@
 package org.codetome.taskomat.core;
 
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableSet;
 
 /**
  * Contains {@link Job}s in the correct (execution) order. It can be used in a
  * {@link JobExecutorService} to run the {@link Job}s. Use a
  * {@link JobSuiteBuilder} to create {@link JobSuite}s.
+ * <p>
+ * A {@link JobSuite} is an immutable, compiled execution plan: each
+ * {@link Job} gets a dense id which is its position in the topological order
+ * and the dependencies are stored in arrays indexed by these ids. All state of
+ * a run is kept outside of the {@link JobSuite} so the same {@link JobSuite}
+ * can be run any number of times, even concurrently.
  */
 public class JobSuite {
+
     /**
-     * Contains the {@link Job}s as key-value pairs where the key is a
-     * {@link Job} and the value is a {@link Set} of {@link Job}s which will be
-     * executed after the key {@link Job}.
+     * Contains the {@link Job}s in execution order. The index of a
+     * {@link Job} is its id.
      */
-    private final Map<Job, Set<Job>> dependencyGraph;
+    private final Job[] jobs;
+
+    private final Map<Job, Integer> jobIds;
 
     /**
-     * Contains the {@link Job}s in execution order.
+     * The dependency ids of job <code>i</code> are stored in
+     * <code>dependencyIds</code> between <code>dependencyOffsets[i]</code>
+     * (inclusive) and <code>dependencyOffsets[i + 1]</code> (exclusive).
      */
-    private final Queue<Job> orderedJobs;
+    private final int[] dependencyOffsets;
+    private final int[] dependencyIds;
 
-    private final Set<Job> finishedJobs = new HashSet<>();
+    /**
+     * The ids of the {@link Job}s which depend on job <code>i</code> are stored
+     * in <code>dependentIds</code> between <code>dependentOffsets[i]</code>
+     * (inclusive) and <code>dependentOffsets[i + 1]</code> (exclusive).
+     */
+    private final int[] dependentOffsets;
+    private final int[] dependentIds;
 
-    private final Job source;
+    /**
+     * The ids of the {@link Job}s of wave <code>w</code> are stored in
+     * ascending order in <code>waveJobIds</code> between
+     * <code>waveOffsets[w]</code> (inclusive) and
+     * <code>waveOffsets[w + 1]</code> (exclusive).
+     */
+    private final int[] waveOffsets;
+    private final int[] waveJobIds;
 
-    private final int totalJobCount;
+    /**
+     * Contain the id of the {@link Job} consuming the stream of job
+     * <code>i</code> and the capacity of its buffer, -1 and 0 if it does not
+     * stream. Both are <code>null</code> if no {@link Job} streams.
+     */
+    private final int[] streamConsumerIds;
+    private final int[] streamBufferCapacities;
+
+    JobSuite(final Job[] jobs,
+             final Map<Job, Integer> jobIds,
+             final int[] dependencyOffsets,
+             final int[] dependencyIds,
+             final int[] dependentOffsets,
+             final int[] dependentIds,
+             final int[][] streams) {
+        this.jobs = jobs;
+        this.jobIds = jobIds;
+        this.dependencyOffsets = dependencyOffsets;
+        this.dependencyIds = dependencyIds;
+        this.dependentOffsets = dependentOffsets;
+        this.dependentIds = dependentIds;
+        this.streamConsumerIds = streams == null ? null : streams[0];
+        this.streamBufferCapacities = streams == null ? null : streams[1];
+        final int[] waves = computeWaves();
+        this.waveOffsets = computeWaveOffsets(waves);
+        this.waveJobIds = computeWaveJobIds(waves, waveOffsets);
+    }
+
+    int getTotalJobCount() {
+        return jobs.length;
+    }
 
-    @SuppressWarnings({"PMD.UnusedLocalVariable", "unused"})
-    JobSuite(final Map<Job, Set<Job>> dependencyGraph, final Queue<Job> orderedJobs, final Job source) {
-        this.totalJobCount = orderedJobs.size() - 1; // because of technical job
-        this.source = source;
-        this.dependencyGraph = dependencyGraph;
-        this.orderedJobs = orderedJobs;
-        if (orderedJobs.peek() == source) {
-            final Job notUsed = orderedJobs.poll(); // we just need to pop it
+    /**
+     * Returns all {@link Job}s of this {@link JobSuite} in execution order.
+     */
+    List<Job> getJobs() {
+        return unmodifiableList(asList(jobs));
+    }
+
+    Job getJob(final int jobId) {
+        return jobs[jobId];
+    }
+
+    int getJobId(final Job job) {
+        final Integer jobId = jobIds.get(job);
+        if (jobId == null) {
+            throw new IllegalArgumentException("Job " + job + " is not part of this JobSuite.");
         }
-        finishedJobs.add(source);
+        return jobId;
+    }
+
+    int getDependencyCount(final int jobId) {
+        return dependencyOffsets[jobId + 1] - dependencyOffsets[jobId];
     }
 
     /**
-     * Returns a sequence of {@link Job}s which can be run in parallel. Each
-     * call to this method returns a new sequence until the {@link JobSuite} is
-     * emptied.
+     * Returns the id of the <code>index</code>th dependency of the given
+     * {@link Job}. The order of the dependencies is the order in which they
+     * were added.
      */
-    Queue<Job> getNextJobs() {
-        if (orderedJobs.isEmpty()) {
-            throw new IllegalStateException("All jobs are already completed in this JobSuite");
+    int getDependencyId(final int jobId, final int index) {
+        return dependencyIds[dependencyOffsets[jobId] + index];
+    }
+
+    int getDependentCount(final int jobId) {
+        return dependentOffsets[jobId + 1] - dependentOffsets[jobId];
+    }
+
+    int getDependentId(final int jobId, final int index) {
+        return dependentIds[dependentOffsets[jobId] + index];
+    }
+
+    /**
+     * Tells whether any {@link Job} has a streaming dependency.
+     */
+    boolean hasStreams() {
+        return streamConsumerIds != null;
+    }
+
+    /**
+     * Returns the id of the {@link Job} consuming the stream of the given
+     * {@link Job} or -1 if it does not stream.
+     */
+    int getStreamConsumerId(final int jobId) {
+        return streamConsumerIds == null ? -1 : streamConsumerIds[jobId];
+    }
+
+    int getStreamBufferCapacity(final int jobId) {
+        return streamBufferCapacities == null ? 0 : streamBufferCapacities[jobId];
+    }
+
+    /**
+     * Tells whether the <code>index</code>th dependency of the given
+     * {@link Job} is a streaming one.
+     */
+    boolean isStreamingDependency(final int jobId, final int index) {
+        return streamConsumerIds != null && streamConsumerIds[getDependencyId(jobId, index)] == jobId;
+    }
+
+    /**
+     * Tells whether the given {@link Job} produces or consumes a stream.
+     */
+    boolean isStreaming(final int jobId) {
+        if (getStreamConsumerId(jobId) >= 0) {
+            return true;
         }
-        Queue<Job> nextJobs = new LinkedList<>();
-        Iterator<Job> orderedJobsIter = orderedJobs.iterator();
-        Job nextJob = orderedJobsIter.next();
-        while (nextJob != null && allItsDependenciesAreFinished(nextJob)) {
-            nextJobs.add(nextJob);
-            orderedJobsIter.remove();
-            nextJob = orderedJobsIter.hasNext() ? orderedJobsIter.next() : null;
+        for (int i = 0; i < getDependencyCount(jobId) && streamConsumerIds != null; i++) {
+            if (isStreamingDependency(jobId, i)) {
+                return true;
+            }
         }
-        finishedJobs.addAll(nextJobs);
-        return nextJobs;
+        return false;
     }
 
-    int getTotalJobCount() {
-        return totalJobCount;
+    /**
+     * Returns the id of the {@link Job} which follows the given one in a
+     * linear chain or -1 if there is none. That is the case if the given
+     * {@link Job} has exactly one dependent which has no other dependency, so
+     * the dependent becomes ready exactly when the given {@link Job} is
+     * finished.
+     */
+    int getChainSuccessor(final int jobId) {
+        if (getDependentCount(jobId) != 1) {
+            return -1;
+        }
+        final int dependentId = getDependentId(jobId, 0);
+        return getDependencyCount(dependentId) == 1 ? dependentId : -1;
+    }
+
+    /**
+     * Returns the number of unfinished dependencies of each {@link Job}
+     * before a run is started. The returned array can be modified freely.
+     */
+    int[] createDependencyCounts() {
+        final int[] dependencyCounts = new int[jobs.length];
+        for (int jobId = 0; jobId < jobs.length; jobId++) {
+            dependencyCounts[jobId] = getDependencyCount(jobId);
+        }
+        return dependencyCounts;
     }
 
-    boolean hasJobsLeft() {
-        return !orderedJobs.isEmpty();
+    /**
+     * Returns the number of waves. A wave is a set of {@link Job}s which can
+     * be run in parallel after all previous waves are completed. The consumer
+     * of a stream is in the same wave as its producer, unless it also depends
+     * on the producer through another {@link Job}.
+     */
+    int getWaveCount() {
+        return waveOffsets.length - 1;
+    }
+
+    /**
+     * Returns the position of the first {@link Job} of the given wave, see
+     * {@link #getWaveJobId(int)}.
+     */
+    int getWaveStart(final int wave) {
+        return waveOffsets[wave];
+    }
+
+    /**
+     * Returns the position after the last {@link Job} of the given wave.
+     */
+    int getWaveEnd(final int wave) {
+        return waveOffsets[wave + 1];
+    }
+
+    /**
+     * Returns the id of the {@link Job} at the given position of the waves.
+     * The {@link Job}s of a wave are ordered by id.
+     */
+    int getWaveJobId(final int position) {
+        return waveJobIds[position];
+    }
+
+    /**
+     * Returns for each {@link Job} the cost of the most expensive path which
+     * starts with the {@link Job} and ends at a {@link Job} without
+     * dependents. The cost of a path is the sum of <code>costs</code> of its
+     * {@link Job}s.
+     */
+    long[] computeRemainingPathCosts(final long[] costs) {
+        final long[] remainingPathCosts = new long[jobs.length];
+        for (int jobId = jobs.length - 1; jobId >= 0; jobId--) {
+            long longestDependentPathCost = 0;
+            for (int i = 0; i < getDependentCount(jobId); i++) {
+                longestDependentPathCost = Math.max(longestDependentPathCost, remainingPathCosts[getDependentId(jobId, i)]);
+            }
+            remainingPathCosts[jobId] = costs[jobId] + longestDependentPathCost;
+        }
+        return remainingPathCosts;
     }
 
     Set<Job> getDependenciesOf(final Job job) {
-        return dependencyGraph.get(job).contains(source) ? Collections.emptySet() : unmodifiableSet(dependencyGraph.get(job));
+        final int jobId = getJobId(job);
+        final Set<Job> dependencies = new LinkedHashSet<>();
+        for (int i = 0; i < getDependencyCount(jobId); i++) {
+            dependencies.add(jobs[getDependencyId(jobId, i)]);
+        }
+        return unmodifiableSet(dependencies);
     }
 
-    private boolean allItsDependenciesAreFinished(final Job job) {
-        if (job == null) {
-            return true;
+    /**
+     * Returns the {@link Job}s which depend on the given {@link Job}.
+     */
+    Set<Job> getDependentsOf(final Job job) {
+        final int jobId = getJobId(job);
+        final Set<Job> dependents = new LinkedHashSet<>();
+        for (int i = 0; i < getDependentCount(jobId); i++) {
+            dependents.add(jobs[getDependentId(jobId, i)]);
+        }
+        return unmodifiableSet(dependents);
+    }
+
+    /**
+     * Returns the wave of each {@link Job}: the one after the latest wave of
+     * its dependencies. The consumer of a stream has to run together with
+     * its producer so it is put into the wave of the producer, and if its
+     * other dependencies put it later the producer is moved to the wave of
+     * the consumer, which may move the dependents of the producer in turn.
+     * Such a move is only seen by the next pass, but each pass settles at
+     * least one more stream so one pass per stream is enough. The last pass
+     * moves no producer, a consumer which also depends on its producer
+     * through another {@link Job} can't run together with it anyway.
+     */
+    private int[] computeWaves() {
+        final int[] waves = new int[jobs.length];
+        int streamCount = 0;
+        for (int jobId = 0; jobId < jobs.length; jobId++) {
+            if (getStreamConsumerId(jobId) >= 0) {
+                streamCount++;
+            }
+        }
+        boolean moved = true;
+        for (int pass = 0; moved && pass <= streamCount; pass++) {
+            moved = false;
+            for (int jobId = 0; jobId < jobs.length; jobId++) {
+                int wave = waves[jobId];
+                for (int i = 0; i < getDependencyCount(jobId); i++) {
+                    final int dependencyWave = waves[getDependencyId(jobId, i)];
+                    wave = Math.max(wave, isStreamingDependency(jobId, i) ? dependencyWave : dependencyWave + 1);
+                }
+                waves[jobId] = wave;
+                for (int i = 0; i < getDependencyCount(jobId) && pass < streamCount; i++) {
+                    if (isStreamingDependency(jobId, i) && waves[getDependencyId(jobId, i)] < wave) {
+                        waves[getDependencyId(jobId, i)] = wave;
+                        moved = true;
+                    }
+                }
+            }
+        }
+        if (streamCount > 0) {
+            dropEmptyWaves(waves);
+        }
+        return waves;
+    }
+
+    /**
+     * Renumbers the given waves so that the ones emptied by moving producers
+     * are dropped.
+     */
+    private static void dropEmptyWaves(final int[] waves) {
+        int waveCount = 0;
+        for (final int wave : waves) {
+            waveCount = Math.max(waveCount, wave + 1);
+        }
+        final boolean[] nonEmpty = new boolean[waveCount];
+        for (final int wave : waves) {
+            nonEmpty[wave] = true;
+        }
+        final int[] renumbered = new int[waveCount];
+        int nextWave = 0;
+        for (int wave = 0; wave < waveCount; wave++) {
+            renumbered[wave] = nextWave;
+            if (nonEmpty[wave]) {
+                nextWave++;
+            }
+        }
+        for (int jobId = 0; jobId < waves.length; jobId++) {
+            waves[jobId] = renumbered[waves[jobId]];
+        }
+    }
+
+    private static int[] computeWaveOffsets(final int[] waves) {
+        int waveCount = 0;
+        for (final int wave : waves) {
+            waveCount = Math.max(waveCount, wave + 1);
+        }
+        final int[] offsets = new int[waveCount + 1];
+        for (final int wave : waves) {
+            offsets[wave + 1]++;
         }
-        Set<Job> jobsNeedToBeFinished = new HashSet<>(dependencyGraph.get(job));
-        jobsNeedToBeFinished.removeAll(finishedJobs);
-        return jobsNeedToBeFinished.size() == 0;
+        for (int wave = 0; wave < waveCount; wave++) {
+            offsets[wave + 1] += offsets[wave];
+        }
+        return offsets;
     }
 
+    private static int[] computeWaveJobIds(final int[] waves, final int[] waveOffsets) {
+        final int[] filled = Arrays.copyOf(waveOffsets, waveOffsets.length - 1);
+        final int[] jobIds = new int[waves.length];
+        for (int jobId = 0; jobId < waves.length; jobId++) {
+            jobIds[filled[waves[jobId]]++] = jobId;
+        }
+        return jobIds;
+    }
 }
@@ -1,54 +1,85 @@
 package org.codetome.taskomat.core;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.Set;
 
 import static java.util.Arrays.asList;
-import static java.util.Collections.emptyList;
-import static java.util.Collections.singleton;
 
 /**
  * Responsible for building a {@link JobSuite}. After the {@link JobSuite} is
  * complete this builder can't be used anymore.
+ * <p>
+ * The graph is kept in flat arrays: each {@link Job} gets an index when it is
+ * first mentioned, either added or named as a dependency, and each
+ * dependency is an edge in linked lists threaded through the edge arrays.
+ * Cycles are detected while the {@link Job}s are added by keeping a
+ * topological order of the graph up to date (Pearce and Kelly), which only
+ * touches the part of the graph between the two ends of an edge which
+ * violates the current order.
  */
 public class JobSuiteBuilder {
-    private static final String JOB_NAME = "JOB_NAME";
-    private static final Job TECHNICAL_ROOT_JOB = new Job(JOB_NAME) {
 
-        @Override
-        public JobResult<String> call() throws Exception {
-            setDependencyResults(emptyList());
-            return new JobResult<>(toString());
-        }
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Contains the index of each mentioned {@link Job}.
+     */
+    private final Map<Job, Integer> indices = new HashMap<>();
+    private Job[] jobs = new Job[INITIAL_CAPACITY];
+    private int jobCount;
+    /**
+     * Contains the indices of the added {@link Job}s in the order they were
+     * added first. Mentioned {@link Job}s which were not added are missing.
+     */
+    private int[] addedOrder = new int[INITIAL_CAPACITY];
+    private int addedCount;
+    private boolean[] added = new boolean[INITIAL_CAPACITY];
+    /**
+     * Contains the position of each {@link Job} in a topological order of the
+     * graph: a dependency always has a lower position than its dependents.
+     * The positions are distinct but not contiguous, see
+     * {@link #indexOf(Job, boolean)}.
+     */
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private int nextFrontPosition = -1;
+    private int nextBackPosition = 0;
 
-        @Override
-        public String toString() {
-            return "TECHNICAL_ROOT_JOB";
-        }
-    };
     /**
-     * Contains the {@link Job}s as key-value pairs where the key is a
-     * {@link Job} and the value is a {@link Set} of {@link Job}s which the key
-     * {@link Job} depends on.
+     * Edge <code>e</code> means that <code>edgeDependents[e]</code> depends on
+     * <code>edgeDependencies[e]</code>. The dependencies of a {@link Job} are
+     * linked through <code>nextDependencyEdges</code> in the order they were
+     * added, its dependents through <code>nextDependentEdges</code>. -1 ends a
+     * list.
      */
-    private final Map<Job, Set<Job>> dependencyGraph = new HashMap<>();
+    private int[] edgeDependencies = new int[INITIAL_CAPACITY];
+    private int[] edgeDependents = new int[INITIAL_CAPACITY];
+    private int[] nextDependencyEdges = new int[INITIAL_CAPACITY];
+    private int[] nextDependentEdges = new int[INITIAL_CAPACITY];
+    private int edgeCount;
+    private int[] firstDependencyEdges = new int[INITIAL_CAPACITY];
+    private int[] lastDependencyEdges = new int[INITIAL_CAPACITY];
+    private int[] firstDependentEdges = new int[INITIAL_CAPACITY];
+
     /**
-     * Contains the {@link Job}s as key-value pairs where the key is a
-     * {@link Job} and the value is a {@link Set} of {@link Job}s which will be
-     * executed after the key {@link Job}.
+     * Scratch space of the searches done while reordering. A {@link Job} is
+     * visited by the current search if its mark equals the search number.
      */
-    private Map<Job, Set<Job>> jobOrderGraph;
+    private int[] marks = new int[INITIAL_CAPACITY];
+    private int searchNumber;
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] stack = new int[INITIAL_CAPACITY];
+    private int[] forwardFound = new int[INITIAL_CAPACITY];
+    private int[] backwardFound = new int[INITIAL_CAPACITY];
 
-    private final Job source = TECHNICAL_ROOT_JOB;
     /**
-     * Contains the {@link Job}s in execution order.
+     * Contains the consumer and the buffer capacity of each producer of a
+     * streaming dependency.
      */
-    private Queue<Job> topologicalOrder;
+    private final Map<Job, Job> streamConsumers = new HashMap<>();
+    private final Map<Job, Integer> streamBufferCapacities = new HashMap<>();
 
     private volatile boolean isBuilding = false;
 
@@ -56,83 +87,455 @@ public class JobSuiteBuilder {
      * Adds a {@link Job} without a dependency.
      */
     public JobSuiteBuilder addJob(final Job job) {
-        return addJob(job, new Job[]{TECHNICAL_ROOT_JOB});
+        return addJob(job, new Job[0]);
     }
 
     /**
      * Adds a job with dependencies. If job <code>A</code> has a dependency of
      * job <code>B</code> it means that <code>B</code> must be completed before
      * <code>A</code> can be started since <code>A</code> uses the result of
-     * <code>B</code>.
+     * <code>B</code>. The dependencies don't have to be added yet.
+     *
+     * @throws CircularDependencyException if a dependency depends on
+     *                                     <code>job</code> already. Nothing is
+     *                                     added in that case.
+     * @throws IllegalArgumentException    if <code>job</code> is a
+     *                                     {@link SubSuiteJob} with a timeout.
      */
     public JobSuiteBuilder addJob(final Job job, final Job... jobDependencies) {
         if (isBuilding) {
             throw new RuntimeException("This builder is used up. Create a new one!");
-        } else {
-            dependencyGraph.putIfAbsent(job, new LinkedHashSet<>());
-            dependencyGraph.get(job).addAll(asList(jobDependencies));
+        }
+        if (job instanceof SubSuiteJob && job.getTimeout().isPresent()) {
+            throw new IllegalArgumentException("Sub suite " + job.getName()
+                    + " can't time out as a whole, give its jobs timeouts instead.");
+        }
+        final Integer existingJobIndex = indices.get(job);
+        for (final Job dependency : jobDependencies) {
+            if (dependency.equals(job)) {
+                throw createCircularDependencyException(asList(job, job));
+            }
+            // a job which was not mentioned yet has no dependents which could close a cycle
+            if (existingJobIndex != null) {
+                checkAcyclic(existingJobIndex, indices.get(dependency));
+            }
+        }
+        final int jobIndex = indexOf(job, false);
+        if (!added[jobIndex]) {
+            added[jobIndex] = true;
+            addedOrder[addedCount++] = jobIndex;
+        }
+        for (final Job dependency : jobDependencies) {
+            addEdge(indexOf(dependency, true), jobIndex);
         }
         return this;
     }
 
+    /**
+     * Adds a job with a streaming dependency on <code>producer</code>.
+     * Instead of waiting for the result of <code>producer</code> the
+     * {@link Job} is started as soon as <code>producer</code> has published
+     * its first element with {@link Job#publish(Object)}, and gets a
+     * {@link JobStream} of the elements as the result of the dependency. At
+     * most <code>bufferCapacity</code> elements are buffered. A producer can
+     * stream to only one {@link Job}. Both {@link Job}s have to be able to run
+     * at the same time so a bounded pool needs a thread for each of them.
+     * Streaming {@link Job}s are not retried, cached or journaled.
+     *
+     * @throws IllegalStateException    if <code>producer</code> already
+     *                                  streams to another {@link Job}.
+     * @throws IllegalArgumentException if either {@link Job} is a
+     *                                  {@link SubSuiteJob}.
+     */
+    public JobSuiteBuilder addStreamingJob(final Job job, final Job producer, final int bufferCapacity) {
+        if (bufferCapacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be positive, got " + bufferCapacity + ".");
+        }
+        if (job instanceof SubSuiteJob || producer instanceof SubSuiteJob) {
+            throw new IllegalArgumentException("A sub suite can't take part in a stream.");
+        }
+        final Job consumer = streamConsumers.get(producer);
+        if (consumer != null && !consumer.equals(job)) {
+            throw new IllegalStateException("Job " + producer.getName() + " already streams to " + consumer.getName() + ".");
+        }
+        addJob(job, producer);
+        streamConsumers.put(producer, job);
+        streamBufferCapacities.put(producer, bufferCapacity);
+        return this;
+    }
+
+    /**
+     * Tells whether the given {@link Job} was added.
+     */
+    boolean containsJob(final Job job) {
+        final Integer index = indices.get(job);
+        return index != null && added[index];
+    }
+
     /**
      * Builds a {@link JobSuite} which contains all added {@link Job}s in the
      * correct (execution) order.
      *
-     * @return {@link JobSuite} or throws {@link CircularDependencyException} if a circular dependency is detected.
+     * @return {@link JobSuite}
+     * @throws IllegalStateException if a {@link Job} depends on a {@link Job} which was not added.
      */
     public JobSuite build() {
         isBuilding = true;
-        jobOrderGraph = reverseGraph(dependencyGraph);
-        topologicalOrder = doTopologySort(copyGraph(dependencyGraph), copyGraph(jobOrderGraph));
-        return new JobSuite(dependencyGraph, topologicalOrder, source);
-    }
-
-    private Queue<Job> doTopologySort(final Map<Job, Set<Job>> dependencyGraph, final Map<Job, Set<Job>> jobOrderGraph) {
-        final Queue<Job> result = new LinkedList<>();
-        final Queue<Job> queue = new LinkedList<>(singleton(TECHNICAL_ROOT_JOB));
-        while (!queue.isEmpty()) {
-            final Job currentNode = queue.poll();
-            result.add(currentNode);
-            final Iterator<Job> adjacentNodesIterator = jobOrderGraph.getOrDefault(currentNode, new LinkedHashSet<>()).iterator();
-            while (adjacentNodesIterator.hasNext()) {
-                final Job adjacentNode = adjacentNodesIterator.next();
-                adjacentNodesIterator.remove();
-                final Set<Job> dependsOn = dependencyGraph.getOrDefault(adjacentNode, new LinkedHashSet<>());
-                dependsOn.remove(currentNode);
-                if (dependsOn.isEmpty()) {
-                    queue.add(adjacentNode);
+        checkAllAdded();
+        // the jobs are numbered in the order they were added from here on
+        final int[] numbers = new int[jobCount];
+        for (int number = 0; number < addedCount; number++) {
+            numbers[addedOrder[number]] = number;
+        }
+        final int[] dependencyOffsets = new int[addedCount + 1];
+        final int[] dependencies = collectDependencies(numbers, dependencyOffsets);
+        final int[] dependentOffsets = new int[addedCount + 1];
+        final int[] dependents = reverseGraph(dependencyOffsets, dependencies, dependentOffsets);
+        final int[] topologicalOrder = doTopologySort(dependencyOffsets, dependentOffsets, dependents);
+        return compile(topologicalOrder, dependencyOffsets, dependencies, dependentOffsets, dependents);
+    }
+
+    /**
+     * Returns the index of the given {@link Job}, assigning the next one if
+     * it is mentioned for the first time. A new {@link Job} has no edges so it
+     * can go to either end of the topological order: a new dependency goes to
+     * the front and a new dependent to the back, so adding the {@link Job}s in
+     * any order never reorders the graph unless a {@link Job} gets more
+     * dependencies later.
+     */
+    private int indexOf(final Job job, final boolean atFront) {
+        final Integer existingIndex = indices.get(job);
+        if (existingIndex != null) {
+            return existingIndex;
+        }
+        if (jobCount == jobs.length) {
+            growJobs();
+        }
+        final int index = jobCount++;
+        indices.put(job, index);
+        jobs[index] = job;
+        positions[index] = atFront ? nextFrontPosition-- : nextBackPosition++;
+        firstDependencyEdges[index] = -1;
+        lastDependencyEdges[index] = -1;
+        firstDependentEdges[index] = -1;
+        return index;
+    }
+
+    /**
+     * Throws a {@link CircularDependencyException} with the cycle if the
+     * {@link Job} with the given dependency index depends on the one with the
+     * given job index already.
+     */
+    private void checkAcyclic(final int jobIndex, final Integer dependencyIndex) {
+        if (dependencyIndex != null && positions[dependencyIndex] > positions[jobIndex]
+                && searchForward(jobIndex, positions[dependencyIndex], dependencyIndex) < 0) {
+            final List<Job> cycle = new ArrayList<>();
+            cycle.add(jobs[jobIndex]);
+            for (int current = dependencyIndex; current != jobIndex; current = parents[current]) {
+                cycle.add(jobs[current]);
+            }
+            cycle.add(jobs[jobIndex]);
+            throw createCircularDependencyException(cycle);
+        }
+    }
+
+    private void addEdge(final int dependencyIndex, final int dependentIndex) {
+        if (edgeCount == edgeDependencies.length) {
+            growEdges();
+        }
+        final int edge = edgeCount++;
+        edgeDependencies[edge] = dependencyIndex;
+        edgeDependents[edge] = dependentIndex;
+        nextDependencyEdges[edge] = -1;
+        if (lastDependencyEdges[dependentIndex] < 0) {
+            firstDependencyEdges[dependentIndex] = edge;
+        } else {
+            nextDependencyEdges[lastDependencyEdges[dependentIndex]] = edge;
+        }
+        lastDependencyEdges[dependentIndex] = edge;
+        nextDependentEdges[edge] = firstDependentEdges[dependencyIndex];
+        firstDependentEdges[dependencyIndex] = edge;
+        if (positions[dependencyIndex] > positions[dependentIndex]) {
+            reorder(dependencyIndex, dependentIndex);
+        }
+    }
+
+    /**
+     * Moves the dependency and whatever it depends on in front of the
+     * dependent and whatever depends on it. Only the {@link Job}s positioned
+     * between the two are touched; they keep the set of positions they had.
+     */
+    private void reorder(final int dependencyIndex, final int dependentIndex) {
+        final int forwardCount = searchForward(dependentIndex, positions[dependencyIndex], -1);
+        final int backwardCount = searchBackward(dependencyIndex, positions[dependentIndex]);
+        final long[] backward = sortByPosition(backwardFound, backwardCount);
+        final long[] forward = sortByPosition(forwardFound, forwardCount);
+        final int[] freedPositions = new int[backwardCount + forwardCount];
+        for (int i = 0; i < backwardCount; i++) {
+            freedPositions[i] = (int) (backward[i] >>> 32);
+        }
+        for (int i = 0; i < forwardCount; i++) {
+            freedPositions[backwardCount + i] = (int) (forward[i] >>> 32);
+        }
+        Arrays.sort(freedPositions);
+        for (int i = 0; i < backwardCount; i++) {
+            positions[(int) backward[i]] = freedPositions[i];
+        }
+        for (int i = 0; i < forwardCount; i++) {
+            positions[(int) forward[i]] = freedPositions[backwardCount + i];
+        }
+    }
+
+    /**
+     * Collects the {@link Job}s reachable from <code>start</code> through
+     * dependents which are positioned below <code>bound</code> into
+     * {@link #forwardFound}.
+     *
+     * @return the number of {@link Job}s found or -1 if <code>target</code>
+     * was reached, in which case {@link #parents} leads back to
+     * <code>start</code>.
+     */
+    private int searchForward(final int start, final int bound, final int target) {
+        final int mark = ++searchNumber;
+        int found = 0;
+        int stackSize = 0;
+        marks[start] = mark;
+        stack[stackSize++] = start;
+        while (stackSize > 0) {
+            final int current = stack[--stackSize];
+            if (found == forwardFound.length) {
+                forwardFound = Arrays.copyOf(forwardFound, found * 2);
+            }
+            forwardFound[found++] = current;
+            for (int edge = firstDependentEdges[current]; edge >= 0; edge = nextDependentEdges[edge]) {
+                final int dependent = edgeDependents[edge];
+                if (dependent == target) {
+                    parents[dependent] = current;
+                    return -1;
                 }
+                if (marks[dependent] != mark && positions[dependent] < bound) {
+                    marks[dependent] = mark;
+                    parents[dependent] = current;
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stackSize * 2);
+                    }
+                    stack[stackSize++] = dependent;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Collects the {@link Job}s reachable from <code>start</code> through
+     * dependencies which are positioned above <code>bound</code> into
+     * {@link #backwardFound}.
+     */
+    private int searchBackward(final int start, final int bound) {
+        final int mark = ++searchNumber;
+        int found = 0;
+        int stackSize = 0;
+        marks[start] = mark;
+        stack[stackSize++] = start;
+        while (stackSize > 0) {
+            final int current = stack[--stackSize];
+            if (found == backwardFound.length) {
+                backwardFound = Arrays.copyOf(backwardFound, found * 2);
             }
-            if (jobOrderGraph.getOrDefault(currentNode, new LinkedHashSet<>()).isEmpty()) {
-                jobOrderGraph.remove(currentNode);
+            backwardFound[found++] = current;
+            for (int edge = firstDependencyEdges[current]; edge >= 0; edge = nextDependencyEdges[edge]) {
+                final int dependency = edgeDependencies[edge];
+                if (marks[dependency] != mark && positions[dependency] > bound) {
+                    marks[dependency] = mark;
+                    if (stackSize == stack.length) {
+                        stack = Arrays.copyOf(stack, stackSize * 2);
+                    }
+                    stack[stackSize++] = dependency;
+                }
             }
         }
-        if (jobOrderGraph.size() > 0) {
-            throw new CircularDependencyException("Graph " + dependencyGraph + " has circular dependencies!");
-        } else {
-            return result;
+        return found;
+    }
+
+    /**
+     * Returns the given {@link Job}s sorted by position, each packed as the
+     * position in the upper and the index in the lower half of a long.
+     */
+    private long[] sortByPosition(final int[] found, final int count) {
+        final long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = ((long) positions[found[i]] << 32) | found[i];
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Creates the exception for the dependency of the first {@link Job} of
+     * the given cycle on the second one, which would close the cycle.
+     */
+    private static CircularDependencyException createCircularDependencyException(final List<Job> cycle) {
+        final StringBuilder path = new StringBuilder();
+        for (final Job job : cycle) {
+            path.append(path.length() == 0 ? "" : " -> ").append(job.getName());
+        }
+        return new CircularDependencyException("Job " + cycle.get(0).getName() + " can't depend on "
+                + cycle.get(1).getName() + " since that would close the cycle " + path + ".", cycle);
+    }
+
+    private void checkAllAdded() {
+        for (int index = 0; index < jobCount; index++) {
+            if (!added[index]) {
+                final Job dependent = jobs[edgeDependents[firstDependentEdges[index]]];
+                throw new IllegalStateException("Job " + dependent.getName() + " depends on " + jobs[index].getName()
+                        + " which was never added.");
+            }
+        }
+    }
+
+    /**
+     * Flattens the dependencies of each {@link Job} in the order they were
+     * added, dropping duplicates.
+     */
+    private int[] collectDependencies(final int[] numbers, final int[] dependencyOffsets) {
+        final int[] dependencies = new int[edgeCount];
+        final int[] lastDependent = new int[addedCount];
+        Arrays.fill(lastDependent, -1);
+        int count = 0;
+        for (int number = 0; number < addedCount; number++) {
+            for (int edge = firstDependencyEdges[addedOrder[number]]; edge >= 0; edge = nextDependencyEdges[edge]) {
+                final int dependency = numbers[edgeDependencies[edge]];
+                if (lastDependent[dependency] != number) {
+                    lastDependent[dependency] = number;
+                    dependencies[count++] = dependency;
+                }
+            }
+            dependencyOffsets[number + 1] = count;
+        }
+        return dependencies;
+    }
+
+    private int[] reverseGraph(final int[] dependencyOffsets, final int[] dependencies, final int[] dependentOffsets) {
+        final int jobCount = dependencyOffsets.length - 1;
+        for (int i = 0; i < dependencyOffsets[jobCount]; i++) {
+            dependentOffsets[dependencies[i] + 1]++;
+        }
+        for (int i = 0; i < jobCount; i++) {
+            dependentOffsets[i + 1] += dependentOffsets[i];
+        }
+        final int[] dependents = new int[dependencyOffsets[jobCount]];
+        final int[] filled = Arrays.copyOf(dependentOffsets, jobCount);
+        for (int i = 0; i < jobCount; i++) {
+            for (int j = dependencyOffsets[i]; j < dependencyOffsets[i + 1]; j++) {
+                dependents[filled[dependencies[j]]++] = i;
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Kahn's algorithm which processes the {@link Job}s without dependencies
+     * first, in the order they were added. The graph is known to be acyclic.
+     */
+    private int[] doTopologySort(final int[] dependencyOffsets, final int[] dependentOffsets, final int[] dependents) {
+        final int jobCount = dependencyOffsets.length - 1;
+        final int[] remainingDependencyCounts = new int[jobCount];
+        final int[] queue = new int[jobCount];
+        int tail = 0;
+        for (int i = 0; i < jobCount; i++) {
+            remainingDependencyCounts[i] = dependencyOffsets[i + 1] - dependencyOffsets[i];
+            if (remainingDependencyCounts[i] == 0) {
+                queue[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            final int current = queue[head];
+            for (int i = dependentOffsets[current]; i < dependentOffsets[current + 1]; i++) {
+                if (--remainingDependencyCounts[dependents[i]] == 0) {
+                    queue[tail++] = dependents[i];
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Renumbers the {@link Job}s so that their ids follow the topological
+     * order.
+     */
+    private JobSuite compile(final int[] topologicalOrder,
+                             final int[] dependencyOffsets,
+                             final int[] dependencies,
+                             final int[] dependentOffsets,
+                             final int[] dependents) {
+        final int jobCount = topologicalOrder.length;
+        final int[] idOfNumber = new int[jobCount];
+        for (int id = 0; id < jobCount; id++) {
+            idOfNumber[topologicalOrder[id]] = id;
+        }
+        final Job[] suiteJobs = new Job[jobCount];
+        final int[] suiteDependencyOffsets = new int[jobCount + 1];
+        final int[] suiteDependentOffsets = new int[jobCount + 1];
+        for (int id = 0; id < jobCount; id++) {
+            final int number = topologicalOrder[id];
+            suiteJobs[id] = jobs[addedOrder[number]];
+            // the keys are all present so this only replaces the values
+            indices.put(suiteJobs[id], id);
+            suiteDependencyOffsets[id + 1] = suiteDependencyOffsets[id] + dependencyOffsets[number + 1] - dependencyOffsets[number];
+            suiteDependentOffsets[id + 1] = suiteDependentOffsets[id] + dependentOffsets[number + 1] - dependentOffsets[number];
+        }
+        final int[] dependencyIds = new int[dependencies.length];
+        final int[] dependentIds = new int[dependents.length];
+        for (int id = 0; id < jobCount; id++) {
+            final int number = topologicalOrder[id];
+            for (int i = dependencyOffsets[number]; i < dependencyOffsets[number + 1]; i++) {
+                dependencyIds[suiteDependencyOffsets[id] + i - dependencyOffsets[number]] = idOfNumber[dependencies[i]];
+            }
+            for (int i = dependentOffsets[number]; i < dependentOffsets[number + 1]; i++) {
+                dependentIds[suiteDependentOffsets[id] + i - dependentOffsets[number]] = idOfNumber[dependents[i]];
+            }
+        }
+        return new JobSuite(suiteJobs, indices, suiteDependencyOffsets, dependencyIds, suiteDependentOffsets, dependentIds,
+                compileStreams(suiteJobs, indices));
+    }
+
+    /**
+     * Returns the consumer id and buffer capacity of each producer, see
+     * {@link JobSuite#getStreamConsumerId(int)}, or <code>null</code> if there
+     * are no streaming dependencies.
+     */
+    private int[][] compileStreams(final Job[] jobs, final Map<Job, Integer> jobIds) {
+        if (streamConsumers.isEmpty()) {
+            return null;
+        }
+        final int[] consumerIds = new int[jobs.length];
+        final int[] bufferCapacities = new int[jobs.length];
+        for (int id = 0; id < jobs.length; id++) {
+            final Job consumer = streamConsumers.get(jobs[id]);
+            consumerIds[id] = consumer == null ? -1 : jobIds.get(consumer);
+            bufferCapacities[id] = consumer == null ? 0 : streamBufferCapacities.get(jobs[id]);
         }
+        return new int[][]{consumerIds, bufferCapacities};
     }
 
-    private Map<Job, Set<Job>> copyGraph(final Map<Job, Set<Job>> graph) {
-        final Map<Job, Set<Job>> copy = new HashMap<>();
-        graph.keySet().forEach(key ->
-        {
-            copy.put(key, new LinkedHashSet<>());
-            graph.get(key).forEach(value -> copy.get(key).add(value));
-        });
-        return copy;
+    private void growJobs() {
+        final int capacity = jobs.length * 2;
+        jobs = Arrays.copyOf(jobs, capacity);
+        addedOrder = Arrays.copyOf(addedOrder, capacity);
+        added = Arrays.copyOf(added, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        firstDependencyEdges = Arrays.copyOf(firstDependencyEdges, capacity);
+        lastDependencyEdges = Arrays.copyOf(lastDependencyEdges, capacity);
+        firstDependentEdges = Arrays.copyOf(firstDependentEdges, capacity);
+        marks = Arrays.copyOf(marks, capacity);
+        parents = Arrays.copyOf(parents, capacity);
     }
 
-    private Map<Job, Set<Job>> reverseGraph(final Map<Job, Set<Job>> graph) {
-        final Map<Job, Set<Job>> lookup = new HashMap<>();
-        graph.keySet().forEach(value ->
-                graph.get(value).forEach(key ->
-                {
-                    lookup.putIfAbsent(key, new LinkedHashSet<>());
-                    lookup.get(key).add(value);
-                }));
-        return lookup;
+    private void growEdges() {
+        final int capacity = edgeDependencies.length * 2;
+        edgeDependencies = Arrays.copyOf(edgeDependencies, capacity);
+        edgeDependents = Arrays.copyOf(edgeDependents, capacity);
+        nextDependencyEdges = Arrays.copyOf(nextDependencyEdges, capacity);
+        nextDependentEdges = Arrays.copyOf(nextDependentEdges, capacity);
     }
 }
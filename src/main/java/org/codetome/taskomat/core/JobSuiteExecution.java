@@ -0,0 +1,1118 @@
+package org.codetome.taskomat.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+import static org.codetome.taskomat.core.FailureMode.CANCEL_RUNNING_JOBS;
+import static org.codetome.taskomat.core.FailureMode.SKIP_DEPENDENTS;
+import static org.codetome.taskomat.core.JobResultType.CANCELLED;
+import static org.codetome.taskomat.core.JobResultType.JOB_IGNORED;
+import static org.codetome.taskomat.core.JobResultType.SERVICE_ERROR;
+import static org.codetome.taskomat.core.JobResultType.SUCCESS;
+import static org.codetome.taskomat.core.JobResultType.TIMED_OUT;
+
+/**
+ * Represents a single run of a {@link JobSuite} and holds all state of that
+ * run. Nothing blocks while the {@link JobSuite} is running: each {@link Job}
+ * reports its own completion from the thread it was run on and the
+ * subclasses decide which {@link Job}s to submit next. The {@link Job}s
+ * spawned by a {@link Job} are run by a nested {@link JobSuiteExecution} on
+ * the same executor, the spawning {@link Job} is finished once that is
+ * complete.
+ */
+abstract class JobSuiteExecution {
+
+    private final JobSuite jobSuite;
+    private final ExecutionConfiguration configuration;
+    private final Executor executor;
+    private final BiConsumer<Job, JobResult<?>> jobCompletionListener;
+    /**
+     * Contains the {@link JobResult} of each finished {@link Job} indexed by
+     * the id of the {@link Job}.
+     */
+    private final AtomicReferenceArray<JobResult<?>> jobResults;
+    private final CompletableFuture<JobSuiteResult> suiteResult = new CompletableFuture<>();
+    /**
+     * Orders the ready {@link Job}s if critical path scheduling is enabled,
+     * <code>null</code> otherwise.
+     */
+    private final ReadyJobQueue readyJobQueue;
+    /**
+     * Contains the task of each running {@link Job} indexed by the id of the
+     * {@link Job} so it can be cancelled.
+     */
+    private final AtomicReferenceArray<FutureTask<JobResult<?>>> runningTasks;
+    /**
+     * Contains the number of started attempts of each {@link Job} indexed by
+     * the id of the {@link Job}.
+     */
+    private final AtomicIntegerArray attemptCounts;
+    /**
+     * Contains the scheduled retry of each {@link Job} waiting for its next
+     * attempt indexed by the id of the {@link Job} so it can be cancelled.
+     */
+    private final AtomicReferenceArray<PendingRetry> pendingRetries;
+    /**
+     * Contains the duplicate started for the straggling attempt of each
+     * {@link Job} indexed by the id of the {@link Job}, <code>null</code> if
+     * there is no {@link SpeculationPolicy}.
+     */
+    private final AtomicReferenceArray<SpeculativeCopy> speculativeCopies;
+    private final JobExecutionListener[] executionListeners;
+    /**
+     * Contain the {@link System#nanoTime()} when the last attempt of each
+     * {@link Job} was submitted and started, indexed by the id of the
+     * {@link Job}. The executor hand-off orders the writes before the reads.
+     */
+    private final long[] submitTimes;
+    private final long[] startTimes;
+    private final String[] workerThreadNames;
+    /**
+     * Contains the resources held by each admitted {@link Job} indexed by the
+     * id of the {@link Job}, <code>null</code> if there are no resource
+     * limits.
+     */
+    private final int[][] resourceDemands;
+    /**
+     * Contains the {@link JobStream} of each producer of a streaming
+     * dependency indexed by the id of the producer, <code>null</code> if no
+     * {@link Job} streams.
+     */
+    private final JobStream<?>[] streams;
+    /**
+     * Contains the number of dependents of each {@link Job} which haven't
+     * started yet indexed by the id of the {@link Job}, and the dependency
+     * results each started {@link Job} has collected so its retries don't
+     * need the released ones. Both <code>null</code> if results are not
+     * released.
+     */
+    private final AtomicIntegerArray remainingReaders;
+    private final AtomicReferenceArray<List<JobResult<?>>> collectedDependencyResults;
+    /**
+     * Contain the nested runs of spawned {@link Job}s which are still running
+     * and the results of the completed ones.
+     */
+    private final Queue<JobSuiteExecution> spawnedExecutions = new ConcurrentLinkedQueue<>();
+    private final Queue<JobSuiteResult> spawnedSuiteResults = new ConcurrentLinkedQueue<>();
+    private long startTime;
+    /**
+     * The id the completed {@link Job}s are recorded under in the
+     * {@link JobJournal} or <code>null</code> if this run is not journaled,
+     * and whether the results already recorded under it are taken instead of
+     * running the {@link Job}s again.
+     */
+    private String journalRunId;
+    private boolean resumingFromJournal;
+    /**
+     * Set if this runs the {@link Job}s spawned by a {@link Job} of another
+     * run, which reports the start and end of the run to the listeners.
+     */
+    private boolean nested;
+
+    private volatile boolean failed = false;
+    /**
+     * Set when the running {@link Job}s are cancelled so the ones which are
+     * just starting get cancelled as well.
+     */
+    private volatile boolean stopped = false;
+
+    JobSuiteExecution(final JobSuite jobSuite,
+                      final ExecutionConfiguration configuration,
+                      final Executor executor,
+                      final BiConsumer<Job, JobResult<?>> jobCompletionListener) {
+        this.jobSuite = jobSuite;
+        this.configuration = configuration;
+        this.executor = executor;
+        this.jobCompletionListener = jobCompletionListener;
+        this.jobResults = new AtomicReferenceArray<>(jobSuite.getTotalJobCount());
+        this.runningTasks = new AtomicReferenceArray<>(jobSuite.getTotalJobCount());
+        this.attemptCounts = new AtomicIntegerArray(jobSuite.getTotalJobCount());
+        this.pendingRetries = new AtomicReferenceArray<>(jobSuite.getTotalJobCount());
+        this.speculativeCopies = configuration.getSpeculationPolicy() == null
+                ? null
+                : new AtomicReferenceArray<>(jobSuite.getTotalJobCount());
+        this.executionListeners = configuration.getExecutionListeners().toArray(new JobExecutionListener[0]);
+        this.submitTimes = new long[jobSuite.getTotalJobCount()];
+        this.startTimes = new long[jobSuite.getTotalJobCount()];
+        this.workerThreadNames = new String[jobSuite.getTotalJobCount()];
+        this.resourceDemands = configuration.getResourceLimiter() == null ? null : new int[jobSuite.getTotalJobCount()][];
+        this.streams = jobSuite.hasStreams() ? createStreams(jobSuite) : null;
+        this.remainingReaders = configuration.isResultRelease() ? countReaders(jobSuite) : null;
+        this.collectedDependencyResults = configuration.isResultRelease()
+                ? new AtomicReferenceArray<>(jobSuite.getTotalJobCount())
+                : null;
+        this.readyJobQueue = configuration.isCriticalPathScheduling()
+                ? new ReadyJobQueue(jobSuite.computeRemainingPathCosts(configuration.getJobDurationHistory().estimateCosts(jobSuite)))
+                : null;
+    }
+
+    /**
+     * Creates a {@link JobSuiteExecution} which uses the
+     * {@link SchedulingMode} of the given configuration.
+     */
+    static JobSuiteExecution create(final ExecutionConfiguration configuration,
+                                    final JobSuite jobSuite,
+                                    final Executor executor,
+                                    final BiConsumer<Job, JobResult<?>> jobCompletionListener) {
+        if (configuration.getSchedulingMode() == SchedulingMode.DEPENDENCY_DRIVEN) {
+            return new DependencyDrivenJobSuiteExecution(jobSuite, configuration, executor, jobCompletionListener);
+        } else {
+            return new WaveJobSuiteExecution(jobSuite, configuration, executor, jobCompletionListener);
+        }
+    }
+
+    /**
+     * Makes this run record its completed {@link Job}s in the
+     * {@link JobJournal} under the given run id and, if
+     * <code>resume</code> is set, take the results already recorded there.
+     * Has to be called before the run is started.
+     */
+    final JobSuiteExecution journalAs(final String runId, final boolean resume) {
+        this.journalRunId = runId;
+        this.resumingFromJournal = resume;
+        return this;
+    }
+
+    /**
+     * Starts running the {@link JobSuite} and returns immediately.
+     *
+     * @return a {@link CompletableFuture} which is completed after the last
+     * {@link Job} is completed.
+     */
+    final CompletableFuture<JobSuiteResult> start() {
+        startTime = System.nanoTime();
+        for (final JobExecutionListener executionListener : executionListeners) {
+            try {
+                executionListener.onSuiteStarted(jobSuite);
+            } catch (final RuntimeException e) {
+                // a misbehaving listener must not stall the suite
+            }
+        }
+        final Duration suiteDeadline = configuration.getSuiteDeadline();
+        if (suiteDeadline != null) {
+            final ScheduledFuture<?> deadline = configuration.getDelayScheduler().schedule(() ->
+                    stop(new TimeoutException("Suite deadline of " + suiteDeadline + " has passed.")), suiteDeadline.toNanos());
+            suiteResult.whenComplete((result, throwable) -> deadline.cancel(false));
+        }
+        suiteResult.whenComplete((result, throwable) -> {
+            if (suiteResult.isCancelled()) {
+                stop(new CancellationException("The run was cancelled."));
+            }
+        });
+        submitInitialJobs();
+        return suiteResult;
+    }
+
+    /**
+     * Starts running the {@link JobSuite} of spawned {@link Job}s as part of
+     * the enclosing run and returns immediately.
+     */
+    private CompletableFuture<JobSuiteResult> startNested() {
+        nested = true;
+        startTime = System.nanoTime();
+        submitInitialJobs();
+        return suiteResult;
+    }
+
+    /**
+     * Submits the {@link Job}s which can be run right away.
+     */
+    abstract void submitInitialJobs();
+
+    /**
+     * Called once the {@link Job} with the given id has published its first
+     * element or has finished without any, so the consumer of its
+     * {@link JobStream} can be started.
+     */
+    abstract void onStreamAvailable(int producerId);
+
+    /**
+     * Called after the result of the {@link Job} with the given id is stored.
+     * Implementations have to call {@link #complete()} eventually. If
+     * <code>canRunInline</code> is set the caller is a worker thread which
+     * has just run the {@link Job} and can run one of the released
+     * {@link Job}s right away, see {@link #submitOrRunInline(int, boolean)}.
+     *
+     * @return the id of the {@link Job} the caller has to run next or -1.
+     */
+    abstract int onJobFinished(int jobId, boolean canRunInline);
+
+    final JobSuite getJobSuite() {
+        return jobSuite;
+    }
+
+    /**
+     * Tells whether any {@link Job} has failed so far.
+     */
+    final boolean hasFailed() {
+        return failed;
+    }
+
+    /**
+     * Tells whether new {@link Job}s may still be submitted. After a failure
+     * this is only the case with {@link FailureMode#SKIP_DEPENDENTS}.
+     */
+    final boolean canSubmitMoreJobs() {
+        return !stopped && (!failed || configuration.getFailureMode() == SKIP_DEPENDENTS);
+    }
+
+    /**
+     * Tells whether any dependency of the {@link Job} with the given id has
+     * failed or was skipped. Only valid after all dependencies have finished,
+     * except the producers of streams which may still be running.
+     */
+    final boolean hasFailedDependency(final int jobId) {
+        for (int i = 0; i < jobSuite.getDependencyCount(jobId); i++) {
+            final JobResult<?> dependencyResult = jobResults.get(jobSuite.getDependencyId(jobId, i));
+            if (dependencyResult != null && !dependencyResult.isSuccessful()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records a {@link JobResultType#JOB_IGNORED} result for the {@link Job}
+     * with the given id without running it. Unlike a finished {@link Job}
+     * this does not call {@link #onJobFinished(int, boolean)}, the caller has to
+     * handle the dependents of the skipped {@link Job}.
+     */
+    final void skipJob(final int jobId) {
+        final JobResult<?> jobResult = new JobResult<>();
+        jobResult.setJobResultType(JOB_IGNORED);
+        jobResult.setTimes(0, 0, System.nanoTime());
+        storeResult(jobId, jobResult);
+        if (remainingReaders != null) {
+            releaseDependencyResults(jobId);
+        }
+        if (streams != null) {
+            closeStreams(jobId, jobResult);
+        }
+        notifyListener(jobId, jobResult);
+    }
+
+    /**
+     * Submits the {@link Job} with the given id. If it needs limited
+     * resources it is only handed to the executor once the
+     * {@link ResourceLimiter} has admitted it.
+     */
+    final void submitJob(final int jobId) {
+        submitOrRunInline(jobId, false);
+    }
+
+    /**
+     * Submits the {@link Job} with the given id like
+     * {@link #submitJob(int)}, except that if <code>canRunInline</code> is
+     * set and the {@link Job} needs no limited resources it is returned to be
+     * run by the calling worker thread instead. This saves the hand-off to
+     * another thread, which dominates the cost of short {@link Job}s in a
+     * chain.
+     *
+     * @return the id of the {@link Job} if the caller has to run it or -1.
+     */
+    final int submitOrRunInline(final int jobId, final boolean canRunInline) {
+        submitTimes[jobId] = System.nanoTime();
+        if (streams != null) {
+            claimStreams(jobId);
+        }
+        for (final JobExecutionListener executionListener : executionListeners) {
+            try {
+                executionListener.onJobSubmitted(jobSuite.getJob(jobId));
+            } catch (final RuntimeException e) {
+                // a misbehaving listener must not stall the suite
+            }
+        }
+        final int[] demand = resourceDemands == null ? null
+                : configuration.getResourceLimiter().toDemand(jobSuite.getJob(jobId).getResourceDemands());
+        if (demand == null) {
+            if (canRunInline && (!isConcurrencyLimited(jobId) || configuration.getConcurrencyLimiter().tryAcquire())) {
+                return jobId;
+            }
+            admitJob(jobId);
+        } else {
+            resourceDemands[jobId] = demand;
+            configuration.getResourceLimiter().acquire(demand, () -> admitJob(jobId));
+        }
+        return -1;
+    }
+
+    /**
+     * Dispatches the {@link Job} with the given id once the
+     * {@link AdaptiveConcurrencyLimiter}, if any, has a free slot.
+     */
+    private void admitJob(final int jobId) {
+        if (isConcurrencyLimited(jobId)) {
+            configuration.getConcurrencyLimiter().acquire(() -> dispatchJob(jobId));
+        } else {
+            dispatchJob(jobId);
+        }
+    }
+
+    /**
+     * Tells whether the {@link Job} with the given id needs a slot of the
+     * {@link AdaptiveConcurrencyLimiter}. A consumer of a stream doesn't,
+     * otherwise its producer could hold the last slot while it waits for the
+     * consumer to make room in the stream.
+     */
+    private boolean isConcurrencyLimited(final int jobId) {
+        if (configuration.getConcurrencyLimiter() == null) {
+            return false;
+        }
+        for (int i = 0; i < jobSuite.getDependencyCount(jobId) && streams != null; i++) {
+            if (jobSuite.isStreamingDependency(jobId, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hands the {@link Job} with the given id to the executor. With critical
+     * path scheduling the {@link Job} is put into the {@link ReadyJobQueue}
+     * and the task submitted to the executor runs whichever ready
+     * {@link Job} has the highest priority by the time a thread picks the
+     * task up.
+     */
+    private void dispatchJob(final int jobId) {
+        try {
+            if (readyJobQueue == null) {
+                execute(() -> runJobs(jobId));
+            } else {
+                readyJobQueue.add(jobId);
+                execute(() -> runJobs(readyJobQueue.poll()));
+            }
+        } catch (final RejectedExecutionException e) {
+            final int rejectedJobId = readyJobQueue == null ? jobId : readyJobQueue.poll();
+            releaseResources(resourceDemands == null ? null : resourceDemands[rejectedJobId]);
+            releaseSlot(rejectedJobId, null, 0);
+            finishJob(rejectedJobId, createFailedResult(SERVICE_ERROR, e), false);
+        }
+    }
+
+    /**
+     * Hands the task to the executor. A worker of a {@link ForkJoinPool}
+     * pushes it onto its own deque instead where it is likely to find the
+     * results of the {@link Job} which released it still in the cache, and
+     * the idle workers steal it from there.
+     */
+    private void execute(final Runnable task) {
+        if (executor instanceof ForkJoinPool && ForkJoinTask.getPool() == executor) {
+            ForkJoinTask.adapt(task).fork();
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * Stops submitting new {@link Job}s and cancels the running ones. The
+     * {@link Job}s waiting for a retry keep the result of their last attempt.
+     */
+    final void stop(final Exception reason) {
+        failed = true;
+        stopped = true;
+        for (int jobId = 0; jobId < runningTasks.length(); jobId++) {
+            cancel(jobId, CANCELLED, reason);
+            cancelRetry(jobId);
+        }
+        for (final JobSuiteExecution spawnedExecution : spawnedExecutions) {
+            spawnedExecution.stop(reason);
+        }
+        if (streams != null) {
+            abandonUnclaimedStreams();
+        }
+    }
+
+    final void complete() {
+        final Map<Job, JobResult<?>> results = new HashMap<>();
+        for (int jobId = 0; jobId < jobResults.length(); jobId++) {
+            final JobResult<?> jobResult = jobResults.get(jobId);
+            if (jobResult != null) {
+                results.put(jobSuite.getJob(jobId), jobResult);
+            }
+        }
+        int totalJobCount = jobSuite.getTotalJobCount();
+        for (final JobSuiteResult spawnedSuiteResult : spawnedSuiteResults) {
+            results.putAll(spawnedSuiteResult.getJobResults());
+            totalJobCount += spawnedSuiteResult.getTotalJobCount();
+        }
+        final JobSuiteResult jobSuiteResult = new JobSuiteResult(results, totalJobCount);
+        jobSuiteResult.setTimes(startTime, System.nanoTime());
+        if (nested) {
+            suiteResult.complete(jobSuiteResult);
+            return;
+        }
+        if (journalRunId != null && !jobSuiteResult.hasFailedJobs()) {
+            // nothing is left to resume
+            configuration.getJobJournal().discard(journalRunId);
+        }
+        for (final JobExecutionListener executionListener : executionListeners) {
+            try {
+                executionListener.onSuiteFinished(jobSuite, jobSuiteResult);
+            } catch (final RuntimeException e) {
+                // a misbehaving listener must not stall the suite
+            }
+        }
+        suiteResult.complete(jobSuiteResult);
+    }
+
+    /**
+     * Runs the {@link Job} with the given id on the current thread followed
+     * by the {@link Job}s it hands over to run inline. A loop rather than
+     * recursion so long chains can't overflow the stack.
+     */
+    private void runJobs(final int jobId) {
+        int nextJobId = jobId;
+        while (nextJobId >= 0) {
+            nextJobId = runJob(nextJobId);
+        }
+    }
+
+    /**
+     * Runs the {@link Job} on the current thread. The call is wrapped in a
+     * {@link FutureTask} so a timeout or a failure of another {@link Job} can
+     * interrupt it. Whoever completes the task first records the result.
+     *
+     * @return the id of the {@link Job} to run next on this thread or -1.
+     */
+    private int runJob(final int jobId) {
+        final Job job = jobSuite.getJob(jobId);
+        // a retry may replace the demand while a timed out attempt is still running
+        final int[] heldResources = resourceDemands == null ? null : resourceDemands[jobId];
+        startTimes[jobId] = 0;
+        if (job instanceof SubSuiteJob) {
+            runSubSuite(jobId, (SubSuiteJob) job, heldResources);
+            return -1;
+        }
+        // elements which were published can't be taken back so streaming jobs always run
+        final boolean streaming = streams != null && jobSuite.isStreaming(jobId);
+        final JobJournal jobJournal = streaming || journalRunId == null ? null : configuration.getJobJournal();
+        if (jobJournal != null && resumingFromJournal && attemptCounts.get(jobId) == 0) {
+            final Optional<JobResult<?>> journaledResult = jobJournal.getResult(journalRunId, job.getName());
+            if (journaledResult.isPresent()) {
+                releaseResources(heldResources);
+                releaseSlot(jobId, null, 0);
+                if (remainingReaders != null) {
+                    releaseDependencyResults(jobId);
+                }
+                return finishJob(jobId, journaledResult.get(), true);
+            }
+        }
+        final List<JobResult<?>> dependencyResults = collectDependencyResults(jobId);
+        final String cacheKey = streaming ? null : computeCacheKey(jobId, job, dependencyResults);
+        if (cacheKey != null && attemptCounts.get(jobId) == 0) {
+            final Optional<JobResult<?>> cachedResult = configuration.getJobResultCache().get(cacheKey);
+            if (cachedResult.isPresent()) {
+                releaseResources(heldResources);
+                releaseSlot(jobId, null, 0);
+                return finishJob(jobId, cachedResult.get(), true);
+            }
+        }
+        final int attempt = attemptCounts.incrementAndGet(jobId);
+        final JobStream<?> outputStream = streams == null ? null : streams[jobId];
+        final FutureTask<JobResult<?>> task = new FutureTask<>(() -> Job.callWithDependencyResults(job, dependencyResults, outputStream));
+        runningTasks.set(jobId, task);
+        final long start = System.nanoTime();
+        final Optional<Duration> timeout = Job.requireOptional(job.getTimeout(), job, "getTimeout()");
+        final ScheduledFuture<?> timeoutAction = !timeout.isPresent() ? null : configuration.getDelayScheduler()
+                .schedule(() -> cancel(jobId, TIMED_OUT, new TimeoutException("Job timed out after " + timeout.get() + ".")),
+                        timeout.get().toNanos());
+        final long speculationDelay = streaming || heldResources != null ? -1 : computeSpeculationDelay(job);
+        final ScheduledFuture<?> speculationAction = speculationDelay < 0 ? null : configuration.getDelayScheduler()
+                .schedule(() -> speculate(jobId, task, attempt, start, dependencyResults, cacheKey, jobJournal), speculationDelay);
+        if (stopped) {
+            cancel(jobId, CANCELLED, new CancellationException("The run was stopped before the job could start."));
+        }
+        if (!task.isCancelled()) {
+            startTimes[jobId] = start;
+            workerThreadNames[jobId] = Thread.currentThread().getName();
+            for (final JobExecutionListener executionListener : executionListeners) {
+                try {
+                    executionListener.onJobStarted(job);
+                } catch (final RuntimeException e) {
+                    // a misbehaving listener must not stall the suite
+                }
+            }
+        }
+        if (job.isBlocking()) {
+            ManagedBlocking.run(task);
+        } else {
+            task.run();
+        }
+        final long duration = System.nanoTime() - start;
+        releaseResources(heldResources);
+        releaseSlot(jobId, job.getName(), duration);
+        // a timed out attempt may already have been replaced by its retry
+        runningTasks.compareAndSet(jobId, task, null);
+        if (timeoutAction != null) {
+            timeoutAction.cancel(false);
+        }
+        if (speculationAction != null) {
+            speculationAction.cancel(false);
+            cancelSpeculativeCopy(jobId, attempt);
+        }
+        if (task.isCancelled()) {
+            // the canceller has already recorded the result, only the interrupt has to be cleared
+            Thread.interrupted();
+            return -1;
+        }
+        final JobResult<?> jobResult;
+        try {
+            jobResult = task.get();
+        } catch (final ExecutionException e) {
+            return finishAttempt(jobId, attempt, createFailedResult(SERVICE_ERROR, e.getCause()), true);
+        } catch (final Throwable throwable) {
+            return finishAttempt(jobId, attempt, createFailedResult(SERVICE_ERROR, throwable), true);
+        }
+        return finishCall(jobId, jobResult, duration, cacheKey, jobJournal, attempt, true);
+    }
+
+    /**
+     * Records the result a call of the {@link Job} with the given id has
+     * returned and finishes the attempt.
+     *
+     * @return the id of the {@link Job} to run next on this thread or -1.
+     */
+    private int finishCall(final int jobId,
+                           final JobResult<?> returnedResult,
+                           final long duration,
+                           final String cacheKey,
+                           final JobJournal jobJournal,
+                           final int attempt,
+                           final boolean canRunInline) {
+        final Job job = jobSuite.getJob(jobId);
+        JobResult<?> jobResult = returnedResult;
+        try {
+            jobResult.setJobResultType(SUCCESS);
+            configuration.getJobDurationHistory().record(job.getName(), duration);
+            if (speculativeCopies != null && job.isIdempotent()) {
+                configuration.getSpeculationPolicy().record(job.getName(), duration);
+            }
+            final JobSuiteBuilder spawnedJobs = jobResult.takeSpawnedJobs();
+            if (spawnedJobs != null) {
+                // the outcome includes the spawned jobs so it is neither cached nor journaled
+                runSpawnedJobs(jobId, jobResult, spawnedJobs.build());
+                return -1;
+            }
+            if (cacheKey != null) {
+                configuration.getJobResultCache().put(cacheKey, jobResult);
+            }
+            if (jobJournal != null) {
+                jobJournal.record(journalRunId, job.getName(), jobResult);
+            }
+        } catch (final Throwable throwable) {
+            jobResult = createFailedResult(SERVICE_ERROR, throwable);
+        }
+        return finishAttempt(jobId, attempt, jobResult, canRunInline);
+    }
+
+    /**
+     * Returns how long the given {@link Job} may run before a duplicate is
+     * started or -1 if it is not duplicated.
+     */
+    private long computeSpeculationDelay(final Job job) {
+        return speculativeCopies == null || !job.isIdempotent()
+                ? -1
+                : configuration.getSpeculationPolicy().computeThresholdNanos(job.getName());
+    }
+
+    /**
+     * Starts a duplicate of the straggling attempt of the {@link Job} with
+     * the given id unless it has finished meanwhile. The duplicate needs a
+     * slot of the {@link AdaptiveConcurrencyLimiter} like any other call, it
+     * is not started if none is free since by the time one is the original
+     * attempt is likely done.
+     */
+    private void speculate(final int jobId,
+                           final FutureTask<JobResult<?>> task,
+                           final int attempt,
+                           final long attemptStart,
+                           final List<JobResult<?>> dependencyResults,
+                           final String cacheKey,
+                           final JobJournal jobJournal) {
+        if (task.isDone() || stopped) {
+            return;
+        }
+        if (isConcurrencyLimited(jobId) && !configuration.getConcurrencyLimiter().tryAcquire()) {
+            return;
+        }
+        final Job job = jobSuite.getJob(jobId);
+        final FutureTask<JobResult<?>> copy = new FutureTask<>(() -> Job.callWithDependencyResults(job, dependencyResults, null));
+        speculativeCopies.set(jobId, new SpeculativeCopy(attempt, copy));
+        if (task.isDone()) {
+            copy.cancel(false);
+            releaseSlot(jobId, null, 0);
+            return;
+        }
+        try {
+            execute(() -> runSpeculativeCopy(jobId, task, copy, attempt, attemptStart, cacheKey, jobJournal));
+        } catch (final RejectedExecutionException e) {
+            // the original attempt keeps running
+            releaseSlot(jobId, null, 0);
+        }
+    }
+
+    /**
+     * Runs the duplicate of a straggling attempt. Whichever call finishes
+     * first cancels the other one, a failed duplicate is ignored so the
+     * original attempt decides the outcome. A winning duplicate is recorded
+     * with the time since the original attempt started, that is how long
+     * the {@link Job} took, while its own shorter run time would make the
+     * next stragglers look slow sooner.
+     */
+    private void runSpeculativeCopy(final int jobId,
+                                    final FutureTask<JobResult<?>> task,
+                                    final FutureTask<JobResult<?>> copy,
+                                    final int attempt,
+                                    final long attemptStart,
+                                    final String cacheKey,
+                                    final JobJournal jobJournal) {
+        final Job job = jobSuite.getJob(jobId);
+        final long start = System.nanoTime();
+        if (job.isBlocking()) {
+            ManagedBlocking.run(copy);
+        } else {
+            copy.run();
+        }
+        final long end = System.nanoTime();
+        releaseSlot(jobId, copy.isCancelled() ? null : job.getName(), end - start);
+        if (copy.isCancelled()) {
+            Thread.interrupted();
+            return;
+        }
+        final JobResult<?> jobResult;
+        try {
+            jobResult = copy.get();
+        } catch (final Exception e) {
+            return;
+        }
+        if (jobResult == null || !task.cancel(true)) {
+            return;
+        }
+        jobResult.setFromSpeculativeCopy(true);
+        runJobs(finishCall(jobId, jobResult, end - attemptStart, cacheKey, jobJournal, attempt, true));
+    }
+
+    /**
+     * Creates the nested run of the given {@link JobSuite} which belongs to
+     * the given {@link Job}. Its {@link Job}s are journaled under the
+     * {@link Job} so their names only need to be unique within it.
+     */
+    private JobSuiteExecution createNested(final Job owner, final JobSuite nestedJobSuite) {
+        final JobSuiteExecution nestedExecution = create(configuration, nestedJobSuite, executor, jobCompletionListener);
+        if (journalRunId != null) {
+            nestedExecution.journalAs(JobJournal.nestedRunId(journalRunId, owner.getName()), resumingFromJournal);
+        }
+        return nestedExecution;
+    }
+
+    /**
+     * Runs the {@link Job}s spawned by the {@link Job} with the given id and
+     * finishes it once they are completed. It fails if any of them has failed.
+     */
+    private void runSpawnedJobs(final int jobId, final JobResult<?> jobResult, final JobSuite spawnedJobSuite) {
+        final JobSuiteExecution spawnedExecution = createNested(jobSuite.getJob(jobId), spawnedJobSuite);
+        spawnedExecutions.add(spawnedExecution);
+        spawnedExecution.startNested().whenComplete((spawnedSuiteResult, throwable) -> {
+            spawnedSuiteResults.add(spawnedSuiteResult);
+            spawnedExecutions.remove(spawnedExecution);
+            if (spawnedSuiteResult.hasFailedJobs()) {
+                final Throwable cause = spawnedSuiteResult.fetchAllErrors().get(0);
+                finishJob(jobId, createFailedResult(SERVICE_ERROR, new ExecutionException(
+                        "A job spawned by " + jobSuite.getJob(jobId).getName() + " has failed.", cause)), false);
+            } else {
+                finishJob(jobId, jobResult, false);
+            }
+        });
+        if (stopped) {
+            spawnedExecution.stop(new CancellationException("The run was stopped before the spawned jobs could start."));
+        }
+    }
+
+    /**
+     * Runs the inner {@link JobSuite} of the {@link SubSuiteJob} with the
+     * given id like spawned {@link Job}s and finishes the
+     * {@link SubSuiteJob} with the inner {@link JobSuiteResult} once it is
+     * complete. The {@link SubSuiteJob} holds neither a thread nor resources
+     * meanwhile.
+     */
+    private void runSubSuite(final int jobId, final SubSuiteJob subSuiteJob, final int[] heldResources) {
+        final int attempt = attemptCounts.incrementAndGet(jobId);
+        releaseResources(heldResources);
+        releaseSlot(jobId, null, 0);
+        if (remainingReaders != null && attempt == 1) {
+            releaseDependencyResults(jobId);
+        }
+        if (stopped) {
+            finishAttempt(jobId, attempt, createFailedResult(CANCELLED,
+                    new CancellationException("The run was stopped before the job could start.")), false);
+            return;
+        }
+        final long start = System.nanoTime();
+        startTimes[jobId] = start;
+        workerThreadNames[jobId] = Thread.currentThread().getName();
+        for (final JobExecutionListener executionListener : executionListeners) {
+            try {
+                executionListener.onJobStarted(subSuiteJob);
+            } catch (final RuntimeException e) {
+                // a misbehaving listener must not stall the suite
+            }
+        }
+        final JobSuiteExecution innerExecution = createNested(subSuiteJob, subSuiteJob.getJobSuite());
+        spawnedExecutions.add(innerExecution);
+        innerExecution.startNested().whenComplete((innerSuiteResult, throwable) -> {
+            spawnedExecutions.remove(innerExecution);
+            final JobResult<?> jobResult;
+            if (innerSuiteResult.hasFailedJobs()) {
+                jobResult = createFailedResult(SERVICE_ERROR, new ExecutionException(
+                        "A job of " + subSuiteJob.getName() + " has failed.", innerSuiteResult.fetchAllErrors().get(0)));
+            } else {
+                jobResult = new JobResult<>(innerSuiteResult);
+                jobResult.setJobResultType(SUCCESS);
+                configuration.getJobDurationHistory().record(subSuiteJob.getName(), System.nanoTime() - start);
+            }
+            finishAttempt(jobId, attempt, jobResult, false);
+        });
+        if (stopped) {
+            innerExecution.stop(new CancellationException("The run was stopped before the inner jobs could start."));
+        }
+    }
+
+    /**
+     * Cancels the duplicate of the given attempt of the {@link Job} with the
+     * given id if one was started. The duplicate is kept so the final result
+     * can tell that the attempt was duplicated.
+     */
+    private void cancelSpeculativeCopy(final int jobId, final int attempt) {
+        final SpeculativeCopy speculativeCopy = speculativeCopies == null ? null : speculativeCopies.get(jobId);
+        if (speculativeCopy != null && speculativeCopy.attempt == attempt) {
+            speculativeCopy.task.cancel(true);
+        }
+    }
+
+    private void cancel(final int jobId, final JobResultType jobResultType, final Exception reason) {
+        cancelSpeculativeCopy(jobId, attemptCounts.get(jobId));
+        final FutureTask<JobResult<?>> task = runningTasks.get(jobId);
+        if (task != null && task.cancel(true)) {
+            finishAttempt(jobId, attemptCounts.get(jobId), createFailedResult(jobResultType, reason), false);
+        }
+    }
+
+    /**
+     * Finishes the {@link Job} with the given result unless its
+     * {@link RetryPolicy} asks for another attempt. The retry waits on the
+     * {@link DelayScheduler} so no thread of the executor is held meanwhile.
+     *
+     * @return the id of the {@link Job} to run next on this thread or -1.
+     */
+    private int finishAttempt(final int jobId, final int attempt, final JobResult<?> jobResult, final boolean canRunInline) {
+        final JobResultType jobResultType = jobResult.getJobResultType();
+        final Job job = jobSuite.getJob(jobId);
+        final Optional<RetryPolicy> retryPolicy = Job.requireOptional(job.getRetryPolicy(), job, "getRetryPolicy()");
+        if ((jobResultType == SERVICE_ERROR || jobResultType == TIMED_OUT)
+                && retryPolicy.isPresent()
+                && retryPolicy.get().shouldRetry(attempt, jobResult.getThrowable())
+                && canSubmitMoreJobs()
+                && (streams == null || !jobSuite.isStreaming(jobId))) {
+            if (speculativeCopies != null) {
+                // the next attempt is only duplicated if it straggles itself
+                cancelSpeculativeCopy(jobId, attempt);
+                speculativeCopies.set(jobId, null);
+            }
+            final PendingRetry pendingRetry = new PendingRetry(jobResult);
+            pendingRetries.set(jobId, pendingRetry);
+            pendingRetry.timer = configuration.getDelayScheduler()
+                    .schedule(() -> submitRetry(jobId, pendingRetry), retryPolicy.get().computeBackoffNanos(attempt));
+            if (stopped) {
+                cancelRetry(jobId);
+            }
+            return -1;
+        }
+        return finishJob(jobId, jobResult, canRunInline);
+    }
+
+    private void submitRetry(final int jobId, final PendingRetry pendingRetry) {
+        if (pendingRetry.claim()) {
+            submitJob(jobId);
+        }
+    }
+
+    private void cancelRetry(final int jobId) {
+        final PendingRetry pendingRetry = pendingRetries.get(jobId);
+        if (pendingRetry != null && pendingRetry.claim()) {
+            if (pendingRetry.timer != null) {
+                pendingRetry.timer.cancel(false);
+            }
+            finishJob(jobId, pendingRetry.lastResult, false);
+        }
+    }
+
+    /**
+     * Gives back the resources held by an attempt once it is not running
+     * anymore.
+     */
+    private void releaseResources(final int[] demand) {
+        if (demand != null) {
+            configuration.getResourceLimiter().release(demand);
+        }
+    }
+
+    /**
+     * Gives back the slot of the {@link AdaptiveConcurrencyLimiter} held by
+     * an attempt of the {@link Job} with the given id once it is not running
+     * anymore, together with its run time if it was run.
+     */
+    private void releaseSlot(final int jobId, final String jobName, final long duration) {
+        if (isConcurrencyLimited(jobId)) {
+            configuration.getConcurrencyLimiter().release(jobName, duration);
+        }
+    }
+
+    /**
+     * Returns the key of the given {@link Job} in the {@link JobResultCache}
+     * or <code>null</code> if its result is not cached.
+     */
+    private String computeCacheKey(final int jobId, final Job job, final List<JobResult<?>> dependencyResults) {
+        if (configuration.getJobResultCache() == null) {
+            return null;
+        }
+        final Optional<String> cacheKey = Job.requireOptional(job.getCacheKey(), job, "getCacheKey()");
+        if (!cacheKey.isPresent()) {
+            return null;
+        }
+        final List<Job> dependencies = new ArrayList<>(dependencyResults.size());
+        for (int i = 0; i < dependencyResults.size(); i++) {
+            dependencies.add(jobSuite.getJob(jobSuite.getDependencyId(jobId, i)));
+        }
+        return JobResultCache.computeKey(cacheKey.get(), dependencies, dependencyResults);
+    }
+
+    private List<JobResult<?>> collectDependencyResults(final int jobId) {
+        if (collectedDependencyResults != null && collectedDependencyResults.get(jobId) != null) {
+            return collectedDependencyResults.get(jobId);
+        }
+        final int dependencyCount = jobSuite.getDependencyCount(jobId);
+        final List<JobResult<?>> dependencyResults = new ArrayList<>(dependencyCount);
+        for (int i = 0; i < dependencyCount; i++) {
+            if (streams != null && jobSuite.isStreamingDependency(jobId, i)) {
+                final JobResult<?> streamResult = new JobResult<>(streams[jobSuite.getDependencyId(jobId, i)]);
+                streamResult.setJobResultType(SUCCESS);
+                dependencyResults.add(streamResult);
+            } else {
+                dependencyResults.add(jobResults.get(jobSuite.getDependencyId(jobId, i)));
+            }
+        }
+        if (collectedDependencyResults != null) {
+            collectedDependencyResults.set(jobId, dependencyResults);
+            releaseDependencyResults(jobId);
+        }
+        return dependencyResults;
+    }
+
+    private static AtomicIntegerArray countReaders(final JobSuite jobSuite) {
+        final AtomicIntegerArray readers = new AtomicIntegerArray(jobSuite.getTotalJobCount());
+        for (int jobId = 0; jobId < jobSuite.getTotalJobCount(); jobId++) {
+            readers.set(jobId, jobSuite.getDependentCount(jobId));
+        }
+        return readers;
+    }
+
+    /**
+     * Counts the {@link Job} with the given id as a reader of its
+     * dependencies which won't read them anymore, either because it has
+     * collected their results or because it was skipped, and releases the
+     * results it was the last reader of.
+     */
+    private void releaseDependencyResults(final int jobId) {
+        for (int i = 0; i < jobSuite.getDependencyCount(jobId); i++) {
+            final int dependencyId = jobSuite.getDependencyId(jobId, i);
+            if (remainingReaders.decrementAndGet(dependencyId) == 0) {
+                releaseResult(dependencyId);
+            }
+        }
+    }
+
+    /**
+     * Replaces the result of the {@link Job} with the given id by a copy
+     * without its value unless the {@link Job} wants it kept. The producer
+     * of a stream may still be running when its consumer starts, then its
+     * result is released once it is stored.
+     */
+    private void releaseResult(final int jobId) {
+        final JobResult<?> jobResult = jobResults.get(jobId);
+        if (jobResult != null && !jobResult.isReleased() && !jobSuite.getJob(jobId).isResultKept()) {
+            jobResults.compareAndSet(jobId, jobResult, jobResult.release());
+        }
+    }
+
+    private JobStream<?>[] createStreams(final JobSuite jobSuite) {
+        final JobStream<?>[] jobStreams = new JobStream<?>[jobSuite.getTotalJobCount()];
+        for (int jobId = 0; jobId < jobStreams.length; jobId++) {
+            if (jobSuite.getStreamConsumerId(jobId) >= 0) {
+                final int producerId = jobId;
+                jobStreams[jobId] = new JobStream<>(jobSuite.getStreamBufferCapacity(jobId), () -> onStreamAvailable(producerId));
+            }
+        }
+        return jobStreams;
+    }
+
+    /**
+     * Ends the stream the finished {@link Job} with the given id produced and
+     * releases the producers it consumed. Once no more {@link Job}s are
+     * submitted the producers whose consumer was not submitted are released
+     * as well, otherwise they could wait for a free buffer forever.
+     */
+    private void closeStreams(final int jobId, final JobResult<?> jobResult) {
+        final JobStream<?> outputStream = streams[jobId];
+        if (outputStream != null) {
+            if (jobResult.isSuccessful()) {
+                outputStream.close();
+            } else {
+                outputStream.fail(jobResult.getThrowable());
+            }
+        }
+        for (int i = 0; i < jobSuite.getDependencyCount(jobId); i++) {
+            if (jobSuite.isStreamingDependency(jobId, i)) {
+                streams[jobSuite.getDependencyId(jobId, i)].detach();
+            }
+        }
+        if (!canSubmitMoreJobs()) {
+            abandonUnclaimedStreams();
+        }
+    }
+
+    /**
+     * Marks the streams the submitted {@link Job} with the given id consumes
+     * so they are not abandoned anymore.
+     */
+    private void claimStreams(final int jobId) {
+        for (int i = 0; i < jobSuite.getDependencyCount(jobId); i++) {
+            if (jobSuite.isStreamingDependency(jobId, i)) {
+                streams[jobSuite.getDependencyId(jobId, i)].claim();
+            }
+        }
+    }
+
+    private void abandonUnclaimedStreams() {
+        for (final JobStream<?> stream : streams) {
+            if (stream != null) {
+                stream.abandon();
+            }
+        }
+    }
+
+    /**
+     * Records the final result of the {@link Job} with the given id.
+     *
+     * @return the id of the {@link Job} to run next on this thread or -1.
+     */
+    private int finishJob(final int jobId, final JobResult<?> finalResult, final boolean canRunInline) {
+        finalResult.setAttemptCount(attemptCounts.get(jobId));
+        finalResult.setTimes(submitTimes[jobId], startTimes[jobId], System.nanoTime());
+        finalResult.setWorkerThreadName(workerThreadNames[jobId]);
+        if (speculativeCopies != null) {
+            final SpeculativeCopy speculativeCopy = speculativeCopies.getAndSet(jobId, null);
+            finalResult.setSpeculated(speculativeCopy != null && speculativeCopy.attempt == attemptCounts.get(jobId));
+        }
+        final ResultSpill resultSpill = configuration.getResultSpill();
+        final JobResult<?> jobResult = resultSpill == null ? finalResult : resultSpill.spill(finalResult);
+        storeResult(jobId, jobResult);
+        if (remainingReaders != null) {
+            collectedDependencyResults.set(jobId, null);
+            if (remainingReaders.get(jobId) == 0 && jobSuite.getDependentCount(jobId) > 0) {
+                releaseResult(jobId);
+            }
+        }
+        if (!jobResult.isSuccessful()) {
+            failed = true;
+            if (configuration.getFailureMode() == CANCEL_RUNNING_JOBS && !stopped) {
+                stop(new CancellationException("Job " + jobSuite.getJob(jobId).getName() + " has failed."));
+            }
+        }
+        if (streams != null) {
+            closeStreams(jobId, jobResult);
+        }
+        notifyListener(jobId, jobResult);
+        return onJobFinished(jobId, canRunInline);
+    }
+
+    private void storeResult(final int jobId, final JobResult<?> jobResult) {
+        jobResult.setJobName(jobSuite.getJob(jobId).getName());
+        jobResults.set(jobId, jobResult);
+    }
+
+    private void notifyListener(final int jobId, final JobResult<?> jobResult) {
+        final Job job = jobSuite.getJob(jobId);
+        for (final JobExecutionListener executionListener : executionListeners) {
+            try {
+                executionListener.onJobFinished(job, jobResult);
+            } catch (final RuntimeException e) {
+                // a misbehaving listener must not stall the suite
+            }
+        }
+        try {
+            jobCompletionListener.accept(job, jobResult);
+        } catch (final RuntimeException e) {
+            // a misbehaving listener must not stall the suite
+        }
+    }
+
+    private JobResult<?> createFailedResult(final JobResultType jobResultType, final Throwable throwable) {
+        final JobResult<?> jobResult = new JobResult<>();
+        jobResult.setException(new ExecutionException(throwable));
+        jobResult.setJobResultType(jobResultType);
+        return jobResult;
+    }
+
+    /**
+     * Represents the duplicate of a straggling attempt of a {@link Job}.
+     */
+    private static final class SpeculativeCopy {
+
+        private final int attempt;
+        private final FutureTask<JobResult<?>> task;
+
+        private SpeculativeCopy(final int attempt, final FutureTask<JobResult<?>> task) {
+            this.attempt = attempt;
+            this.task = task;
+        }
+    }
+
+    /**
+     * Represents a {@link Job} waiting for its next attempt. Either the
+     * scheduled retry or a stop claims it, whichever comes first.
+     */
+    private static final class PendingRetry {
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final JobResult<?> lastResult;
+        private volatile ScheduledFuture<?> timer;
+
+        private PendingRetry(final JobResult<?> lastResult) {
+            this.lastResult = lastResult;
+        }
+
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -1,11 +1,12 @@
 package org.codetome.taskomat.core;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import static java.util.Optional.empty;
-import static java.util.Optional.of;
+import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -14,8 +15,11 @@ import static java.util.stream.Collectors.toList;
 public class JobSuiteResult {
 
     private final int failedJobCount;
+    private final int successfulJobCount;
     private final Map<Job, JobResult<?>> jobResults;
     private final int totalJobCount;
+    private long startTimeNanos;
+    private long endTimeNanos;
 
     /**
      * .
@@ -23,7 +27,12 @@ public class JobSuiteResult {
     public JobSuiteResult(final Map<Job, JobResult<?>> jobResults, final int totalJobCount) {
         this.totalJobCount = totalJobCount;
         this.jobResults = jobResults;
-        this.failedJobCount = totalJobCount - jobResults.size();
+        this.failedJobCount = (int) jobResults.values().stream()
+                .filter(jobResult -> jobResult.getJobResultType().isFailure())
+                .count();
+        this.successfulJobCount = (int) jobResults.values().stream()
+                .filter(JobResult::isSuccessful)
+                .count();
     }
 
     public int getTotalJobCount() {
@@ -34,6 +43,61 @@ public class JobSuiteResult {
         return failedJobCount;
     }
 
+    /**
+     * Returns the number of {@link Job}s which were not run because a
+     * {@link Job} has failed, either with an explicit
+     * {@link JobResultType#JOB_IGNORED} result or without any result.
+     */
+    public int getIgnoredJobCount() {
+        return totalJobCount - successfulJobCount - failedJobCount;
+    }
+
+    /**
+     * Returns the time from the start of the run until its last
+     * {@link Job} was finished.
+     */
+    public Duration getMakespan() {
+        return Duration.ofNanos(endTimeNanos - startTimeNanos);
+    }
+
+    /**
+     * Returns the sum of the times the {@link Job}s of this run waited after
+     * they were submitted until a thread started them.
+     */
+    public Duration getTotalQueueWait() {
+        long total = 0;
+        for (final JobResult<?> jobResult : jobResults.values()) {
+            total += queueWaitOf(jobResult);
+        }
+        return Duration.ofNanos(total);
+    }
+
+    /**
+     * Returns the longest time a {@link Job} of this run waited after it was
+     * submitted until a thread started it.
+     */
+    public Duration getMaxQueueWait() {
+        long max = 0;
+        for (final JobResult<?> jobResult : jobResults.values()) {
+            max = Math.max(max, queueWaitOf(jobResult));
+        }
+        return Duration.ofNanos(max);
+    }
+
+    private static long queueWaitOf(final JobResult<?> jobResult) {
+        return jobResult.getStartTimeNanos() == 0 || jobResult.getSubmitTimeNanos() == 0
+                ? 0 : Math.max(0, jobResult.getStartTimeNanos() - jobResult.getSubmitTimeNanos());
+    }
+
+    long getStartTimeNanos() {
+        return startTimeNanos;
+    }
+
+    void setTimes(final long startTimeNanos, final long endTimeNanos) {
+        this.startTimeNanos = startTimeNanos;
+        this.endTimeNanos = endTimeNanos;
+    }
+
     public boolean hasFailedJobs() {
         return failedJobCount > 0;
     }
@@ -47,14 +111,14 @@ public class JobSuiteResult {
      */
     public List<Throwable> fetchAllErrors() {
         return jobResults.values().stream()
-                .filter(jobResult -> !jobResult.isSuccessful())
+                .filter(jobResult -> jobResult.getJobResultType().isFailure())
                 .map(jobResult -> jobResult.getThrowable())
                 .collect(toList());
     }
 
     public List<JobResult<?>> fetchFailedJobResults() {
         return jobResults.values().stream()
-                .filter(jobResult -> !jobResult.isSuccessful()).collect(toList());
+                .filter(jobResult -> jobResult.getJobResultType().isFailure()).collect(toList());
     }
 
     @SuppressWarnings("unchecked")
@@ -65,6 +129,6 @@ public class JobSuiteResult {
 
     public Optional<Throwable> getExceptionOf(final Job job) {
         final JobResult<?> jobResult = jobResults.get(job);
-        return jobResult == null ? empty() : of(jobResults.get(job).getThrowable());
+        return jobResult == null ? empty() : ofNullable(jobResults.get(job).getThrowable());
     }
 }
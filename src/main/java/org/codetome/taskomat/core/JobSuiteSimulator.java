@@ -0,0 +1,323 @@
+package org.codetome.taskomat.core;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+import static java.util.Optional.of;
+import static org.codetome.taskomat.core.SchedulingMode.WAVE;
+
+/**
+ * Predicts how long a {@link JobSuite} takes on a pool of a given size
+ * without calling any {@link Job}. The scheduling of the
+ * {@link JobExecutorService} is replayed as a discrete event simulation with
+ * the estimated duration of each {@link Job}: the ready {@link Job}s are
+ * started in the order they became ready whenever a thread is free, the
+ * successor in a linear chain runs right away on the thread of its
+ * predecessor and the consumer of a stream runs alongside its producer but
+ * can't finish before it. In {@link SchedulingMode#WAVE} the consumer is
+ * started with the wave of its producer, otherwise once its producer has
+ * started and its other dependencies are finished. Overheads of the
+ * executor are not modeled.
+ * <p>
+ * A simulation takes <code>O(n log t)</code> for <code>n</code> {@link Job}s
+ * and <code>t</code> threads and allocates only a few arrays, so the thread
+ * count can be swept for {@link JobSuite}s with hundreds of thousands of
+ * {@link Job}s.
+ */
+public class JobSuiteSimulator {
+
+    private final JobSuite jobSuite;
+    /**
+     * The estimated duration of each {@link Job} in nanoseconds indexed by
+     * the id of the {@link Job}.
+     */
+    private final long[] costs;
+    private final long criticalPathNanos;
+
+    /**
+     * Creates a {@link JobSuiteSimulator} which takes the durations from the
+     * {@link Job#getCostHint()}s, then from the given
+     * {@link JobDurationHistory}. {@link Job}s without either are assumed to
+     * take as long as the average of the others.
+     */
+    public JobSuiteSimulator(final JobSuite jobSuite, final JobDurationHistory jobDurationHistory) {
+        this(jobSuite, jobDurationHistory.estimateCosts(jobSuite));
+    }
+
+    /**
+     * Creates a {@link JobSuiteSimulator} which takes the durations from the
+     * given {@link Map}, then from the {@link Job#getCostHint()}s.
+     * {@link Job}s without either are assumed to take as long as the average
+     * of the others.
+     */
+    public JobSuiteSimulator(final JobSuite jobSuite, final Map<Job, Duration> durations) {
+        this(jobSuite, JobDurationHistory.estimateCosts(jobSuite, job -> {
+            final Duration duration = durations.get(job);
+            if (duration != null) {
+                return of(duration);
+            }
+            return Job.requireOptional(job.getCostHint(), job, "getCostHint()");
+        }));
+    }
+
+    private JobSuiteSimulator(final JobSuite jobSuite, final long[] costs) {
+        this.jobSuite = jobSuite;
+        this.costs = costs;
+        this.criticalPathNanos = computeCriticalPathNanos();
+    }
+
+    /**
+     * Simulates a run with the given {@link SchedulingMode} on a pool of
+     * <code>threadCount</code> threads.
+     */
+    public SimulationResult simulate(final SchedulingMode schedulingMode, final int threadCount) {
+        requireNonNull(schedulingMode);
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive, got " + threadCount + ".");
+        }
+        final Simulation simulation = new Simulation(threadCount);
+        if (schedulingMode == WAVE) {
+            simulation.runWaves();
+        } else {
+            simulation.runDependencyDriven();
+        }
+        return new SimulationResult(schedulingMode, threadCount, simulation.time, criticalPathNanos, simulation.busyNanos);
+    }
+
+    /**
+     * Simulates a run for each thread count from <code>minThreadCount</code>
+     * to <code>maxThreadCount</code>.
+     */
+    public List<SimulationResult> sweep(final SchedulingMode schedulingMode, final int minThreadCount, final int maxThreadCount) {
+        if (minThreadCount < 1 || maxThreadCount < minThreadCount) {
+            throw new IllegalArgumentException("Thread counts must be positive and ordered, got " + minThreadCount + " and " + maxThreadCount + ".");
+        }
+        final List<SimulationResult> results = new ArrayList<>(maxThreadCount - minThreadCount + 1);
+        for (int threadCount = minThreadCount; threadCount <= maxThreadCount; threadCount++) {
+            results.add(simulate(schedulingMode, threadCount));
+        }
+        return results;
+    }
+
+    /**
+     * Returns the simulation with the fewest threads, up to
+     * <code>maxThreadCount</code>, whose makespan is at most
+     * <code>tolerance</code> (for example 0.05 for 5%) above the best one.
+     * More threads than that would mostly sit idle.
+     */
+    public SimulationResult recommendThreadCount(final SchedulingMode schedulingMode, final int maxThreadCount, final double tolerance) {
+        if (tolerance < 0) {
+            throw new IllegalArgumentException("Tolerance must not be negative, got " + tolerance + ".");
+        }
+        final List<SimulationResult> results = sweep(schedulingMode, 1, maxThreadCount);
+        long bestMakespan = Long.MAX_VALUE;
+        for (final SimulationResult result : results) {
+            bestMakespan = Math.min(bestMakespan, result.getMakespan().toNanos());
+        }
+        for (final SimulationResult result : results) {
+            if (result.getMakespan().toNanos() <= bestMakespan * (1 + tolerance)) {
+                return result;
+            }
+        }
+        throw new IllegalStateException("The best simulation is always within the tolerance.");
+    }
+
+    /**
+     * Returns the makespan with unlimited threads. It is not the most
+     * expensive path of {@link JobSuite#computeRemainingPathCosts(long[])}
+     * since the consumer of a stream runs together with its producer rather
+     * than after it.
+     */
+    private long computeCriticalPathNanos() {
+        final long[] startTimes = new long[costs.length];
+        final long[] finishTimes = new long[costs.length];
+        long result = 0;
+        for (int jobId = 0; jobId < costs.length; jobId++) {
+            long startTime = 0;
+            long producerFinishTime = 0;
+            for (int i = 0; i < jobSuite.getDependencyCount(jobId); i++) {
+                final int dependencyId = jobSuite.getDependencyId(jobId, i);
+                if (jobSuite.isStreamingDependency(jobId, i)) {
+                    startTime = Math.max(startTime, startTimes[dependencyId]);
+                    producerFinishTime = Math.max(producerFinishTime, finishTimes[dependencyId]);
+                } else {
+                    startTime = Math.max(startTime, finishTimes[dependencyId]);
+                }
+            }
+            startTimes[jobId] = startTime;
+            finishTimes[jobId] = Math.max(startTime + costs[jobId], producerFinishTime);
+            result = Math.max(result, finishTimes[jobId]);
+        }
+        return result;
+    }
+
+    /**
+     * Holds the state of a single simulated run.
+     */
+    private final class Simulation {
+
+        /**
+         * Contains the simulated end of each started {@link Job} indexed by
+         * the id of the {@link Job}.
+         */
+        private final long[] finishTimes = new long[costs.length];
+        private final CompletionQueue running;
+        private long time;
+        private long busyNanos;
+        private int idleThreadCount;
+
+        private Simulation(final int threadCount) {
+            this.running = new CompletionQueue(threadCount);
+            this.idleThreadCount = threadCount;
+        }
+
+        private void runWaves() {
+            for (int wave = 0; wave < jobSuite.getWaveCount(); wave++) {
+                int nextPosition = jobSuite.getWaveStart(wave);
+                final int waveEnd = jobSuite.getWaveEnd(wave);
+                while (nextPosition < waveEnd || running.size > 0) {
+                    while (idleThreadCount > 0 && nextPosition < waveEnd) {
+                        start(jobSuite.getWaveJobId(nextPosition++));
+                        idleThreadCount--;
+                    }
+                    time = running.peekTime();
+                    running.poll();
+                    idleThreadCount++;
+                }
+            }
+        }
+
+        private void runDependencyDriven() {
+            final int[] remainingDependencyCounts = jobSuite.createDependencyCounts();
+            // every job becomes ready once so the queue never wraps
+            final int[] readyJobIds = new int[costs.length];
+            int readyHead = 0;
+            int readyTail = 0;
+            for (int jobId = 0; jobId < costs.length; jobId++) {
+                if (remainingDependencyCounts[jobId] == 0) {
+                    readyJobIds[readyTail++] = jobId;
+                }
+            }
+            int finishedCount = 0;
+            while (finishedCount < costs.length) {
+                while (idleThreadCount > 0 && readyHead < readyTail) {
+                    final int jobId = readyJobIds[readyHead++];
+                    start(jobId);
+                    idleThreadCount--;
+                    final int consumerId = jobSuite.getStreamConsumerId(jobId);
+                    if (consumerId >= 0 && --remainingDependencyCounts[consumerId] == 0) {
+                        readyJobIds[readyTail++] = consumerId;
+                    }
+                }
+                time = running.peekTime();
+                final int jobId = running.poll();
+                finishedCount++;
+                final int chainSuccessorId = jobSuite.getChainSuccessor(jobId);
+                boolean threadTaken = false;
+                for (int i = 0; i < jobSuite.getDependentCount(jobId); i++) {
+                    final int dependentId = jobSuite.getDependentId(jobId, i);
+                    if (jobSuite.getStreamConsumerId(jobId) == dependentId || --remainingDependencyCounts[dependentId] != 0) {
+                        continue;
+                    }
+                    if (dependentId == chainSuccessorId) {
+                        start(dependentId);
+                        threadTaken = true;
+                    } else {
+                        readyJobIds[readyTail++] = dependentId;
+                    }
+                }
+                if (!threadTaken) {
+                    idleThreadCount++;
+                }
+            }
+        }
+
+        /**
+         * Starts the {@link Job} with the given id at the current time. A
+         * consumer of a stream holds its thread until its producer is
+         * finished.
+         */
+        private void start(final int jobId) {
+            long finishTime = time + costs[jobId];
+            for (int i = 0; i < jobSuite.getDependencyCount(jobId); i++) {
+                if (jobSuite.isStreamingDependency(jobId, i)) {
+                    finishTime = Math.max(finishTime, finishTimes[jobSuite.getDependencyId(jobId, i)]);
+                }
+            }
+            finishTimes[jobId] = finishTime;
+            busyNanos += finishTime - time;
+            running.add(finishTime, jobId);
+        }
+    }
+
+    /**
+     * A binary min heap of the running {@link Job}s ordered by their
+     * simulated end.
+     */
+    private static final class CompletionQueue {
+
+        private long[] times;
+        private int[] jobIds;
+        private int size;
+
+        private CompletionQueue(final int capacity) {
+            this.times = new long[Math.min(capacity, 1024)];
+            this.jobIds = new int[times.length];
+        }
+
+        private void add(final long time, final int jobId) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                jobIds = Arrays.copyOf(jobIds, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                final int parent = (index - 1) >>> 1;
+                if (times[parent] <= time) {
+                    break;
+                }
+                times[index] = times[parent];
+                jobIds[index] = jobIds[parent];
+                index = parent;
+            }
+            times[index] = time;
+            jobIds[index] = jobId;
+        }
+
+        private long peekTime() {
+            return times[0];
+        }
+
+        /**
+         * Removes the {@link Job} which ends first and returns its id.
+         */
+        private int poll() {
+            final int result = jobIds[0];
+            final long lastTime = times[--size];
+            final int lastJobId = jobIds[size];
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && times[child + 1] < times[child]) {
+                    child++;
+                }
+                if (lastTime <= times[child]) {
+                    break;
+                }
+                times[index] = times[child];
+                jobIds[index] = jobIds[child];
+                index = child;
+            }
+            times[index] = lastTime;
+            jobIds[index] = lastJobId;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.codetome.taskomat.core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * Wraps blocking calls in a {@link ManagedBlocker} when they are made on a
+ * worker of a {@link ForkJoinPool}, so the pool can start a spare thread
+ * while the worker is blocked and its parallelism is kept. On other threads
+ * the calls are made directly.
+ */
+final class ManagedBlocking {
+
+    private ManagedBlocking() {
+    }
+
+    /**
+     * Runs the given task which is expected to block.
+     */
+    static void run(final FutureTask<?> task) {
+        if (!ForkJoinTask.inForkJoinPool()) {
+            task.run();
+            return;
+        }
+        try {
+            ForkJoinPool.managedBlock(new ManagedBlocker() {
+                @Override
+                public boolean block() {
+                    task.run();
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return task.isDone();
+                }
+            });
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the given {@link Condition} like {@link Condition#await()}.
+     */
+    static void await(final Condition condition) throws InterruptedException {
+        if (!ForkJoinTask.inForkJoinPool()) {
+            condition.await();
+            return;
+        }
+        ForkJoinPool.managedBlock(new ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                condition.await();
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return false;
+            }
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package org.codetome.taskomat.core;
+
+/**
+ * A thread safe priority queue of job ids. It is a binary max heap stored in
+ * an <code>int</code> array so adding and polling don't allocate.
+ */
+final class ReadyJobQueue {
+
+    /**
+     * The priority of each job, indexed by job id.
+     */
+    private final long[] priorities;
+    private final int[] heap;
+    private int size = 0;
+
+    ReadyJobQueue(final long[] priorities) {
+        this.priorities = priorities;
+        this.heap = new int[priorities.length];
+    }
+
+    synchronized void add(final int jobId) {
+        int index = size++;
+        while (index > 0) {
+            final int parent = (index - 1) >>> 1;
+            if (priorities[heap[parent]] >= priorities[jobId]) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = jobId;
+    }
+
+    /**
+     * Removes and returns the job id with the highest priority or
+     * <code>-1</code> if the queue is empty.
+     */
+    synchronized int poll() {
+        if (size == 0) {
+            return -1;
+        }
+        final int result = heap[0];
+        final int last = heap[--size];
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && priorities[heap[child + 1]] > priorities[heap[child]]) {
+                child++;
+            }
+            if (priorities[last] >= priorities[heap[child]]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = last;
+        return result;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,129 @@
+package org.codetome.taskomat.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Limits how much of each resource class the running {@link Job}s of a
+ * {@link JobExecutorService} may use at the same time. A {@link Job} which
+ * can't get all of its resources is parked together with the action which
+ * starts it, so no thread waits for resources. Whenever resources are
+ * released the parked {@link Job}s are checked in arrival order and each one
+ * which fits into the available resources is started.
+ */
+final class ResourceLimiter {
+
+    private final String[] resourceClasses;
+    private final int[] capacities;
+    private final int[] available;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+
+    ResourceLimiter(final Map<String, Integer> limits) {
+        this.resourceClasses = limits.keySet().toArray(new String[0]);
+        this.capacities = new int[resourceClasses.length];
+        for (int i = 0; i < resourceClasses.length; i++) {
+            capacities[i] = limits.get(resourceClasses[i]);
+        }
+        this.available = capacities.clone();
+    }
+
+    /**
+     * Converts the resource demands of a {@link Job} to the amount needed of
+     * each limited resource class. Demands for classes without a limit are
+     * ignored and demands above a limit are capped so the {@link Job} can
+     * run at all.
+     *
+     * @return the demand indexed by resource class or <code>null</code> if
+     * the {@link Job} needs no limited resource.
+     */
+    int[] toDemand(final Map<String, Integer> resourceDemands) {
+        if (resourceDemands == null || resourceDemands.isEmpty()) {
+            return null;
+        }
+        int[] demand = null;
+        for (int i = 0; i < resourceClasses.length; i++) {
+            final Integer amount = resourceDemands.get(resourceClasses[i]);
+            if (amount != null && amount > 0) {
+                if (demand == null) {
+                    demand = new int[resourceClasses.length];
+                }
+                demand[i] = Math.min(amount, capacities[i]);
+            }
+        }
+        return demand;
+    }
+
+    /**
+     * Runs <code>onAcquired</code> on the current thread if the demanded
+     * resources are available, otherwise on the thread which releases enough
+     * of them later.
+     */
+    void acquire(final int[] demand, final Runnable onAcquired) {
+        synchronized (this) {
+            if (!tryTake(demand)) {
+                waiters.add(new Waiter(demand, onAcquired));
+                return;
+            }
+        }
+        onAcquired.run();
+    }
+
+    /**
+     * Gives back the given resources and starts the parked {@link Job}s
+     * which fit into the available resources now.
+     */
+    void release(final int[] demand) {
+        final List<Runnable> acquired = new ArrayList<>();
+        synchronized (this) {
+            for (int i = 0; i < demand.length; i++) {
+                available[i] += demand[i];
+            }
+            final Iterator<Waiter> iterator = waiters.iterator();
+            while (iterator.hasNext()) {
+                final Waiter waiter = iterator.next();
+                if (tryTake(waiter.demand)) {
+                    iterator.remove();
+                    acquired.add(waiter.onAcquired);
+                }
+            }
+        }
+        for (final Runnable onAcquired : acquired) {
+            onAcquired.run();
+        }
+    }
+
+    synchronized int getAvailable(final String resourceClass) {
+        for (int i = 0; i < resourceClasses.length; i++) {
+            if (resourceClasses[i].equals(resourceClass)) {
+                return available[i];
+            }
+        }
+        throw new IllegalArgumentException("Resource class " + resourceClass + " has no limit.");
+    }
+
+    private boolean tryTake(final int[] demand) {
+        for (int i = 0; i < demand.length; i++) {
+            if (available[i] < demand[i]) {
+                return false;
+            }
+        }
+        for (int i = 0; i < demand.length; i++) {
+            available[i] -= demand[i];
+        }
+        return true;
+    }
+
+    private static final class Waiter {
+
+        private final int[] demand;
+        private final Runnable onAcquired;
+
+        private Waiter(final int[] demand, final Runnable onAcquired) {
+            this.demand = demand;
+            this.onAcquired = onAcquired;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package org.codetome.taskomat.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Moves large {@link ByteBuffer} results from the heap into memory mapped
+ * temporary files. The file is deleted right after it is mapped where the
+ * operating system allows it, so the mapping is the only reference to the
+ * data and it disappears once the buffer is garbage collected.
+ */
+final class ResultSpill {
+
+    private final Path directory;
+    private final int thresholdBytes;
+
+    ResultSpill(final Path directory, final int thresholdBytes) {
+        this.directory = directory;
+        this.thresholdBytes = thresholdBytes;
+    }
+
+    /**
+     * Returns the given result with its value moved into a mapped file if it
+     * is a large enough {@link ByteBuffer} on the heap, otherwise the result
+     * itself.
+     */
+    JobResult<?> spill(final JobResult<?> jobResult) {
+        final Object value = jobResult.getResult().orElse(null);
+        if (!(value instanceof ByteBuffer)) {
+            return jobResult;
+        }
+        final ByteBuffer buffer = (ByteBuffer) value;
+        if (buffer.isDirect() || buffer.remaining() < thresholdBytes) {
+            return jobResult;
+        }
+        try {
+            return jobResult.withValue(map(buffer.duplicate()));
+        } catch (final IOException e) {
+            // spilling is best effort, the result stays on the heap
+            return jobResult;
+        }
+    }
+
+    private ByteBuffer map(final ByteBuffer buffer) throws IOException {
+        Files.createDirectories(directory);
+        final Path file = Files.createTempFile(directory, "job-result", ".bin");
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            return channel.map(READ_ONLY, 0, channel.size());
+        } finally {
+            try {
+                Files.delete(file);
+            } catch (final IOException e) {
+                // some systems don't delete mapped files
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+}
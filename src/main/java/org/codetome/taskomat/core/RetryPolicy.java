@@ -0,0 +1,60 @@
+package org.codetome.taskomat.core;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Represents how a failed {@link Job} is retried. The wait before each retry
+ * grows exponentially up to a maximum and is shortened by a random amount so
+ * {@link Job}s which failed together don't retry together. Use a
+ * {@link RetryPolicyBuilder} to create one.
+ */
+public final class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double backoffMultiplier;
+    private final double jitter;
+    private final Predicate<Throwable> retryOn;
+
+    RetryPolicy(final int maxAttempts,
+                final Duration initialBackoff,
+                final Duration maxBackoff,
+                final double backoffMultiplier,
+                final double jitter,
+                final Predicate<Throwable> retryOn) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.backoffMultiplier = backoffMultiplier;
+        this.jitter = jitter;
+        this.retryOn = retryOn;
+    }
+
+    /**
+     * Returns the maximum number of times a {@link Job} is called, including
+     * the first attempt.
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Tells whether the given failed attempt (counted from 1) should be
+     * followed by another one.
+     */
+    boolean shouldRetry(final int attempt, final Throwable throwable) {
+        return attempt < maxAttempts && retryOn.test(throwable);
+    }
+
+    /**
+     * Returns how long to wait after the given failed attempt (counted from 1)
+     * before the next one is started.
+     */
+    long computeBackoffNanos(final int attempt) {
+        final double backoff = Math.min(maxBackoffNanos, initialBackoffNanos * Math.pow(backoffMultiplier, attempt - 1));
+        return (long) (backoff * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+}
@@ -0,0 +1,101 @@
+package org.codetome.taskomat.core;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Responsible for building a {@link RetryPolicy}. By default a {@link Job} is
+ * attempted 3 times on any exception, waiting 100 ms before the first retry
+ * and twice as long before each further one, at most 10 s. Each wait is
+ * shortened by a random amount of up to half of it.
+ */
+public class RetryPolicyBuilder {
+
+    private int maxAttempts = 3;
+    private Duration initialBackoff = ofMillis(100);
+    private Duration maxBackoff = ofSeconds(10);
+    private double backoffMultiplier = 2;
+    private double jitter = 0.5;
+    private Predicate<Throwable> retryOn = throwable -> true;
+
+    /**
+     * Sets the maximum number of times a {@link Job} is called, including the
+     * first attempt.
+     */
+    public RetryPolicyBuilder withMaxAttempts(final int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be positive, got " + maxAttempts + ".");
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Sets the wait before the first retry and the limit the wait may grow
+     * to.
+     */
+    public RetryPolicyBuilder withBackoff(final Duration initialBackoff, final Duration maxBackoff) {
+        if (initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("Backoff must be between zero and " + maxBackoff + ", got " + initialBackoff + ".");
+        }
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        return this;
+    }
+
+    /**
+     * Sets the factor the wait is multiplied with after each failed attempt.
+     */
+    public RetryPolicyBuilder withBackoffMultiplier(final double backoffMultiplier) {
+        if (backoffMultiplier < 1) {
+            throw new IllegalArgumentException("Backoff multiplier must be at least 1, got " + backoffMultiplier + ".");
+        }
+        this.backoffMultiplier = backoffMultiplier;
+        return this;
+    }
+
+    /**
+     * Sets the largest fraction of the wait which is randomly taken off. Use
+     * 0 to disable jitter.
+     */
+    public RetryPolicyBuilder withJitter(final double jitter) {
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1, got " + jitter + ".");
+        }
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Only retries if the failure is an instance of one of the given types. A
+     * timed out {@link Job} fails with a
+     * {@link java.util.concurrent.TimeoutException}.
+     */
+    @SafeVarargs
+    public final RetryPolicyBuilder retryOn(final Class<? extends Throwable>... exceptionTypes) {
+        return retryIf(throwable -> {
+            for (final Class<? extends Throwable> exceptionType : exceptionTypes) {
+                if (exceptionType.isInstance(throwable)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Only retries if the failure matches the given {@link Predicate}.
+     */
+    public RetryPolicyBuilder retryIf(final Predicate<Throwable> retryOn) {
+        this.retryOn = requireNonNull(retryOn);
+        return this;
+    }
+
+    public RetryPolicy build() {
+        return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff, backoffMultiplier, jitter, retryOn);
+    }
+}
@@ -0,0 +1,17 @@
+package org.codetome.taskomat.core;
+
+/**
+ * Represents the possible strategies a {@link JobExecutorService} can use to
+ * decide when a {@link Job} is submitted.
+ */
+public enum SchedulingMode {
+    /**
+     * Jobs are submitted in waves and a wave is only started after every
+     * {@link Job} in the previous wave is completed
+     */
+    WAVE,
+    /**
+     * Each {@link Job} is submitted as soon as its last dependency is completed
+     */
+    DEPENDENCY_DRIVEN
+}
@@ -0,0 +1,61 @@
+package org.codetome.taskomat.core;
+
+import java.time.Duration;
+
+/**
+ * Represents the predicted outcome of running a {@link JobSuite} with a
+ * given {@link SchedulingMode} and thread count, see
+ * {@link JobSuiteSimulator}.
+ */
+public class SimulationResult {
+
+    private final SchedulingMode schedulingMode;
+    private final int threadCount;
+    private final long makespanNanos;
+    private final long criticalPathNanos;
+    private final long busyNanos;
+
+    SimulationResult(final SchedulingMode schedulingMode,
+                     final int threadCount,
+                     final long makespanNanos,
+                     final long criticalPathNanos,
+                     final long busyNanos) {
+        this.schedulingMode = schedulingMode;
+        this.threadCount = threadCount;
+        this.makespanNanos = makespanNanos;
+        this.criticalPathNanos = criticalPathNanos;
+        this.busyNanos = busyNanos;
+    }
+
+    public SchedulingMode getSchedulingMode() {
+        return schedulingMode;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * Returns the predicted time from the start of the run until its last
+     * {@link Job} is finished.
+     */
+    public Duration getMakespan() {
+        return Duration.ofNanos(makespanNanos);
+    }
+
+    /**
+     * Returns the cost of the most expensive chain of dependent
+     * {@link Job}s, the makespan no number of threads can beat.
+     */
+    public Duration getCriticalPathLength() {
+        return Duration.ofNanos(criticalPathNanos);
+    }
+
+    /**
+     * Returns the predicted share of the thread time spent running
+     * {@link Job}s, between 0 and 1.
+     */
+    public double getUtilization() {
+        return makespanNanos == 0 ? 0 : Math.min(1, (double) busyNanos / ((double) threadCount * makespanNanos));
+    }
+}
@@ -0,0 +1,64 @@
+package org.codetome.taskomat.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides when a duplicate of a running {@link Job} is started. It keeps a
+ * {@link DurationHistogram} of the successful calls of each idempotent
+ * {@link Job} by name, a {@link Job} which runs longer than
+ * <code>slowdownFactor</code> times the given percentile of its earlier
+ * calls is considered a straggler. Nothing is speculated until enough calls
+ * were recorded.
+ */
+final class SpeculationPolicy {
+
+    static final int MIN_SAMPLE_COUNT = 10;
+    /**
+     * The threshold of a {@link Job} is computed again after this many new
+     * calls were recorded, reading a percentile scans the whole histogram.
+     */
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    private final double percentile;
+    private final double slowdownFactor;
+    private final Map<String, Estimate> estimates = new ConcurrentHashMap<>();
+
+    SpeculationPolicy(final double percentile, final double slowdownFactor) {
+        this.percentile = percentile;
+        this.slowdownFactor = slowdownFactor;
+    }
+
+    void record(final String jobName, final long durationNanos) {
+        if (jobName != null) {
+            estimates.computeIfAbsent(jobName, name -> new Estimate()).histogram.record(durationNanos);
+        }
+    }
+
+    /**
+     * Returns how long a call of the {@link Job} with the given name may run
+     * before a duplicate is started, or -1 if too few calls were recorded.
+     */
+    long computeThresholdNanos(final String jobName) {
+        final Estimate estimate = jobName == null ? null : estimates.get(jobName);
+        if (estimate == null) {
+            return -1;
+        }
+        final long count = estimate.histogram.getCount();
+        if (count < MIN_SAMPLE_COUNT) {
+            return -1;
+        }
+        if (estimate.thresholdNanos < 0 || count - estimate.computedAtCount >= RECOMPUTE_INTERVAL) {
+            estimate.computedAtCount = count;
+            estimate.thresholdNanos = Math.max(1, (long) (estimate.histogram.getPercentile(percentile).toNanos() * slowdownFactor));
+        }
+        return estimate.thresholdNanos;
+    }
+
+    private static final class Estimate {
+
+        private final DurationHistogram histogram = new DurationHistogram();
+        private volatile long thresholdNanos = -1;
+        private volatile long computedAtCount;
+    }
+}
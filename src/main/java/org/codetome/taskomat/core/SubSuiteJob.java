@@ -0,0 +1,43 @@
+package org.codetome.taskomat.core;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Job} which runs a whole {@link JobSuite}. The
+ * {@link JobExecutorService} runs the {@link Job}s of the inner
+ * {@link JobSuite} on the same threads as the enclosing one and finishes
+ * this {@link Job} once they are completed, so no thread waits for them and
+ * bounded pools can't deadlock. The result of this {@link Job} is the
+ * {@link JobSuiteResult} of the inner {@link JobSuite}, it fails if any
+ * {@link Job} of the inner {@link JobSuite} fails. The inner {@link Job}s
+ * don't see the results of the dependencies of this {@link Job}. A
+ * {@link SubSuiteJob} has no timeout of its own, the {@link Job}s of the
+ * inner {@link JobSuite} keep theirs.
+ */
+public final class SubSuiteJob extends Job {
+
+    private final JobSuite jobSuite;
+
+    public SubSuiteJob(final String name, final JobSuite jobSuite) {
+        super(name);
+        this.jobSuite = requireNonNull(jobSuite);
+    }
+
+    public JobSuite getJobSuite() {
+        return jobSuite;
+    }
+
+    /**
+     * Not supported, a {@link SubSuiteJob} is only run by the
+     * {@link JobExecutorService} which runs the enclosing {@link JobSuite}.
+     * Use {@link JobExecutorService#runJobSuite(JobSuite)} with
+     * {@link #getJobSuite()} to run the inner {@link JobSuite} on its own.
+     *
+     * @throws UnsupportedOperationException always.
+     */
+    @Override
+    public JobResult<JobSuiteResult> call() throws Exception {
+        throw new UnsupportedOperationException("Sub suite " + getName()
+                + " can only be run by the JobExecutorService which runs the enclosing JobSuite.");
+    }
+}
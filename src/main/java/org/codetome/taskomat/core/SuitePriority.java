@@ -0,0 +1,22 @@
+package org.codetome.taskomat.core;
+
+/**
+ * Represents the priority classes of the runs sharing a fair pool, see
+ * {@link JobExecutorServiceBuilder#withFairSharedPool(int)}. A ready
+ * {@link Job} of a run is only started if no run of a higher class has a
+ * ready {@link Job}.
+ */
+public enum SuitePriority {
+    /**
+     * For latency sensitive runs
+     */
+    HIGH,
+    /**
+     * The default class
+     */
+    NORMAL,
+    /**
+     * For background runs which only use the threads left over by the others
+     */
+    LOW
+}
@@ -0,0 +1,93 @@
+package org.codetome.taskomat.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs a {@link JobSuite} using {@link SchedulingMode#WAVE}. The next wave is
+ * submitted by the thread which completes the last {@link Job} of the
+ * current wave. With {@link FailureMode#SKIP_DEPENDENTS} the {@link Job}s of a
+ * wave which have a failed dependency are skipped and the rest of the wave is
+ * run. A wave of a single {@link Job} is not submitted but run right away by
+ * the thread which completed the previous wave, so a linear chain runs on
+ * one thread.
+ */
+final class WaveJobSuiteExecution extends JobSuiteExecution {
+
+    private final AtomicInteger remainingWaveJobCount = new AtomicInteger();
+    /**
+     * Only touched by the thread submitting a wave and the submissions are
+     * ordered by {@link #remainingWaveJobCount}.
+     */
+    private int nextWave = 0;
+
+    WaveJobSuiteExecution(final JobSuite jobSuite,
+                          final ExecutionConfiguration configuration,
+                          final Executor executor,
+                          final BiConsumer<Job, JobResult<?>> jobCompletionListener) {
+        super(jobSuite, configuration, executor, jobCompletionListener);
+    }
+
+    @Override
+    void submitInitialJobs() {
+        submitNextWave(false);
+    }
+
+    @Override
+    void onStreamAvailable(final int producerId) {
+        // a consumer is put into the wave of its producer so it is submitted already
+    }
+
+    @Override
+    int onJobFinished(final int jobId, final boolean canRunInline) {
+        if (remainingWaveJobCount.decrementAndGet() == 0) {
+            return submitNextWave(canRunInline);
+        }
+        return -1;
+    }
+
+    /**
+     * Submits the next wave which has a {@link Job} to run.
+     *
+     * @return the id of the only {@link Job} of the wave if the caller has to
+     * run it or -1.
+     */
+    private int submitNextWave(final boolean canRunInline) {
+        final JobSuite jobSuite = getJobSuite();
+        while (canSubmitMoreJobs() && nextWave < jobSuite.getWaveCount()) {
+            final int waveStart = jobSuite.getWaveStart(nextWave);
+            final int waveEnd = jobSuite.getWaveEnd(nextWave);
+            nextWave++;
+            // apart from streams within the wave the dependencies are all finished here, the skips are
+            // decided up front since a producer may fail before its consumer in the same wave is submitted
+            final boolean[] skipped = hasFailed() ? new boolean[waveEnd - waveStart] : null;
+            int submittedJobCount = waveEnd - waveStart;
+            if (skipped != null) {
+                for (int position = waveStart; position < waveEnd; position++) {
+                    final int jobId = jobSuite.getWaveJobId(position);
+                    if (hasFailedDependency(jobId)) {
+                        skipped[position - waveStart] = true;
+                        skipJob(jobId);
+                        submittedJobCount--;
+                    }
+                }
+            }
+            if (submittedJobCount > 0) {
+                remainingWaveJobCount.set(submittedJobCount);
+                for (int position = waveStart; position < waveEnd; position++) {
+                    if (skipped == null || !skipped[position - waveStart]) {
+                        final int jobId = jobSuite.getWaveJobId(position);
+                        if (submittedJobCount == 1) {
+                            return submitOrRunInline(jobId, canRunInline);
+                        }
+                        submitJob(jobId);
+                    }
+                }
+                return -1;
+            }
+        }
+        complete();
+        return -1;
+    }
+}
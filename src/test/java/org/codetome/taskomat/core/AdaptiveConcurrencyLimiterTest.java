@@ -0,0 +1,93 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void shouldParkJobsBeyondTheLimitUntilASlotIsReleased() {
+        final AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(2, 2);
+        final List<String> started = new ArrayList<>();
+
+        underTest.acquire(() -> started.add("first"));
+        underTest.acquire(() -> started.add("second"));
+        underTest.acquire(() -> started.add("third"));
+
+        assertThat(started).containsExactly("first", "second");
+        assertThat(underTest.tryAcquire()).isEqualTo(false);
+
+        underTest.release(null, 0);
+
+        assertThat(started).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    public void shouldRaiseLimitWhileLatencyIsStableAndLowerItWhenLatencyRises() {
+        final AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(2, 64);
+        for (int i = 0; i < underTest.getLimit(); i++) {
+            underTest.acquire(() -> {
+            });
+        }
+
+        runSaturated(underTest, 1_000, 200);
+        final int raisedLimit = underTest.getLimit();
+        runSaturated(underTest, 3_000, 40);
+
+        assertThat(raisedLimit).isGreaterThan(8);
+        assertThat(underTest.getLimit()).isLessThan(raisedLimit / 2);
+    }
+
+    @Test
+    public void shouldHoldLimitNearTheKneeWhileContentionLasts() {
+        final AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(2, 64);
+        for (int i = 0; i < underTest.getLimit(); i++) {
+            underTest.acquire(() -> {
+            });
+        }
+        int maxLimit = 0;
+
+        // the jobs slow down in proportion once more than 8 of them run at once
+        for (int i = 0; i < 2_000; i++) {
+            final int inFlight = underTest.getLimit();
+            underTest.release("job", 1_000L * Math.max(8, inFlight) / 8);
+            while (underTest.tryAcquire()) {
+                // take the slots the new limit has added
+            }
+            if (i >= 200) {
+                maxLimit = Math.max(maxLimit, underTest.getLimit());
+            }
+        }
+
+        assertThat(maxLimit).isBetween(8, 24);
+    }
+
+    @Test
+    public void shouldNotRaiseLimitWhileMostOfItIsUnused() {
+        final AdaptiveConcurrencyLimiter underTest = new AdaptiveConcurrencyLimiter(4, 64);
+
+        for (int i = 0; i < 200; i++) {
+            underTest.acquire(() -> {
+            });
+            underTest.release("job", 1_000);
+        }
+
+        assertThat(underTest.getLimit()).isEqualTo(4);
+    }
+
+    /**
+     * Keeps every slot in use while feeding runs of the given duration.
+     */
+    private static void runSaturated(final AdaptiveConcurrencyLimiter limiter, final long durationNanos, final int sampleCount) {
+        for (int i = 0; i < sampleCount; i++) {
+            limiter.release("job", durationNanos);
+            while (limiter.tryAcquire()) {
+                // take the slots the new limit has added
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.Test;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChromeTraceRecorderTest {
+
+    private final Job dependencyJob = new Job("dependency \"job\"") {
+
+        @Override
+        public JobResult<String> call() throws Exception {
+            return new JobResult<>(getName());
+        }
+    };
+    private final Job dependentJob = new Job("dependentJob") {
+
+        @Override
+        public JobResult<String> call() throws Exception {
+            return new JobResult<>(getName());
+        }
+    };
+    private final JobSuite jobSuite = new JobSuiteBuilder().addJob(dependentJob, dependencyJob).addJob(dependencyJob).build();
+
+    @Test
+    public void shouldWriteSliceForEachJobAndArrowForEachDependency() throws Exception {
+        final JobSuiteResult result = new JobExecutorService().runJobSuite(jobSuite);
+        final StringWriter writer = new StringWriter();
+
+        ChromeTraceRecorder.writeTrace(jobSuite, result, writer);
+
+        final String trace = writer.toString();
+        assertThat(trace).startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[").endsWith("]}");
+        assertThat(trace).contains("\"ph\":\"X\",\"cat\":\"job\",\"name\":\"dependency \\\"job\\\"\"");
+        assertThat(trace).contains("\"ph\":\"X\",\"cat\":\"job\",\"name\":\"dependentJob\"");
+        assertThat(trace).contains("\"ph\":\"s\"", "\"ph\":\"f\"", "\"name\":\"thread_name\"");
+    }
+
+    @Test
+    public void shouldOnlyWriteTraceOfSampledRunsWhenUsedAsListener() throws Exception {
+        final Path directory = Files.createTempDirectory("traces");
+        final ChromeTraceRecorder chromeTraceRecorder = new ChromeTraceRecorder(directory, 2);
+        final JobExecutorService jobExecutorService = new JobExecutorServiceBuilder()
+                .withExecutionListener(chromeTraceRecorder)
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            jobExecutorService.runJobSuite(jobSuite);
+        }
+        chromeTraceRecorder.close();
+
+        assertThat(Files.exists(directory.resolve("trace-0.json"))).isEqualTo(true);
+        assertThat(Files.exists(directory.resolve("trace-1.json"))).isEqualTo(false);
+        assertThat(Files.exists(directory.resolve("trace-2.json"))).isEqualTo(true);
+    }
+}
@@ -0,0 +1,40 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DurationHistogramTest {
+
+    @Test
+    public void shouldReturnPercentilesWithinSixteenthOfRecordedValues() {
+        final DurationHistogram underTest = new DurationHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            underTest.record(nanos * 1000);
+        }
+
+        assertThat(underTest.getCount()).isEqualTo(100_000);
+        assertThat(underTest.getPercentile(50).toNanos()).isBetween(50_000_000L, 50_000_000L + 50_000_000L / 16);
+        assertThat(underTest.getPercentile(99).toNanos()).isBetween(99_000_000L, 99_000_000L + 99_000_000L / 16);
+        assertThat(underTest.getPercentile(100).toNanos()).isEqualTo(100_000_000L);
+        assertThat(underTest.getMax().toNanos()).isEqualTo(100_000_000L);
+    }
+
+    @Test
+    public void shouldMapEachValueToBucketWhichContainsIt() {
+        for (long nanos = 0; nanos < 100_000; nanos++) {
+            final int bucket = DurationHistogram.bucketOf(nanos);
+            assertThat(DurationHistogram.lowestValueOf(bucket)).isLessThanOrEqualTo(nanos);
+            assertThat(DurationHistogram.lowestValueOf(bucket + 1)).isGreaterThan(nanos);
+        }
+        assertThat(DurationHistogram.bucketOf(Long.MAX_VALUE)).isLessThan((64 - 4) * 16);
+    }
+
+    @Test
+    public void shouldReturnZeroWhenNothingIsRecorded() {
+        final DurationHistogram underTest = new DurationHistogram();
+
+        assertThat(underTest.getPercentile(99).isZero()).isEqualTo(true);
+        assertThat(underTest.getMean().isZero()).isEqualTo(true);
+    }
+}
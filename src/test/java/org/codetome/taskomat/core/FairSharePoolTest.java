@@ -0,0 +1,132 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.concurrent.Executors.defaultThreadFactory;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.codetome.taskomat.core.SuitePriority.HIGH;
+import static org.codetome.taskomat.core.SuitePriority.LOW;
+import static org.codetome.taskomat.core.SuitePriority.NORMAL;
+
+public class FairSharePoolTest {
+
+    @Test
+    public void shouldRunTasksOfHigherPriorityFirst() throws InterruptedException {
+        final FairSharePool underTest = new FairSharePool(1, defaultThreadFactory());
+        final Executor low = underTest.newShare(LOW, 1);
+        final Executor high = underTest.newShare(HIGH, 1);
+        final List<String> started = new CopyOnWriteArrayList<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(5);
+        try {
+            low.execute(() -> awaitQuietly(release));
+            for (int i = 0; i < 2; i++) {
+                low.execute(() -> record(started, "low", done));
+            }
+            for (int i = 0; i < 3; i++) {
+                high.execute(() -> record(started, "high", done));
+            }
+            release.countDown();
+
+            assertThat(done.await(10, SECONDS)).isTrue();
+            assertThat(started).containsExactly("high", "high", "high", "low", "low");
+        } finally {
+            underTest.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldShareThreadTimeInProportionToWeight() throws InterruptedException {
+        final FairSharePool underTest = new FairSharePool(1, defaultThreadFactory());
+        final Executor light = underTest.newShare(NORMAL, 1);
+        final Executor heavy = underTest.newShare(NORMAL, 3);
+        final List<String> started = new CopyOnWriteArrayList<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(80);
+        try {
+            light.execute(() -> awaitQuietly(release));
+            for (int i = 0; i < 40; i++) {
+                light.execute(() -> sleepAndRecord(started, "light", done));
+                heavy.execute(() -> sleepAndRecord(started, "heavy", done));
+            }
+            release.countDown();
+
+            assertThat(done.await(10, SECONDS)).isTrue();
+            assertThat(started.subList(0, 40).stream().filter("heavy"::equals).count()).isBetween(24L, 36L);
+        } finally {
+            underTest.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRunTaskWhenItsWorkerIsInterruptedWhileBeingWokenUp() throws InterruptedException {
+        final List<Thread> workers = new CopyOnWriteArrayList<>();
+        final FairSharePool underTest = new FairSharePool(1, runnable -> {
+            final Thread worker = defaultThreadFactory().newThread(runnable);
+            workers.add(worker);
+            return worker;
+        });
+        final Executor share = underTest.newShare(NORMAL, 1);
+        final CountDownLatch first = new CountDownLatch(1);
+        final CountDownLatch second = new CountDownLatch(1);
+        try {
+            share.execute(first::countDown);
+            assertThat(first.await(10, SECONDS)).isTrue();
+            while (workers.get(0).getState() != Thread.State.WAITING) {
+                Thread.sleep(1);
+            }
+
+            // the worker sees the wake-up and a late interrupt, like one from the cancellation of a timed out job
+            synchronized (underTest) {
+                share.execute(second::countDown);
+                workers.get(0).interrupt();
+            }
+
+            assertThat(second.await(10, SECONDS)).isTrue();
+        } finally {
+            underTest.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldRejectTasksAfterShutdown() {
+        final FairSharePool underTest = new FairSharePool(1, defaultThreadFactory());
+        final Executor share = underTest.newShare(NORMAL, 1);
+
+        underTest.shutdown();
+
+        assertThatThrownBy(() -> share.execute(() -> {
+        })).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    private static void record(final List<String> started, final String name, final CountDownLatch done) {
+        started.add(name);
+        done.countDown();
+    }
+
+    private static void sleepAndRecord(final List<String> started, final String name, final CountDownLatch done) {
+        started.add(name);
+        try {
+            Thread.sleep(1);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        done.countDown();
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
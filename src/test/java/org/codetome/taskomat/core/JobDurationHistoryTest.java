@@ -0,0 +1,37 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static java.time.Duration.ofNanos;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobDurationHistoryTest {
+
+    private JobDurationHistory underTest;
+
+    @BeforeMethod
+    public void setUp() {
+        underTest = new JobDurationHistory();
+    }
+
+    @Test
+    public void shouldReturnEmptyEstimateWhenJobWasNeverRecorded() {
+        assertThat(underTest.getEstimate("unknown").isPresent()).isEqualTo(false);
+    }
+
+    @Test
+    public void shouldMoveEstimateTowardsLatestMeasurementWhenRecordIsCalled() {
+        underTest.record("job", 1000);
+        underTest.record("job", 2000);
+
+        assertThat(underTest.getEstimate("job").get()).isEqualTo(ofNanos(1250));
+    }
+
+    @Test
+    public void shouldIgnoreJobsWithoutNameWhenRecordIsCalled() {
+        underTest.record(null, 1000);
+
+        assertThat(underTest.getEstimate(null).isPresent()).isEqualTo(false);
+    }
+}
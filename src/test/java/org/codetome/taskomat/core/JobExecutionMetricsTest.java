@@ -0,0 +1,51 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobExecutionMetricsTest {
+
+    private static final long JOB_DURATION_MILLIS = 50;
+
+    @Test
+    public void shouldReportTimingsAndParallelismWhenJobSuiteIsRun() {
+        final Job a = new SleepingJob("a");
+        final Job b = new SleepingJob("b");
+        final Job c = new SleepingJob("c");
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(a).addJob(b).addJob(c, a, b).build();
+        final JobExecutionMetrics underTest = new JobExecutionMetrics();
+        final JobExecutorService jobExecutorService = new JobExecutorServiceBuilder()
+                .withExecutionListener(underTest)
+                .build();
+
+        final JobSuiteResult result = jobExecutorService.runJobSuite(jobSuite);
+
+        assertThat(underTest.getSubmittedJobCount()).isEqualTo(3);
+        assertThat(underTest.getStartedJobCount()).isEqualTo(3);
+        assertThat(underTest.getFinishedJobCount()).isEqualTo(3);
+        assertThat(underTest.getFinishedSuiteCount()).isEqualTo(1);
+        assertThat(underTest.getPeakParallelism()).isEqualTo(2);
+        assertThat(underTest.getAverageParallelism()).isBetween(1.0, 2.0);
+        assertThat(underTest.getRunTimes().getCount()).isEqualTo(3);
+        assertThat(underTest.getRunTimes().getPercentile(0).toMillis()).isGreaterThanOrEqualTo(JOB_DURATION_MILLIS);
+        assertThat(underTest.getCriticalPathLengths().getMax().toMillis()).isGreaterThanOrEqualTo(2 * JOB_DURATION_MILLIS);
+        assertThat(underTest.getMakespans().getMax()).isEqualTo(result.getMakespan());
+        assertThat(result.getMakespan()).isGreaterThanOrEqualTo(underTest.getCriticalPathLengths().getMax());
+        assertThat(result.getJobResults().get(c).getRunTime().toMillis()).isGreaterThanOrEqualTo(JOB_DURATION_MILLIS);
+    }
+
+    private static class SleepingJob extends Job {
+
+        SleepingJob(final String name) {
+            super(name);
+        }
+
+        @Override
+        public JobResult<String> call() throws Exception {
+            MILLISECONDS.sleep(JOB_DURATION_MILLIS);
+            return new JobResult<>(getName());
+        }
+    }
+}
@@ -1,11 +1,46 @@
 package org.codetome.taskomat.core;
 
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static java.time.Duration.ofMillis;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonMap;
+import static java.util.Optional.of;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.codetome.taskomat.core.FailureMode.CANCEL_RUNNING_JOBS;
+import static org.codetome.taskomat.core.FailureMode.SKIP_DEPENDENTS;
+import static org.codetome.taskomat.core.JobResultType.CANCELLED;
+import static org.codetome.taskomat.core.JobResultType.JOB_IGNORED;
+import static org.codetome.taskomat.core.JobResultType.TIMED_OUT;
+import static org.codetome.taskomat.core.SchedulingMode.DEPENDENCY_DRIVEN;
+import static org.codetome.taskomat.core.SchedulingMode.WAVE;
+import static org.codetome.taskomat.core.SuitePriority.HIGH;
+import static org.codetome.taskomat.core.SuitePriority.LOW;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
@@ -15,8 +50,7 @@ public class JobExecutorServiceTest {
     private static final String EXPECTED_JOB_RESULT = "WOMBAT";
     private static final String EXPECTED_DEPENDENT_JOB_RESULT = EXPECTED_DEPENDENCY_JOB_RESULT + " " + EXPECTED_JOB_RESULT;
 
-    @InjectMocks
-    private JobExecutorService underTest;
+    private final JobExecutorService underTest = new JobExecutorService();
 
     @Mock
     private Job a;
@@ -140,4 +174,1495 @@ public class JobExecutorServiceTest {
         assertThat(result.getResultOf(e).get()).isEqualTo(4);
         assertThat(result.getExceptionOf(c).get()).isInstanceOf(RuntimeException.class);
     }
+
+    @Test
+    public void shouldRunDependentJobWithCorrectResultWhenRunJobSuiteIsCalledInDependencyDrivenMode() {
+        final Job dependencyJob = new Job("dependencyJob") {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                return new JobResult<String>(EXPECTED_DEPENDENCY_JOB_RESULT);
+            }
+        };
+        final Job dependentJob = new Job("dependentJob") {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                final String dependencyResult = this.<String>getDependencyResult(0);
+                return new JobResult<String>(dependencyResult + " " + EXPECTED_JOB_RESULT);
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(dependentJob, dependencyJob).addJob(dependencyJob).build();
+
+        final JobSuiteResult result = new JobExecutorService(DEPENDENCY_DRIVEN).runJobSuite(jobSuite);
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getResultOf(dependentJob).get()).isEqualTo(EXPECTED_DEPENDENT_JOB_RESULT);
+    }
+
+    @Test
+    public void shouldNotWaitForSlowJobBeforeStartingUnrelatedDependentWhenRunJobSuiteIsCalledInDependencyDrivenMode() {
+        final CountDownLatch dependentJobStarted = new CountDownLatch(1);
+        final Job slowJob = new Job("slowJob") {
+
+            @Override
+            public JobResult<Boolean> call() throws Exception {
+                return new JobResult<>(dependentJobStarted.await(5, SECONDS));
+            }
+        };
+        final Job fastJob = new Job("fastJob") {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                return new JobResult<>(EXPECTED_DEPENDENCY_JOB_RESULT);
+            }
+        };
+        final Job dependentJob = new Job("dependentJob") {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                dependentJobStarted.countDown();
+                return new JobResult<>(EXPECTED_JOB_RESULT);
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder()//
+                .addJob(slowJob)//
+                .addJob(fastJob)//
+                .addJob(dependentJob, fastJob)//
+                .build();
+
+        final JobSuiteResult result = new JobExecutorService(DEPENDENCY_DRIVEN).runJobSuite(jobSuite);
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getResultOf(slowJob).get()).isEqualTo(true);
+        assertThat(result.getResultOf(dependentJob).get()).isEqualTo(EXPECTED_JOB_RESULT);
+    }
+
+    @Test
+    public void shouldNotStartDependentsOfFailedJobWhenRunJobSuiteIsCalledInDependencyDrivenMode() {
+        final Job dependencyJob = new Job("dependencyJob") {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                throw new RuntimeException();
+            }
+        };
+        final Job dependentJob = new Job("dependentJob") {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                return new JobResult<String>(EXPECTED_JOB_RESULT);
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(dependentJob, dependencyJob).addJob(dependencyJob).build();
+
+        final JobSuiteResult result = new JobExecutorService(DEPENDENCY_DRIVEN).runJobSuite(jobSuite);
+
+        assertThat(result.hasFailedJobs()).isEqualTo(true);
+        assertThat(result.getResultOf(dependentJob).isPresent()).isEqualTo(false);
+        assertThat(result.getExceptionOf(dependencyJob).get()).isInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    public void shouldOnlySkipDependentsOfFailedJobWhenFailureModeIsSkipDependentsInWaveMode() throws Exception {
+        shouldOnlySkipDependentsOfFailedJob(WAVE);
+    }
+
+    @Test
+    public void shouldOnlySkipDependentsOfFailedJobWhenFailureModeIsSkipDependentsInDependencyDrivenMode() throws Exception {
+        shouldOnlySkipDependentsOfFailedJob(DEPENDENCY_DRIVEN);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void shouldOnlySkipDependentsOfFailedJob(final SchedulingMode schedulingMode) throws Exception {
+        final JobSuite jobSuite = new JobSuiteBuilder()//
+                .addJob(f, c)//
+                .addJob(g, f, d)//
+                .addJob(h, e)//
+                .addJob(c, a)//
+                .addJob(d, a, b)//
+                .addJob(e, b)//
+                .addJob(a)//
+                .addJob(b)//
+                .build();
+        when(a.call()).thenReturn(new JobResult(1));
+        when(b.call()).thenReturn(new JobResult(2));
+        when(c.call()).thenThrow(RuntimeException.class);
+        when(d.call()).thenReturn(new JobResult(3));
+        when(e.call()).thenReturn(new JobResult(4));
+        when(h.call()).thenReturn(new JobResult(5));
+        final List<Job> reportedJobs = new CopyOnWriteArrayList<>();
+        final JobExecutorService skipDependents = new JobExecutorServiceBuilder()
+                .withSchedulingMode(schedulingMode)
+                .withFailureMode(SKIP_DEPENDENTS)
+                .build();
+
+        final JobSuiteResult result = skipDependents.runJobSuiteAsync(jobSuite, (job, jobResult) -> reportedJobs.add(job))
+                .get(5, SECONDS);
+
+        assertThat(result.getFailedJobCount()).isEqualTo(1);
+        assertThat(result.getIgnoredJobCount()).isEqualTo(2);
+        assertThat(result.fetchAllErrors()).hasSize(1);
+        assertThat(result.getJobResults().get(f).getJobResultType()).isEqualTo(JOB_IGNORED);
+        assertThat(result.getJobResults().get(g).getJobResultType()).isEqualTo(JOB_IGNORED);
+        assertThat(result.getExceptionOf(g).isPresent()).isEqualTo(false);
+        assertThat(result.getResultOf(d).get()).isEqualTo(3);
+        assertThat(result.getResultOf(h).get()).isEqualTo(5);
+        assertThat(reportedJobs).hasSize(8);
+    }
+
+    @Test
+    public void shouldRunLinearChainOnOneThreadWhenRunJobSuiteIsCalledInWaveMode() {
+        shouldRunLinearChainOnOneThread(WAVE);
+    }
+
+    @Test
+    public void shouldRunLinearChainOnOneThreadWhenRunJobSuiteIsCalledInDependencyDrivenMode() {
+        shouldRunLinearChainOnOneThread(DEPENDENCY_DRIVEN);
+    }
+
+    private void shouldRunLinearChainOnOneThread(final SchedulingMode schedulingMode) {
+        final JobSuiteBuilder jobSuiteBuilder = new JobSuiteBuilder();
+        Job previousJob = null;
+        // long enough to overflow the stack if the chain was continued recursively
+        for (int i = 0; i < 10_000; i++) {
+            final Job job = new Job("chainJob" + i) {
+                @Override
+                public JobResult<?> call() throws Exception {
+                    return new JobResult<>(getName());
+                }
+            };
+            if (previousJob == null) {
+                jobSuiteBuilder.addJob(job);
+            } else {
+                jobSuiteBuilder.addJob(job, previousJob);
+            }
+            previousJob = job;
+        }
+        final JobExecutorService withPool = new JobExecutorServiceBuilder()
+                .withSchedulingMode(schedulingMode)
+                .withFixedThreadPool(4)
+                .build();
+
+        final JobSuiteResult result;
+        try {
+            result = withPool.runJobSuite(jobSuiteBuilder.build());
+        } finally {
+            withPool.shutdown();
+        }
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getJobResults()).hasSize(10_000);
+        assertThat(result.getJobResults().values().stream().map(JobResult::getWorkerThreadName).distinct().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRunSpawnedJobsBeforeDependentsOfSpawningJobWhenRunJobSuiteIsCalledInWaveMode() {
+        shouldRunSpawnedJobsBeforeDependentsOfSpawningJob(WAVE);
+    }
+
+    @Test
+    public void shouldRunSpawnedJobsBeforeDependentsOfSpawningJobWhenRunJobSuiteIsCalledInDependencyDrivenMode() {
+        shouldRunSpawnedJobsBeforeDependentsOfSpawningJob(DEPENDENCY_DRIVEN);
+    }
+
+    private void shouldRunSpawnedJobsBeforeDependentsOfSpawningJob(final SchedulingMode schedulingMode) {
+        final List<String> finishedJobNames = new CopyOnWriteArrayList<>();
+        final Job partitionSum = new Job("partitionSum") {
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                int sum = 0;
+                for (final JobResult<?> dependencyResult : getDependencyResults()) {
+                    sum += (Integer) dependencyResult.getResult().get();
+                }
+                finishedJobNames.add(getName());
+                return new JobResult<>(sum);
+            }
+        };
+        final Job discoverPartitions = new Job("discoverPartitions") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                final Job[] partitions = new Job[4];
+                for (int i = 0; i < partitions.length; i++) {
+                    final int partition = i;
+                    partitions[i] = new Job("partition" + partition) {
+                        @Override
+                        public JobResult<Integer> call() throws Exception {
+                            finishedJobNames.add(getName());
+                            return new JobResult<>(partition);
+                        }
+                    };
+                    spawn(partitions[i]);
+                }
+                spawn(partitionSum, partitions);
+                return new JobResult<>(getName());
+            }
+        };
+        final Job report = new Job("report") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                finishedJobNames.add(getName());
+                return new JobResult<>(getDependencyResult(0));
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder()
+                .addJob(discoverPartitions)
+                .addJob(report, discoverPartitions)
+                .build();
+
+        final JobSuiteResult result = new JobExecutorService(schedulingMode).runJobSuite(jobSuite);
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getTotalJobCount()).isEqualTo(7);
+        assertThat(result.getJobResults()).hasSize(7);
+        assertThat(result.getResultOf(partitionSum).get()).isEqualTo(6);
+        assertThat(result.getResultOf(report).get()).isEqualTo("discoverPartitions");
+        assertThat(finishedJobNames).hasSize(6);
+        assertThat(finishedJobNames.subList(4, 6)).containsExactly("partitionSum", "report");
+    }
+
+    @Test
+    public void shouldFailSpawningJobAndNotRunItsDependentsWhenSpawnedJobFails() throws Exception {
+        final AtomicBoolean dependentStarted = new AtomicBoolean();
+        final Job spawningJob = new Job("spawningJob") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                spawn(new Job("failingChild") {
+                    @Override
+                    public JobResult<String> call() throws Exception {
+                        throw new IllegalStateException("Child failure");
+                    }
+                });
+                return new JobResult<>(getName());
+            }
+        };
+        final Job dependentJob = new Job("dependentJob") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                dependentStarted.set(true);
+                return new JobResult<>(getName());
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder()
+                .addJob(spawningJob)
+                .addJob(dependentJob, spawningJob)
+                .build();
+
+        final JobSuiteResult result = new JobExecutorService(DEPENDENCY_DRIVEN).runJobSuite(jobSuite);
+
+        assertThat(result.getFailedJobCount()).isEqualTo(2);
+        assertThat(result.getExceptionOf(spawningJob).get().getCause()).hasMessage("Child failure");
+        assertThat(dependentStarted.get()).isEqualTo(false);
+    }
+
+    @Test
+    public void shouldRunSubSuiteOnSingleThreadWhenRunJobSuiteIsCalledInWaveMode() throws Exception {
+        shouldRunSubSuiteOnSingleThread(WAVE);
+    }
+
+    @Test
+    public void shouldRunSubSuiteOnSingleThreadWhenRunJobSuiteIsCalledInDependencyDrivenMode() throws Exception {
+        shouldRunSubSuiteOnSingleThread(DEPENDENCY_DRIVEN);
+    }
+
+    private void shouldRunSubSuiteOnSingleThread(final SchedulingMode schedulingMode) throws Exception {
+        final Job extract = new Job("extract") {
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                return new JobResult<>(2);
+            }
+        };
+        final Job transform = new Job("transform") {
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                return new JobResult<>(this.<Integer>getDependencyResult(0) * 3);
+            }
+        };
+        final SubSuiteJob etl = new SubSuiteJob("etl", new JobSuiteBuilder()
+                .addJob(extract)
+                .addJob(transform, extract)
+                .build());
+        final Job report = new Job("report") {
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                return new JobResult<>(this.<JobSuiteResult>getDependencyResult(0).<Integer>getResultOf(transform).get());
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder()
+                .addJob(etl)
+                .addJob(report, etl)
+                .build();
+        // a sub suite which waited for its jobs would hold the only thread they could run on
+        final JobExecutorService singleThread = new JobExecutorServiceBuilder()
+                .withSchedulingMode(schedulingMode)
+                .withFixedThreadPool(1)
+                .build();
+
+        final JobSuiteResult result;
+        try {
+            result = singleThread.runJobSuiteAsync(jobSuite).get(5, SECONDS);
+        } finally {
+            singleThread.shutdown();
+        }
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getJobResults()).hasSize(2);
+        assertThat(result.getResultOf(report).get()).isEqualTo(6);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void shouldNotRunSubSuiteJobWhenItIsCalledDirectly() throws Exception {
+        new SubSuiteJob("subSuiteJob", new JobSuiteBuilder().addJob(new RecordingJob("inner", Optional.empty(), new CopyOnWriteArrayList<>())).build()).call();
+    }
+
+    @Test
+    public void shouldFailSubSuiteJobAndNotRunItsDependentsWhenInnerJobFails() {
+        final AtomicBoolean dependentStarted = new AtomicBoolean();
+        final SubSuiteJob subSuiteJob = new SubSuiteJob("subSuiteJob", new JobSuiteBuilder()
+                .addJob(new Job("failingInnerJob") {
+                    @Override
+                    public JobResult<String> call() throws Exception {
+                        throw new IllegalStateException("Inner failure");
+                    }
+                })
+                .build());
+        final Job dependentJob = new Job("dependentJob") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                dependentStarted.set(true);
+                return new JobResult<>(getName());
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder()
+                .addJob(subSuiteJob)
+                .addJob(dependentJob, subSuiteJob)
+                .build();
+
+        final JobSuiteResult result = new JobExecutorService(DEPENDENCY_DRIVEN).runJobSuite(jobSuite);
+
+        assertThat(result.getFailedJobCount()).isEqualTo(1);
+        assertThat(result.getExceptionOf(subSuiteJob).get().getCause()).hasMessage("Inner failure");
+        assertThat(dependentStarted.get()).isEqualTo(false);
+    }
+
+    @Test
+    public void shouldRejectSpawnedDependencyWhichClosesACycle() {
+        final AtomicBoolean rejected = new AtomicBoolean();
+        final Job spawningJob = new Job("spawningJob") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                final Job first = new RecordingJob("first", Optional.empty(), new CopyOnWriteArrayList<>());
+                final Job second = new RecordingJob("second", Optional.empty(), new CopyOnWriteArrayList<>());
+                spawn(first);
+                spawn(second, first);
+                try {
+                    spawn(first, second);
+                } catch (final CircularDependencyException e) {
+                    rejected.set(true);
+                }
+                return new JobResult<>(getName());
+            }
+        };
+
+        final JobSuiteResult result = underTest.runJobSuite(new JobSuiteBuilder().addJob(spawningJob).build());
+
+        assertThat(rejected.get()).isEqualTo(true);
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getJobResults()).hasSize(3);
+    }
+
+    @Test
+    public void shouldRunConsumerWithItsProducerWhenAnUnrelatedDependencyEndsTheWaveInWaveMode() throws Exception {
+        final Job producer = new Job("producer") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                for (int i = 1; i <= 100; i++) {
+                    publish(i);
+                }
+                return new JobResult<>(getName());
+            }
+        };
+        final Job consumer = new Job("consumer") {
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                int sum = 0;
+                final JobStream<Integer> elements = getDependencyResult(0);
+                for (final Integer element : elements) {
+                    sum += element;
+                }
+                return new JobResult<>(sum);
+            }
+        };
+        final Job unrelated = new RecordingJob("unrelated", Optional.empty(), new CopyOnWriteArrayList<>());
+        final Job unrelatedDependent = new RecordingJob("unrelatedDependent", Optional.empty(), new CopyOnWriteArrayList<>());
+        final JobSuite jobSuite = new JobSuiteBuilder()
+                .addJob(unrelated)
+                .addJob(producer)
+                .addJob(unrelatedDependent, unrelated)
+                .addStreamingJob(consumer, producer, 2)
+                .build();
+
+        final JobSuiteResult result = new JobExecutorService().runJobSuiteAsync(jobSuite).get(5, SECONDS);
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getResultOf(consumer).get()).isEqualTo(5050);
+    }
+
+    @Test
+    public void shouldStartConsumerBeforeProducerIsFinishedWhenRunJobSuiteIsCalledInWaveMode() {
+        shouldStartConsumerBeforeProducerIsFinished(WAVE);
+    }
+
+    @Test
+    public void shouldStartConsumerBeforeProducerIsFinishedWhenRunJobSuiteIsCalledInDependencyDrivenMode() {
+        shouldStartConsumerBeforeProducerIsFinished(DEPENDENCY_DRIVEN);
+    }
+
+    private void shouldStartConsumerBeforeProducerIsFinished(final SchedulingMode schedulingMode) {
+        final Job producer = new Job("producer") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                for (int i = 1; i <= 1000; i++) {
+                    publish(i);
+                }
+                return new JobResult<>(getName());
+            }
+        };
+        final Job consumer = new Job("consumer") {
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                int sum = 0;
+                final JobStream<Integer> elements = getDependencyResult(0);
+                for (final Integer element : elements) {
+                    sum += element;
+                }
+                return new JobResult<>(sum);
+            }
+        };
+        final Job report = new Job("report") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                return new JobResult<>("sum " + getDependencyResult(0));
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder()
+                .addJob(producer)
+                .addStreamingJob(consumer, producer, 4)
+                .addJob(report, consumer)
+                .build();
+        final JobExecutorService withPool = new JobExecutorServiceBuilder()
+                .withSchedulingMode(schedulingMode)
+                .withFixedThreadPool(2)
+                .build();
+
+        final JobSuiteResult result;
+        try {
+            result = withPool.runJobSuite(jobSuite);
+        } finally {
+            withPool.shutdown();
+        }
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getResultOf(report).get()).isEqualTo("sum 500500");
+        assertThat(result.getJobResults().get(consumer).getStartTimeNanos())
+                .isLessThan(result.getJobResults().get(producer).getEndTimeNanos());
+    }
+
+    @Test
+    public void shouldFailConsumerWhenProducerFailsAfterPublishing() {
+        final Job producer = new Job("producer") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                publish("first");
+                throw new IllegalStateException("Producer failure");
+            }
+        };
+        final List<Object> consumedElements = new CopyOnWriteArrayList<>();
+        final Job consumer = new Job("consumer") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                final JobStream<String> elements = getDependencyResult(0);
+                elements.forEach(consumedElements::add);
+                return new JobResult<>(getName());
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder()
+                .addJob(producer)
+                .addStreamingJob(consumer, producer, 4)
+                .build();
+
+        final JobSuiteResult result = new JobExecutorService(DEPENDENCY_DRIVEN).runJobSuite(jobSuite);
+
+        assertThat(result.getFailedJobCount()).isEqualTo(2);
+        assertThat(consumedElements).containsExactly("first");
+        assertThat(result.getExceptionOf(consumer).get().getCause()).hasMessage("Producer failure");
+    }
+
+    @Test
+    public void shouldRunConsumerOfFailingProducerWhenEarlierWaveFailedAndFailureModeIsSkipDependents() throws Exception {
+        final Job failingJob = new Job("failingJob") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                throw new IllegalStateException("Earlier failure");
+            }
+        };
+        final Job root = new RecordingJob("root", Optional.empty(), new CopyOnWriteArrayList<>());
+        final Job producer = new Job("producer") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                throw new IllegalStateException("Producer failure");
+            }
+        };
+        final Job consumer = new Job("consumer") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                final JobStream<String> elements = getDependencyResult(0);
+                elements.forEach(element -> {
+                });
+                return new JobResult<>(getName());
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder()
+                .addJob(failingJob)
+                .addJob(root)
+                .addJob(producer, root)
+                .addStreamingJob(consumer, producer, 4)
+                .build();
+        // runs each job on the submitting thread so the producer fails before its consumer is submitted
+        final ExecutorService callerRuns = new AbstractExecutorService() {
+            @Override
+            public void execute(final Runnable command) {
+                command.run();
+            }
+
+            @Override
+            public void shutdown() {
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return emptyList();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return false;
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return false;
+            }
+
+            @Override
+            public boolean awaitTermination(final long timeout, final TimeUnit unit) {
+                return false;
+            }
+        };
+        final JobExecutorService skipDependents = new JobExecutorServiceBuilder()
+                .withSchedulingMode(WAVE)
+                .withFailureMode(SKIP_DEPENDENTS)
+                .withExecutorService(callerRuns)
+                .build();
+
+        final JobSuiteResult result = skipDependents.runJobSuiteAsync(jobSuite).get(5, SECONDS);
+
+        assertThat(result.getFailedJobCount()).isEqualTo(3);
+        assertThat(result.getExceptionOf(consumer).get().getCause()).hasMessage("Producer failure");
+    }
+
+    @Test
+    public void shouldReturnBeforeJobsAreCompletedAndReportEachJobWhenRunJobSuiteAsyncIsCalled() throws Exception {
+        final CountDownLatch releaseDependencyJob = new CountDownLatch(1);
+        final List<String> completedJobNames = new CopyOnWriteArrayList<>();
+        final Job dependencyJob = new Job("dependencyJob") {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                releaseDependencyJob.await(5, SECONDS);
+                return new JobResult<String>(EXPECTED_DEPENDENCY_JOB_RESULT);
+            }
+        };
+        final Job dependentJob = new Job("dependentJob") {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                final String dependencyResult = this.<String>getDependencyResult(0);
+                return new JobResult<String>(dependencyResult + " " + EXPECTED_JOB_RESULT);
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(dependentJob, dependencyJob).addJob(dependencyJob).build();
+
+        final CompletableFuture<JobSuiteResult> futureResult = underTest.runJobSuiteAsync(jobSuite,
+                (job, jobResult) -> completedJobNames.add(jobResult.getJobName().get()));
+
+        assertThat(futureResult.isDone()).isEqualTo(false);
+        releaseDependencyJob.countDown();
+        final JobSuiteResult result = futureResult.get(5, SECONDS);
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getResultOf(dependentJob).get()).isEqualTo(EXPECTED_DEPENDENT_JOB_RESULT);
+        assertThat(completedJobNames).containsExactly("dependencyJob", "dependentJob");
+    }
+
+    @Test
+    public void shouldRunSameJobSuiteConcurrentlyWhenRunJobSuiteAsyncIsCalledMoreThanOnce() {
+        final CountDownLatch bothRunsStarted = new CountDownLatch(2);
+        final Job dependencyJob = new Job("dependencyJob") {
+
+            @Override
+            public JobResult<Boolean> call() throws Exception {
+                bothRunsStarted.countDown();
+                return new JobResult<>(bothRunsStarted.await(5, SECONDS));
+            }
+        };
+        final Job dependentJob = new Job("dependentJob") {
+
+            @Override
+            public JobResult<Boolean> call() throws Exception {
+                return new JobResult<>(this.<Boolean>getDependencyResult(0));
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(dependentJob, dependencyJob).addJob(dependencyJob).build();
+        final JobExecutorService dependencyDriven = new JobExecutorService(DEPENDENCY_DRIVEN);
+
+        final CompletableFuture<JobSuiteResult> first = dependencyDriven.runJobSuiteAsync(jobSuite);
+        final CompletableFuture<JobSuiteResult> second = underTest.runJobSuiteAsync(jobSuite);
+
+        assertThat(first.join().<Boolean>getResultOf(dependentJob).get()).isEqualTo(true);
+        assertThat(second.join().<Boolean>getResultOf(dependentJob).get()).isEqualTo(true);
+    }
+
+    @Test
+    public void shouldStartJobsOnLongestRemainingPathFirstWhenCriticalPathSchedulingIsUsed() throws Exception {
+        final List<String> startedJobNames = new CopyOnWriteArrayList<>();
+        final Job a = new RecordingJob("a", of(ofMillis(1)), startedJobNames);
+        final Job b = new RecordingJob("b", of(ofMillis(1)), startedJobNames);
+        final Job c = new RecordingJob("c", of(ofMillis(10)), startedJobNames);
+        final Job d = new RecordingJob("d", Optional.empty(), startedJobNames);
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(a).addJob(b).addJob(c, b).addJob(d).build();
+        final ExecutorService executorService = newSingleThreadExecutor();
+        final CountDownLatch gate = new CountDownLatch(1);
+        executorService.execute(() -> {
+            try {
+                gate.await(5, SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        final JobExecutorService criticalPathScheduling = new JobExecutorServiceBuilder()
+                .withSchedulingMode(DEPENDENCY_DRIVEN)
+                .withExecutorService(executorService)
+                .withCriticalPathScheduling()
+                .build();
+
+        final CompletableFuture<JobSuiteResult> result = criticalPathScheduling.runJobSuiteAsync(jobSuite);
+        gate.countDown();
+
+        assertThat(result.get(5, SECONDS).hasFailedJobs()).isEqualTo(false);
+        assertThat(startedJobNames).containsExactly("b", "c", "d", "a");
+        assertThat(criticalPathScheduling.getJobDurationHistory().getEstimate("d").isPresent()).isEqualTo(true);
+        executorService.shutdown();
+    }
+
+    @Test
+    public void shouldInterruptJobAndRecordTimeoutWhenJobRunsLongerThanItsTimeout() {
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final Job hangingJob = new HangingJob("hangingJob", interrupted) {
+
+            @Override
+            public Optional<Duration> getTimeout() {
+                return of(ofMillis(50));
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(hangingJob).build();
+
+        final JobSuiteResult result = underTest.runJobSuite(jobSuite);
+
+        assertThat(result.hasFailedJobs()).isEqualTo(true);
+        assertThat(result.getJobResults().get(hangingJob).getJobResultType()).isEqualTo(TIMED_OUT);
+        assertThat(result.getExceptionOf(hangingJob).get()).isInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    public void shouldRetryFailedJobAndReportAttemptCountWhenJobHasRetryPolicy() {
+        final Job flakyJob = new FlakyJob("flakyJob", 2, new RetryPolicyBuilder()
+                .withMaxAttempts(3)
+                .withBackoff(ofMillis(1), ofMillis(5))
+                .build());
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(flakyJob).build();
+
+        final JobSuiteResult result = underTest.runJobSuite(jobSuite);
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getResultOf(flakyJob).get()).isEqualTo("flakyJob");
+        assertThat(result.getJobResults().get(flakyJob).getAttemptCount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldNotRetryFailedJobWhenExceptionIsNotRetriable() {
+        final Job flakyJob = new FlakyJob("flakyJob", 2, new RetryPolicyBuilder()
+                .withBackoff(ofMillis(1), ofMillis(5))
+                .retryOn(IOException.class)
+                .build());
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(flakyJob).build();
+
+        final JobSuiteResult result = underTest.runJobSuite(jobSuite);
+
+        assertThat(result.getFailedJobCount()).isEqualTo(1);
+        assertThat(result.getExceptionOf(flakyJob).get()).isInstanceOf(IllegalStateException.class);
+        assertThat(result.getJobResults().get(flakyJob).getAttemptCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRunOtherJobsWhileFailedJobIsWaitingForRetry() {
+        final List<String> startedJobNames = new CopyOnWriteArrayList<>();
+        final Job flakyJob = new FlakyJob("flakyJob", 1, new RetryPolicyBuilder()
+                .withBackoff(ofMillis(200), ofMillis(200))
+                .withJitter(0)
+                .build()) {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                startedJobNames.add(getName());
+                return super.call();
+            }
+        };
+        final Job otherJob = new RecordingJob("otherJob", Optional.empty(), startedJobNames);
+        final Job dependentJob = new RecordingJob("dependentJob", Optional.empty(), startedJobNames);
+        final JobSuite jobSuite = new JobSuiteBuilder()
+                .addJob(flakyJob)
+                .addJob(otherJob)
+                .addJob(dependentJob, otherJob)
+                .build();
+        final JobExecutorService singleThread = new JobExecutorServiceBuilder()
+                .withSchedulingMode(DEPENDENCY_DRIVEN)
+                .withFixedThreadPool(1)
+                .build();
+
+        final JobSuiteResult result = singleThread.runJobSuite(jobSuite);
+        singleThread.shutdown();
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(startedJobNames).containsExactly("flakyJob", "otherJob", "dependentJob", "flakyJob");
+    }
+
+    @Test
+    public void shouldTakeResultFromCacheWhenDependencyResultsAreUnchanged() {
+        final AtomicInteger input = new AtomicInteger(1);
+        final AtomicInteger callCount = new AtomicInteger();
+        final Job dependencyJob = new Job("dependencyJob") {
+
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                return new JobResult<>(input.get());
+            }
+        };
+        final Job cachedJob = new Job("cachedJob") {
+
+            @Override
+            public Optional<String> getCacheKey() {
+                return of("cachedJob-v1");
+            }
+
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                callCount.incrementAndGet();
+                return new JobResult<>(this.<Integer>getDependencyResult(0) * 10);
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(cachedJob, dependencyJob).addJob(dependencyJob).build();
+        final JobExecutorService withCache = new JobExecutorServiceBuilder()
+                .withJobResultCache(new JobResultCache(10))
+                .build();
+
+        final JobSuiteResult first = withCache.runJobSuite(jobSuite);
+        final JobSuiteResult second = withCache.runJobSuite(jobSuite);
+        input.set(2);
+        final JobSuiteResult third = withCache.runJobSuite(jobSuite);
+
+        assertThat(first.getJobResults().get(cachedJob).isCacheHit()).isEqualTo(false);
+        assertThat(second.getJobResults().get(cachedJob).isCacheHit()).isEqualTo(true);
+        assertThat(second.getResultOf(cachedJob).get()).isEqualTo(10);
+        assertThat(third.getResultOf(cachedJob).get()).isEqualTo(20);
+        assertThat(callCount.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldOnlyRunJobsMissingFromJournalWhenRunIsResumed() throws Exception {
+        final List<String> startedJobNames = new CopyOnWriteArrayList<>();
+        final Job dependencyJob = new RecordingJob("dependencyJob", Optional.empty(), startedJobNames);
+        final Job dependentJob = new Job("dependentJob") {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                startedJobNames.add(getName());
+                return new JobResult<>(this.<String>getDependencyResult(0) + " " + EXPECTED_JOB_RESULT);
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(dependentJob, dependencyJob).addJob(dependencyJob).build();
+        final Path file = Files.createTempFile("job-journal", ".log");
+        try (JobJournal journal = new JobJournal(file)) {
+            journal.record("crashedRun", "dependencyJob", new JobResult<>(EXPECTED_DEPENDENCY_JOB_RESULT));
+        }
+
+        final JobSuiteResult result;
+        try (JobJournal journal = new JobJournal(file)) {
+            final JobExecutorService journaled = new JobExecutorServiceBuilder()
+                    .withJobJournal(journal)
+                    .build();
+            journaled.runJobSuite(new JobSuiteBuilder().addJob(dependencyJob).build());
+            journaled.runJobSuite(jobSuite, "otherRun");
+            // neither a run without a run id nor another run takes the recorded result
+            assertThat(startedJobNames).containsExactly("dependencyJob", "dependencyJob", "dependentJob");
+            startedJobNames.clear();
+            result = journaled.resumeJobSuite(jobSuite, "crashedRun");
+            journal.flush();
+            assertThat(journal.getCompletedJobCount("crashedRun")).isEqualTo(0);
+        }
+
+        assertThat(startedJobNames).containsExactly("dependentJob");
+        assertThat(result.getResultOf(dependentJob).get()).isEqualTo(EXPECTED_DEPENDENT_JOB_RESULT);
+    }
+
+    @Test
+    public void shouldNotRunMoreJobsOfResourceClassAtOnceThanItsLimit() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final JobSuiteBuilder jobSuiteBuilder = new JobSuiteBuilder();
+        for (int i = 0; i < 6; i++) {
+            jobSuiteBuilder.addJob(new Job("memoryHeavyJob" + i) {
+
+                @Override
+                public Map<String, Integer> getResourceDemands() {
+                    return singletonMap("memory", 2);
+                }
+
+                @Override
+                public JobResult<String> call() throws Exception {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                    return new JobResult<>(getName());
+                }
+            });
+        }
+        final JobExecutorService withLimit = new JobExecutorServiceBuilder()
+                .withSchedulingMode(DEPENDENCY_DRIVEN)
+                .withResourceLimit("memory", 4)
+                .build();
+
+        final JobSuiteResult result = withLimit.runJobSuite(jobSuiteBuilder.build());
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getJobResults()).hasSize(6);
+        assertThat(peak.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRunHighPriorityRunAheadOfQueuedJobsWhenFairSharedPoolIsUsed() {
+        final JobSuiteBuilder lowPriorityBuilder = new JobSuiteBuilder();
+        for (int i = 0; i < 20; i++) {
+            lowPriorityBuilder.addJob(new Job("backgroundJob" + i) {
+
+                @Override
+                public JobResult<String> call() throws Exception {
+                    Thread.sleep(5);
+                    return new JobResult<>(getName());
+                }
+            });
+        }
+        final Job urgentJob = new Job("urgentJob") {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                return new JobResult<>(getName());
+            }
+        };
+        final JobExecutorService withFairPool = new JobExecutorServiceBuilder()
+                .withSchedulingMode(DEPENDENCY_DRIVEN)
+                .withFairSharedPool(1)
+                .build();
+
+        try {
+            final CompletableFuture<JobSuiteResult> background =
+                    withFairPool.runJobSuiteAsync(lowPriorityBuilder.build(), LOW, 1);
+            final JobSuiteResult urgent = withFairPool.runJobSuite(new JobSuiteBuilder().addJob(urgentJob).build(), HIGH, 1);
+
+            assertThat(urgent.hasFailedJobs()).isEqualTo(false);
+            assertThat(background.isDone()).isEqualTo(false);
+            final JobSuiteResult backgroundResult = background.join();
+            assertThat(backgroundResult.getJobResults()).hasSize(20);
+            assertThat(backgroundResult.getMaxQueueWait()).isGreaterThan(urgent.getMaxQueueWait());
+            assertThat(backgroundResult.getTotalQueueWait()).isGreaterThanOrEqualTo(backgroundResult.getMaxQueueWait());
+        } finally {
+            withFairPool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldReleaseIntermediateResultsOnceAllDependentsHaveStartedWhenResultReleaseIsUsed() {
+        final Job source = new Job("source") {
+
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                return new JobResult<>(1);
+            }
+        };
+        final Job checkpoint = new Job("checkpoint") {
+
+            @Override
+            public boolean isResultKept() {
+                return true;
+            }
+
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                return new JobResult<>(this.<Integer>getDependencyResult(0) + 1);
+            }
+        };
+        final Job sink = new Job("sink") {
+
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                return new JobResult<>(this.<Integer>getDependencyResult(0) + 1);
+            }
+        };
+        final JobExecutorService withRelease = new JobExecutorServiceBuilder()
+                .withSchedulingMode(DEPENDENCY_DRIVEN)
+                .withResultRelease()
+                .build();
+
+        final JobSuiteResult result = withRelease.runJobSuite(new JobSuiteBuilder()
+                .addJob(source).addJob(checkpoint, source).addJob(sink, checkpoint).build());
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getJobResults().get(source).isReleased()).isEqualTo(true);
+        assertThat(result.getJobResults().get(source).isSuccessful()).isEqualTo(true);
+        assertThat(result.getResultOf(source).isPresent()).isEqualTo(false);
+        assertThat(result.getResultOf(checkpoint).get()).isEqualTo(2);
+        assertThat(result.getResultOf(sink).get()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldMoveLargeBufferResultsIntoMappedFilesWhenResultSpillIsUsed() throws IOException {
+        final Path spillDirectory = Files.createTempDirectory("job-results");
+        final Job producer = new Job("producer") {
+
+            @Override
+            public JobResult<ByteBuffer> call() throws Exception {
+                final byte[] bytes = new byte[4096];
+                Arrays.fill(bytes, (byte) 7);
+                return new JobResult<>(ByteBuffer.wrap(bytes));
+            }
+        };
+        final Job consumer = new Job("consumer") {
+
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                final ByteBuffer buffer = getDependencyResult(0);
+                int sum = 0;
+                while (buffer.hasRemaining()) {
+                    sum += buffer.get();
+                }
+                return new JobResult<>(sum);
+            }
+        };
+        final JobExecutorService withSpill = new JobExecutorServiceBuilder()
+                .withResultSpill(spillDirectory, 1024)
+                .build();
+
+        final JobSuiteResult result = withSpill.runJobSuite(new JobSuiteBuilder()
+                .addJob(producer).addJob(consumer, producer).build());
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.<ByteBuffer>getResultOf(producer).get().isDirect()).isEqualTo(true);
+        assertThat(result.getResultOf(consumer).get()).isEqualTo(7 * 4096);
+        try (Stream<Path> spilledFiles = Files.list(spillDirectory)) {
+            assertThat(spilledFiles.count()).isEqualTo(0);
+        }
+        Files.delete(spillDirectory);
+    }
+
+    @Test
+    public void shouldRunHighFanOutGraphWhenWorkStealingPoolIsUsed() {
+        final Job root = new Job("root") {
+
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                return new JobResult<>(1);
+            }
+        };
+        final Job[] leaves = new Job[1000];
+        final JobSuiteBuilder jobSuiteBuilder = new JobSuiteBuilder().addJob(root);
+        for (int i = 0; i < leaves.length; i++) {
+            leaves[i] = new Job("leaf" + i) {
+
+                @Override
+                public JobResult<Integer> call() throws Exception {
+                    return new JobResult<>(this.<Integer>getDependencyResult(0));
+                }
+            };
+            jobSuiteBuilder.addJob(leaves[i], root);
+        }
+        final Job sink = new Job("sink") {
+
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                return new JobResult<>(getDependencyResults().stream()
+                        .mapToInt(jobResult -> (Integer) jobResult.getResult().get())
+                        .sum());
+            }
+        };
+        jobSuiteBuilder.addJob(sink, leaves);
+        final JobExecutorService workStealing = new JobExecutorServiceBuilder()
+                .withSchedulingMode(DEPENDENCY_DRIVEN)
+                .withWorkStealingPool(4)
+                .build();
+
+        final JobSuiteResult result;
+        try {
+            result = workStealing.runJobSuite(jobSuiteBuilder.build());
+        } finally {
+            workStealing.shutdown();
+        }
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getResultOf(sink).get()).isEqualTo(1000);
+    }
+
+    @Test
+    public void shouldStartSpareThreadForBlockingJobsWhenWorkStealingPoolIsUsed() {
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final JobSuiteBuilder jobSuiteBuilder = new JobSuiteBuilder();
+        final Job[] blockingJobs = new Job[2];
+        for (int i = 0; i < blockingJobs.length; i++) {
+            blockingJobs[i] = new Job("blockingJob" + i) {
+
+                @Override
+                public boolean isBlocking() {
+                    return true;
+                }
+
+                @Override
+                public JobResult<Boolean> call() throws Exception {
+                    bothStarted.countDown();
+                    return new JobResult<>(bothStarted.await(5, SECONDS));
+                }
+            };
+            jobSuiteBuilder.addJob(blockingJobs[i]);
+        }
+        final JobExecutorService workStealing = new JobExecutorServiceBuilder()
+                .withWorkStealingPool(1)
+                .build();
+
+        final JobSuiteResult result;
+        try {
+            result = workStealing.runJobSuite(jobSuiteBuilder.build());
+        } finally {
+            workStealing.shutdown();
+        }
+
+        assertThat(result.<Boolean>getResultOf(blockingJobs[0]).get()).isEqualTo(true);
+        assertThat(result.<Boolean>getResultOf(blockingJobs[1]).get()).isEqualTo(true);
+    }
+
+    @Test
+    public void shouldTakeResultOfDuplicateWhenIdempotentJobStragglesAndSpeculativeExecutionIsUsed() {
+        final AtomicBoolean straggleNextCall = new AtomicBoolean();
+        final Job idempotentJob = new Job("idempotentJob") {
+
+            @Override
+            public boolean isIdempotent() {
+                return true;
+            }
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                if (straggleNextCall.getAndSet(false)) {
+                    Thread.sleep(10_000);
+                    return new JobResult<>("straggler");
+                }
+                return new JobResult<>("duplicate");
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(idempotentJob).build();
+        final JobExecutionMetrics metrics = new JobExecutionMetrics();
+        final JobExecutorService speculative = new JobExecutorServiceBuilder()
+                .withSpeculativeExecution(99, 2)
+                .withExecutionListener(metrics)
+                .build();
+        for (int i = 0; i < SpeculationPolicy.MIN_SAMPLE_COUNT; i++) {
+            assertThat(speculative.runJobSuite(jobSuite).getJobResults().get(idempotentJob).isSpeculated()).isEqualTo(false);
+        }
+        straggleNextCall.set(true);
+
+        final JobSuiteResult result = speculative.runJobSuite(jobSuite);
+
+        final JobResult<?> jobResult = result.getJobResults().get(idempotentJob);
+        assertThat(result.getResultOf(idempotentJob).get()).isEqualTo("duplicate");
+        assertThat(jobResult.isSpeculated()).isEqualTo(true);
+        assertThat(jobResult.isFromSpeculativeCopy()).isEqualTo(true);
+        assertThat(result.getMakespan()).isLessThan(Duration.ofSeconds(5));
+        assertThat(metrics.getSpeculatedJobCount()).isEqualTo(1);
+        assertThat(metrics.getSpeculativeWinCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRecordTimeSinceOriginalAttemptStartedWhenDuplicateWins() {
+        final AtomicBoolean straggleNextCall = new AtomicBoolean();
+        final Job idempotentJob = new Job("idempotentJob") {
+
+            @Override
+            public boolean isIdempotent() {
+                return true;
+            }
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                if (straggleNextCall.getAndSet(false)) {
+                    Thread.sleep(10_000);
+                    return new JobResult<>("straggler");
+                }
+                Thread.sleep(20);
+                return new JobResult<>("duplicate");
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(idempotentJob).build();
+        final List<Long> recordedDurations = new CopyOnWriteArrayList<>();
+        final JobExecutorService speculative = new JobExecutorServiceBuilder()
+                .withSpeculativeExecution(99, 2)
+                .withJobDurationHistory(new JobDurationHistory() {
+                    @Override
+                    public void record(final String jobName, final long durationNanos) {
+                        recordedDurations.add(durationNanos);
+                        super.record(jobName, durationNanos);
+                    }
+                })
+                .build();
+        for (int i = 0; i < SpeculationPolicy.MIN_SAMPLE_COUNT; i++) {
+            speculative.runJobSuite(jobSuite);
+        }
+        straggleNextCall.set(true);
+
+        final JobSuiteResult result = speculative.runJobSuite(jobSuite);
+
+        assertThat(result.getJobResults().get(idempotentJob).isFromSpeculativeCopy()).isEqualTo(true);
+        // the duplicate alone took about 20 ms, it was started once the original had run for twice as long
+        assertThat(recordedDurations.get(recordedDurations.size() - 1)).isGreaterThanOrEqualTo(ofMillis(40).toNanos());
+    }
+
+    @Test
+    public void shouldNotDuplicateStragglerWhenAdaptiveConcurrencyLimitHasNoFreeSlot() {
+        final AtomicBoolean straggleNextCall = new AtomicBoolean();
+        final Job idempotentJob = new Job("idempotentJob") {
+
+            @Override
+            public boolean isIdempotent() {
+                return true;
+            }
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                if (straggleNextCall.getAndSet(false)) {
+                    Thread.sleep(300);
+                    return new JobResult<>("straggler");
+                }
+                return new JobResult<>("duplicate");
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(idempotentJob).build();
+        final JobExecutorService speculative = new JobExecutorServiceBuilder()
+                .withSpeculativeExecution(99, 2)
+                .withAdaptiveConcurrencyLimit(1, 1)
+                .build();
+        for (int i = 0; i < SpeculationPolicy.MIN_SAMPLE_COUNT; i++) {
+            speculative.runJobSuite(jobSuite);
+        }
+        straggleNextCall.set(true);
+
+        final JobSuiteResult result = speculative.runJobSuite(jobSuite);
+
+        assertThat(result.getResultOf(idempotentJob).get()).isEqualTo("straggler");
+        assertThat(result.getJobResults().get(idempotentJob).isSpeculated()).isEqualTo(false);
+        assertThat(speculative.getConcurrencyLimit().getAsInt()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotReportRetryAsSpeculatedWhenOnlyTimedOutAttemptWasDuplicated() {
+        final AtomicBoolean straggle = new AtomicBoolean();
+        final Job idempotentJob = new Job("idempotentJob") {
+
+            @Override
+            public boolean isIdempotent() {
+                return true;
+            }
+
+            @Override
+            public Optional<Duration> getTimeout() {
+                return of(ofMillis(300));
+            }
+
+            @Override
+            public Optional<RetryPolicy> getRetryPolicy() {
+                return of(new RetryPolicyBuilder()
+                        .withMaxAttempts(2)
+                        .withBackoff(ofMillis(1), ofMillis(5))
+                        .build());
+            }
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                if (!straggle.get()) {
+                    Thread.sleep(20);
+                    return new JobResult<>("regular");
+                }
+                try {
+                    Thread.sleep(10_000);
+                    return new JobResult<>("straggler");
+                } catch (final InterruptedException e) {
+                    // the timeout has cancelled the attempt and its duplicate, the retry runs fast
+                    straggle.set(false);
+                    throw e;
+                }
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(idempotentJob).build();
+        final JobExecutionMetrics metrics = new JobExecutionMetrics();
+        final JobExecutorService speculative = new JobExecutorServiceBuilder()
+                .withSpeculativeExecution(99, 2)
+                .withExecutionListener(metrics)
+                .build();
+        for (int i = 0; i < SpeculationPolicy.MIN_SAMPLE_COUNT; i++) {
+            speculative.runJobSuite(jobSuite);
+        }
+        straggle.set(true);
+
+        final JobSuiteResult result = speculative.runJobSuite(jobSuite);
+
+        final JobResult<?> jobResult = result.getJobResults().get(idempotentJob);
+        assertThat(result.getResultOf(idempotentJob).get()).isEqualTo("regular");
+        assertThat(jobResult.getAttemptCount()).isEqualTo(2);
+        assertThat(jobResult.isSpeculated()).isEqualTo(false);
+        assertThat(jobResult.isFromSpeculativeCopy()).isEqualTo(false);
+        assertThat(metrics.getSpeculatedJobCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotRunMoreJobsAtOnceThanTheAdaptiveConcurrencyLimit() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final JobSuiteBuilder jobSuiteBuilder = new JobSuiteBuilder();
+        for (int i = 0; i < 6; i++) {
+            jobSuiteBuilder.addJob(new Job("limitedJob" + i) {
+
+                @Override
+                public JobResult<String> call() throws Exception {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                    return new JobResult<>(getName());
+                }
+            });
+        }
+        final JobExecutorService withLimit = new JobExecutorServiceBuilder()
+                .withSchedulingMode(DEPENDENCY_DRIVEN)
+                .withAdaptiveConcurrencyLimit(2, 2)
+                .build();
+
+        final JobSuiteResult result = withLimit.runJobSuite(jobSuiteBuilder.build());
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getJobResults()).hasSize(6);
+        assertThat(peak.get()).isEqualTo(2);
+        assertThat(withLimit.getConcurrencyLimit()).isEqualTo(OptionalInt.of(2));
+        assertThat(underTest.getConcurrencyLimit().isPresent()).isEqualTo(false);
+    }
+
+    @Test
+    public void shouldNotLetProducerStarveItsConsumerWhenAdaptiveConcurrencyLimitIsOne() throws Exception {
+        final Job producer = new Job("producer") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                for (int i = 1; i <= 100; i++) {
+                    publish(i);
+                }
+                return new JobResult<>(getName());
+            }
+        };
+        final Job consumer = new Job("consumer") {
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                int sum = 0;
+                final JobStream<Integer> elements = getDependencyResult(0);
+                for (final Integer element : elements) {
+                    sum += element;
+                }
+                return new JobResult<>(sum);
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder()
+                .addJob(producer)
+                .addStreamingJob(consumer, producer, 2)
+                .build();
+        final JobExecutorService limited = new JobExecutorServiceBuilder()
+                .withSchedulingMode(DEPENDENCY_DRIVEN)
+                .withAdaptiveConcurrencyLimit(1, 1)
+                .build();
+
+        final JobSuiteResult result = limited.runJobSuiteAsync(jobSuite).get(5, SECONDS);
+
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(result.getResultOf(consumer).get()).isEqualTo(5050);
+        assertThat(limited.getConcurrencyLimit().getAsInt()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCancelRunningJobsWhenAJobFailsAndFailureModeIsCancelRunningJobs() throws Exception {
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final CountDownLatch hangingJobStarted = new CountDownLatch(1);
+        final Job hangingJob = new HangingJob("hangingJob", interrupted) {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                hangingJobStarted.countDown();
+                return super.call();
+            }
+        };
+        final Job failingJob = new Job("failingJob") {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                hangingJobStarted.await(5, SECONDS);
+                throw new IllegalStateException();
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(hangingJob).addJob(failingJob).build();
+        final JobExecutorService cancelRunningJobs = new JobExecutorServiceBuilder()
+                .withFailureMode(CANCEL_RUNNING_JOBS)
+                .build();
+
+        final JobSuiteResult result = cancelRunningJobs.runJobSuiteAsync(jobSuite).get(5, SECONDS);
+
+        assertThat(result.getFailedJobCount()).isEqualTo(2);
+        assertThat(result.getJobResults().get(hangingJob).getJobResultType()).isEqualTo(CANCELLED);
+        assertThat(result.getExceptionOf(failingJob).get()).isInstanceOf(IllegalStateException.class);
+        assertThat(waitFor(interrupted)).isEqualTo(true);
+    }
+
+    @Test
+    public void shouldCancelRunningJobsWhenSuiteDeadlineHasPassed() throws Exception {
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final Job hangingJob = new HangingJob("hangingJob", interrupted);
+        final Job dependentJob = new HangingJob("dependentJob", new AtomicBoolean());
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(hangingJob).addJob(dependentJob, hangingJob).build();
+        final JobExecutorService withDeadline = new JobExecutorServiceBuilder()
+                .withSuiteDeadline(ofMillis(50))
+                .build();
+
+        final JobSuiteResult result = withDeadline.runJobSuiteAsync(jobSuite).get(5, SECONDS);
+        withDeadline.shutdown();
+
+        assertThat(result.hasFailedJobs()).isEqualTo(true);
+        assertThat(result.getJobResults().get(hangingJob).getJobResultType()).isEqualTo(CANCELLED);
+        assertThat(result.getResultOf(dependentJob).isPresent()).isEqualTo(false);
+        assertThat(waitFor(interrupted)).isEqualTo(true);
+    }
+
+    @Test
+    public void shouldInterruptRunningJobsWhenReturnedFutureIsCancelled() throws Exception {
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        final CountDownLatch hangingJobStarted = new CountDownLatch(1);
+        final Job hangingJob = new HangingJob("hangingJob", interrupted) {
+
+            @Override
+            public JobResult<String> call() throws Exception {
+                hangingJobStarted.countDown();
+                return super.call();
+            }
+        };
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(hangingJob).build();
+
+        final CompletableFuture<JobSuiteResult> result = underTest.runJobSuiteAsync(jobSuite);
+        hangingJobStarted.await(5, SECONDS);
+        result.cancel(true);
+
+        assertThat(waitFor(interrupted)).isEqualTo(true);
+    }
+
+    private static boolean waitFor(final AtomicBoolean flag) throws InterruptedException {
+        for (int i = 0; i < 500 && !flag.get(); i++) {
+            Thread.sleep(10);
+        }
+        return flag.get();
+    }
+
+    private static class HangingJob extends Job {
+
+        private final AtomicBoolean interrupted;
+
+        HangingJob(final String name, final AtomicBoolean interrupted) {
+            super(name);
+            this.interrupted = interrupted;
+        }
+
+        @Override
+        public JobResult<String> call() throws Exception {
+            try {
+                Thread.sleep(10_000);
+            } catch (final InterruptedException e) {
+                interrupted.set(true);
+                throw e;
+            }
+            return new JobResult<>(getName());
+        }
+    }
+
+    private static class FlakyJob extends Job {
+
+        private final AtomicInteger remainingFailures;
+        private final RetryPolicy retryPolicy;
+
+        FlakyJob(final String name, final int failureCount, final RetryPolicy retryPolicy) {
+            super(name);
+            this.remainingFailures = new AtomicInteger(failureCount);
+            this.retryPolicy = retryPolicy;
+        }
+
+        @Override
+        public Optional<RetryPolicy> getRetryPolicy() {
+            return of(retryPolicy);
+        }
+
+        @Override
+        public JobResult<String> call() throws Exception {
+            if (remainingFailures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Flaky failure");
+            }
+            return new JobResult<>(getName());
+        }
+    }
+
+    private static class RecordingJob extends Job {
+
+        private final Optional<Duration> costHint;
+        private final List<String> startedJobNames;
+
+        RecordingJob(final String name, final Optional<Duration> costHint, final List<String> startedJobNames) {
+            super(name);
+            this.costHint = costHint;
+            this.startedJobNames = startedJobNames;
+        }
+
+        @Override
+        public Optional<Duration> getCostHint() {
+            return costHint;
+        }
+
+        @Override
+        public JobResult<String> call() throws Exception {
+            startedJobNames.add(getName());
+            return new JobResult<>(getName());
+        }
+    }
 }
@@ -0,0 +1,167 @@
+package org.codetome.taskomat.core;
+
+import org.testng.SkipException;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.Executors.defaultThreadFactory;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.codetome.taskomat.core.SchedulingMode.DEPENDENCY_DRIVEN;
+
+public class JobExecutorServiceThroughputTest {
+
+    private static final int SUITE_COUNT = 300;
+    private static final int THREAD_COUNT = 4;
+    private static final int BLOCKING_JOB_COUNT = 500;
+    private static final long BLOCKING_JOB_MILLIS = 100;
+
+    @Test
+    public void shouldCreateThreadsForEveryRunWhenUsingPerRunPool() {
+        final CountingThreadFactory threadFactory = new CountingThreadFactory();
+        final JobExecutorService underTest = new JobExecutorServiceBuilder()
+                .withThreadFactory(threadFactory)
+                .build();
+
+        final double throughput = runSmallSuites(underTest);
+
+        assertThat(throughput).isPositive();
+        assertThat(threadFactory.createdThreadCount()).isGreaterThanOrEqualTo(SUITE_COUNT);
+    }
+
+    @Test
+    public void shouldReuseThreadsAcrossRunsWhenUsingFixedThreadPool() {
+        final CountingThreadFactory perRunThreadFactory = new CountingThreadFactory();
+        final CountingThreadFactory threadFactory = new CountingThreadFactory();
+        final JobExecutorService perRunPool = new JobExecutorServiceBuilder()
+                .withThreadFactory(perRunThreadFactory)
+                .build();
+        final JobExecutorService underTest = new JobExecutorServiceBuilder()
+                .withFixedThreadPool(THREAD_COUNT)
+                .withThreadFactory(threadFactory)
+                .build();
+
+        runSmallSuites(perRunPool);
+        runSmallSuites(underTest);
+        runSmallSuites(underTest);
+        underTest.shutdown();
+
+        // the throughput gain of reusing threads is measured by JobExecutorServiceBenchmark
+        assertThat(perRunThreadFactory.createdThreadCount()).isGreaterThanOrEqualTo(SUITE_COUNT);
+        assertThat(threadFactory.createdThreadCount()).isLessThanOrEqualTo(THREAD_COUNT);
+    }
+
+    @Test
+    public void shouldNotShutDownSuppliedExecutorServiceWhenShutdownIsCalled() {
+        final CountingThreadFactory threadFactory = new CountingThreadFactory();
+        final ExecutorService executorService = newFixedThreadPool(THREAD_COUNT, threadFactory);
+        final JobExecutorService underTest = new JobExecutorServiceBuilder()
+                .withExecutorService(executorService)
+                .build();
+
+        final double throughput = runSmallSuites(underTest);
+        underTest.shutdown();
+
+        assertThat(throughput).isPositive();
+        assertThat(threadFactory.createdThreadCount()).isLessThanOrEqualTo(THREAD_COUNT);
+        assertThat(executorService.isShutdown()).isFalse();
+        executorService.shutdown();
+    }
+
+    @Test
+    public void shouldRunBlockingJobsConcurrentlyWhenUsingVirtualThreads() {
+        if (!VirtualThreads.isSupported()) {
+            throw new SkipException("Virtual threads are not supported by this JVM");
+        }
+        final JobExecutorService underTest = new JobExecutorServiceBuilder()
+                .withSchedulingMode(DEPENDENCY_DRIVEN)
+                .withVirtualThreads()
+                .build();
+        final JobSuiteBuilder jobSuiteBuilder = new JobSuiteBuilder();
+        for (int i = 0; i < BLOCKING_JOB_COUNT; i++) {
+            jobSuiteBuilder.addJob(new SleepingJob("blocking" + i));
+        }
+
+        final long start = System.nanoTime();
+        final JobSuiteResult result = underTest.runJobSuite(jobSuiteBuilder.build());
+        final long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        underTest.shutdown();
+
+        assertThat(result.hasFailedJobs()).isFalse();
+        assertThat(elapsedMillis).isLessThan(BLOCKING_JOB_COUNT * BLOCKING_JOB_MILLIS / THREAD_COUNT);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void shouldThrowExceptionWhenMoreThanOnePoolOptionIsSet() {
+        new JobExecutorServiceBuilder()
+                .withFixedThreadPool(THREAD_COUNT)
+                .withExecutorService(newFixedThreadPool(1))
+                .build();
+    }
+
+    /**
+     * Runs {@link #SUITE_COUNT} small diamond shaped suites and returns the
+     * number of suites completed per second.
+     */
+    private double runSmallSuites(final JobExecutorService jobExecutorService) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < SUITE_COUNT; i++) {
+            final Job a = new NoOpJob("a");
+            final Job b = new NoOpJob("b");
+            final Job c = new NoOpJob("c");
+            final Job d = new NoOpJob("d");
+            final JobSuite jobSuite = new JobSuiteBuilder()
+                    .addJob(a)
+                    .addJob(b, a)
+                    .addJob(c, a)
+                    .addJob(d, b, c)
+                    .build();
+            assertThat(jobExecutorService.runJobSuite(jobSuite).hasFailedJobs()).isFalse();
+        }
+        return SUITE_COUNT / ((System.nanoTime() - start) / 1_000_000_000.0);
+    }
+
+    private static class NoOpJob extends Job {
+
+        NoOpJob(final String name) {
+            super(name);
+        }
+
+        @Override
+        public JobResult<String> call() throws Exception {
+            return new JobResult<>(getName());
+        }
+    }
+
+    private static class SleepingJob extends Job {
+
+        SleepingJob(final String name) {
+            super(name);
+        }
+
+        @Override
+        public JobResult<String> call() throws Exception {
+            Thread.sleep(BLOCKING_JOB_MILLIS);
+            return new JobResult<>(getName());
+        }
+    }
+
+    private static class CountingThreadFactory implements ThreadFactory {
+
+        private final ThreadFactory delegate = defaultThreadFactory();
+        private final AtomicInteger createdThreadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            createdThreadCount.incrementAndGet();
+            return delegate.newThread(runnable);
+        }
+
+        int createdThreadCount() {
+            return createdThreadCount.get();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.Test;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JobJournalTest {
+
+    @Test
+    public void shouldReturnRecordedResultsWhenJournalIsReopened() throws Exception {
+        final Path file = Files.createTempFile("job-journal", ".log");
+        try (JobJournal journal = new JobJournal(file)) {
+            journal.record("run", "a", new JobResult<>("A"));
+            journal.record("run", "b", new JobResult<>());
+            journal.record("run", "c", new JobResult<>(new Object()));
+        }
+
+        try (JobJournal underTest = new JobJournal(file)) {
+            assertThat(underTest.getCompletedJobCount("run")).isEqualTo(2);
+            assertThat(underTest.getResult("run", "a").get().getResult().get()).isEqualTo("A");
+            assertThat(underTest.getResult("run", "b").get().getResult().isPresent()).isEqualTo(false);
+            assertThat(underTest.getResult("run", "c").isPresent()).isEqualTo(false);
+        }
+    }
+
+    @Test
+    public void shouldDropTornRecordAndKeepAppendingWhenJournalEndsWithPartialRecord() throws Exception {
+        final Path file = Files.createTempFile("job-journal", ".log");
+        try (JobJournal journal = new JobJournal(file)) {
+            journal.record("run", "a", new JobResult<>("A"));
+        }
+        Files.write(file, new byte[]{0, 0, 0, 42, 1, 2, 3}, APPEND);
+
+        try (JobJournal journal = new JobJournal(file)) {
+            journal.record("run", "b", new JobResult<>("B"));
+        }
+
+        try (JobJournal underTest = new JobJournal(file)) {
+            assertThat(underTest.getResult("run", "a").get().getResult().get()).isEqualTo("A");
+            assertThat(underTest.getResult("run", "b").get().getResult().get()).isEqualTo("B");
+        }
+    }
+
+    @Test
+    public void shouldKeepRunsApartAndForgetDiscardedRunWithItsNestedRuns() throws Exception {
+        final Path file = Files.createTempFile("job-journal", ".log");
+        try (JobJournal journal = new JobJournal(file)) {
+            journal.record("first", "a", new JobResult<>("A1"));
+            journal.record(JobJournal.nestedRunId("first", "a"), "spawned", new JobResult<>("S"));
+            journal.record("second", "a", new JobResult<>("A2"));
+            journal.discard("first");
+        }
+
+        try (JobJournal underTest = new JobJournal(file)) {
+            assertThat(underTest.getResult("first", "a").isPresent()).isEqualTo(false);
+            assertThat(underTest.getCompletedJobCount(JobJournal.nestedRunId("first", "a"))).isEqualTo(0);
+            assertThat(underTest.getResult("second", "a").get().getResult().get()).isEqualTo("A2");
+        }
+    }
+
+    @Test
+    public void shouldRejectRunIdWhichCouldBeMistakenForANestedRun() throws Exception {
+        final Path file = Files.createTempFile("job-journal", ".log");
+        try (JobJournal underTest = new JobJournal(file)) {
+            assertThatThrownBy(() -> underTest.discard("a/b")).isInstanceOf(IllegalArgumentException.class);
+            assertThat(JobJournal.nestedRunId("a", "b/c"))
+                    .isNotEqualTo(JobJournal.nestedRunId(JobJournal.nestedRunId("a", "b"), "c"))
+                    .doesNotStartWith(JobJournal.nestedRunId("a", "b") + "/");
+        }
+    }
+
+    @Test
+    public void shouldSkipUnreadableRecordAndKeepTheRecordsAfterIt() throws Exception {
+        final Path file = Files.createTempFile("job-journal", ".log");
+        try (JobJournal journal = new JobJournal(file)) {
+            journal.record("first", "a", new JobResult<>(new Unreadable()));
+        }
+        final long firstRecordLength = Files.size(file);
+        try (JobJournal journal = new JobJournal(file)) {
+            journal.record("second", "a", new JobResult<>("A2"));
+        }
+        renameResultClass(file, "Unreadable", "Unreadabla");
+        final long length = Files.size(file);
+
+        try (JobJournal underTest = new JobJournal(file)) {
+            assertThat(underTest.getResult("first", "a").isPresent()).isEqualTo(false);
+            assertThat(underTest.getResult("second", "a").get().getResult().get()).isEqualTo("A2");
+        }
+        assertThat(firstRecordLength).isLessThan(length);
+        assertThat(Files.size(file)).isEqualTo(length);
+    }
+
+    @Test
+    public void shouldForgetRecordedResultsWhenReset() throws Exception {
+        final Path file = Files.createTempFile("job-journal", ".log");
+        try (JobJournal journal = new JobJournal(file)) {
+            journal.record("run", "a", new JobResult<>("A"));
+            journal.reset();
+        }
+
+        try (JobJournal underTest = new JobJournal(file)) {
+            assertThat(underTest.getCompletedJobCount("run")).isEqualTo(0);
+        }
+    }
+
+    /**
+     * Replaces the class name in the first record, which has the same
+     * length, and fixes its checksum so only the class can't be found.
+     */
+    private static void renameResultClass(final Path file, final String className, final String missingClassName) throws Exception {
+        final byte[] content = Files.readAllBytes(file);
+        final ByteBuffer record = ByteBuffer.wrap(content);
+        final int bodyLength = record.getInt(0);
+        // one char per byte so the index in the string is the index in the body
+        final String body = new String(content, 4, bodyLength, ISO_8859_1);
+        final int classNameStart = 4 + body.indexOf(className);
+        System.arraycopy(missingClassName.getBytes(ISO_8859_1), 0, content, classNameStart, missingClassName.length());
+        final CRC32 checksum = new CRC32();
+        checksum.update(content, 4, bodyLength);
+        record.putLong(4 + bodyLength, checksum.getValue());
+        Files.write(file, content);
+    }
+
+    private static final class Unreadable implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,91 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Optional.of;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobResultCacheTest {
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedResultWhenMaxEntriesIsReached() {
+        final JobResultCache underTest = new JobResultCache(2);
+        underTest.put("a", new JobResult<>("A"));
+        underTest.put("b", new JobResult<>("B"));
+        underTest.get("a");
+
+        underTest.put("c", new JobResult<>("C"));
+
+        assertThat(underTest.size()).isEqualTo(2);
+        assertThat(underTest.get("a").get().getResult().get()).isEqualTo("A");
+        assertThat(underTest.get("b").isPresent()).isEqualTo(false);
+        assertThat(underTest.get("c").get().isCacheHit()).isEqualTo(true);
+    }
+
+    @Test
+    public void shouldReadResultFromDirectoryWhenItWasWrittenByAnotherCache() throws Exception {
+        final Path directory = Files.createTempDirectory("job-result-cache");
+        new JobResultCache(1, directory).put("a", new JobResult<>("A"));
+
+        final JobResultCache underTest = new JobResultCache(1, directory);
+
+        assertThat(underTest.get("a").get().getResult().get()).isEqualTo("A");
+    }
+
+    @Test
+    public void shouldComputeDifferentKeyWhenDependencyResultsDiffer() {
+        final List<Job> dependencies = asList(new ResultJob("a"), new ResultJob("b"));
+        final String key = JobResultCache.computeKey("job", dependencies, asList(new JobResult<>("A"), new JobResult<>(1)));
+
+        assertThat(JobResultCache.computeKey("job", dependencies, asList(new JobResult<>("A"), new JobResult<>(1)))).isEqualTo(key);
+        assertThat(JobResultCache.computeKey("job", dependencies, asList(new JobResult<>("B"), new JobResult<>(1)))).isNotEqualTo(key);
+        assertThat(JobResultCache.computeKey("job", emptyList(), emptyList())).isNotEqualTo(key);
+        assertThat(JobResultCache.computeKey("otherJob", dependencies, asList(new JobResult<>("A"), new JobResult<>(1)))).isNotEqualTo(key);
+    }
+
+    @Test
+    public void shouldComputeDifferentKeyWhenDependencyResultsHaveSameHashCode() {
+        final List<Job> dependencies = singletonList(new ResultJob("a"));
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+
+        assertThat(JobResultCache.computeKey("job", dependencies, singletonList(new JobResult<>("Aa"))))
+                .isNotEqualTo(JobResultCache.computeKey("job", dependencies, singletonList(new JobResult<>("BB"))));
+        assertThat(JobResultCache.computeKey("job", dependencies, singletonList(new JobResult<>(new int[]{1, 2}))))
+                .isEqualTo(JobResultCache.computeKey("job", dependencies, singletonList(new JobResult<>(new int[]{1, 2}))));
+    }
+
+    @Test
+    public void shouldUseResultFingerprintOrNotComputeKeyWhenDependencyResultIsNotSerializable() {
+        final Job fingerprintingJob = new ResultJob("fingerprinting") {
+            @Override
+            public Optional<String> getResultFingerprint(final Object result) {
+                return of("v" + ((StringBuilder) result).length());
+            }
+        };
+
+        assertThat(JobResultCache.computeKey("job", singletonList(new ResultJob("a")), singletonList(new JobResult<>(new Object()))))
+                .isNull();
+        assertThat(JobResultCache.computeKey("job", singletonList(fingerprintingJob), singletonList(new JobResult<>(new StringBuilder("ab")))))
+                .isEqualTo(JobResultCache.computeKey("job", singletonList(fingerprintingJob), singletonList(new JobResult<>(new StringBuilder("cd")))));
+    }
+
+    private static class ResultJob extends Job {
+
+        ResultJob(final String name) {
+            super(name);
+        }
+
+        @Override
+        public JobResult<String> call() throws Exception {
+            return new JobResult<>(getName());
+        }
+    }
+}
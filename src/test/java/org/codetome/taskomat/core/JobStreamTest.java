@@ -0,0 +1,71 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobStreamTest {
+
+    @Test
+    public void shouldBlockProducerWhileBufferIsFull() throws Exception {
+        final JobStream<Integer> underTest = new JobStream<>(2, () -> {
+        });
+        underTest.publish(1);
+        underTest.publish(2);
+
+        final CompletableFuture<Void> thirdPublish = CompletableFuture.runAsync(() -> {
+            try {
+                underTest.publish(3);
+            } catch (final InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(50);
+
+        assertThat(thirdPublish.isDone()).isEqualTo(false);
+
+        final Iterator<Integer> iterator = underTest.iterator();
+        assertThat(iterator.next()).isEqualTo(1);
+        thirdPublish.get(5, TimeUnit.SECONDS);
+        underTest.close();
+        final List<Integer> rest = new ArrayList<>();
+        iterator.forEachRemaining(rest::add);
+
+        assertThat(rest).containsExactly(2, 3);
+    }
+
+    @Test
+    public void shouldSignalAvailabilityOnceAndDropElementsAfterConsumerIsDetached() throws Exception {
+        final AtomicInteger availableCount = new AtomicInteger();
+        final JobStream<Integer> underTest = new JobStream<>(1, availableCount::incrementAndGet);
+        underTest.publish(1);
+        underTest.claim();
+        underTest.abandon();
+
+        underTest.detach();
+        underTest.publish(2);
+        underTest.publish(3);
+        underTest.close();
+
+        assertThat(availableCount.get()).isEqualTo(1);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void shouldThrowFailureOfProducerAfterPublishedElements() throws Exception {
+        final JobStream<Integer> underTest = new JobStream<>(4, () -> {
+        });
+        underTest.publish(1);
+        underTest.fail(new IllegalArgumentException("Producer failure"));
+        final Iterator<Integer> iterator = underTest.iterator();
+
+        assertThat(iterator.next()).isEqualTo(1);
+        iterator.hasNext();
+    }
+}
@@ -5,6 +5,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
 public class JobSuiteBuilderTest {
@@ -76,4 +77,61 @@ public class JobSuiteBuilderTest {
                 .addJob(a, g)//
                 .build();
     }
+
+    @Test
+    public void shouldReportExactCycleAndAddNothingWhenDependencyClosesACycle() {
+        when(a.getName()).thenReturn("a");
+        when(b.getName()).thenReturn("b");
+        when(c.getName()).thenReturn("c");
+        when(d.getName()).thenReturn("d");
+        underTest.addJob(b, a).addJob(c, b).addJob(d, c);
+
+        CircularDependencyException exception = null;
+        try {
+            underTest.addJob(a, d, c);
+        } catch (final CircularDependencyException e) {
+            exception = e;
+        }
+
+        assertThat(exception).isNotNull();
+        assertThat(exception.getCycle()).containsExactly(a, d, c, b, a);
+        assertThat(exception.getMessage()).contains("a -> d -> c -> b -> a");
+        final JobSuite result = underTest.addJob(a).build();
+        assertThat(result.getTotalJobCount()).isEqualTo(4);
+        assertThat(result.getWaveCount()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldBuildLongChainWhenJobsAreAddedInReverseOrder() {
+        final int jobCount = 200_000;
+        final Job[] jobs = new Job[jobCount];
+        for (int i = 0; i < jobCount; i++) {
+            jobs[i] = new Job("job" + i) {
+                @Override
+                public JobResult<?> call() throws Exception {
+                    return null;
+                }
+            };
+        }
+        for (int i = jobCount - 1; i > 0; i--) {
+            underTest.addJob(jobs[i], jobs[i - 1]);
+        }
+        underTest.addJob(jobs[0]);
+
+        final JobSuite result = underTest.build();
+
+        assertThat(result.getWaveCount()).isEqualTo(jobCount);
+        assertThat(result.getJob(0)).isEqualTo(jobs[0]);
+        assertThat(result.getJob(jobCount - 1)).isEqualTo(jobs[jobCount - 1]);
+    }
+
+    @Test
+    public void shouldKeepDependenciesInOrderAndDropDuplicates() {
+        final JobSuite result = underTest.addJob(c, b, a, b).addJob(c, a).addJob(a).addJob(b).build();
+
+        final int jobId = result.getJobId(c);
+        assertThat(result.getDependencyCount(jobId)).isEqualTo(2);
+        assertThat(result.getJob(result.getDependencyId(jobId, 0))).isEqualTo(b);
+        assertThat(result.getJob(result.getDependencyId(jobId, 1))).isEqualTo(a);
+    }
 }
@@ -0,0 +1,171 @@
+package org.codetome.taskomat.core;
+
+import org.mockito.Mock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.time.Duration.ofMillis;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.codetome.taskomat.core.SchedulingMode.DEPENDENCY_DRIVEN;
+import static org.codetome.taskomat.core.SchedulingMode.WAVE;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class JobSuiteSimulatorTest {
+
+    @Mock
+    private Job a;
+    @Mock
+    private Job b;
+    @Mock
+    private Job c;
+    @Mock
+    private Job d;
+
+    @BeforeMethod
+    public void setUp() {
+        initMocks(this);
+    }
+
+    @Test
+    public void shouldPredictMakespanCriticalPathAndUtilizationOfDiamond() {
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(a).addJob(b, a).addJob(c, a).addJob(d, b, c).build();
+        final JobSuiteSimulator underTest = new JobSuiteSimulator(jobSuite, durations(10, 20, 30, 5));
+
+        final SimulationResult oneThread = underTest.simulate(DEPENDENCY_DRIVEN, 1);
+        final SimulationResult twoThreads = underTest.simulate(DEPENDENCY_DRIVEN, 2);
+
+        assertThat(oneThread.getMakespan()).isEqualTo(ofMillis(65));
+        assertThat(oneThread.getUtilization()).isEqualTo(1.0);
+        assertThat(twoThreads.getMakespan()).isEqualTo(ofMillis(45));
+        assertThat(twoThreads.getCriticalPathLength()).isEqualTo(ofMillis(45));
+        assertThat(twoThreads.getUtilization()).isEqualTo(65.0 / 90.0);
+    }
+
+    @Test
+    public void shouldWaitForWholeWaveInWaveModeOnly() {
+        final JobSuite jobSuite = new JobSuiteBuilder().addJob(a).addJob(b, a).addJob(c).addJob(d, b).build();
+        final JobSuiteSimulator underTest = new JobSuiteSimulator(jobSuite, durations(10, 10, 30, 10));
+
+        assertThat(underTest.simulate(WAVE, 2).getMakespan()).isEqualTo(ofMillis(50));
+        assertThat(underTest.simulate(DEPENDENCY_DRIVEN, 2).getMakespan()).isEqualTo(ofMillis(30));
+    }
+
+    @Test
+    public void shouldRecommendFewestThreadsWhichReachTheBestMakespan() {
+        final JobSuiteBuilder jobSuiteBuilder = new JobSuiteBuilder();
+        final Map<Job, Duration> durations = new HashMap<>();
+        for (int i = 0; i < 8; i++) {
+            final Job job = new Job("independentJob" + i) {
+                @Override
+                public JobResult<?> call() throws Exception {
+                    return new JobResult<>();
+                }
+            };
+            jobSuiteBuilder.addJob(job);
+            durations.put(job, ofMillis(10));
+        }
+        final JobSuiteSimulator underTest = new JobSuiteSimulator(jobSuiteBuilder.build(), durations);
+
+        final SimulationResult result = underTest.recommendThreadCount(DEPENDENCY_DRIVEN, 16, 0);
+
+        assertThat(result.getThreadCount()).isEqualTo(8);
+        assertThat(result.getMakespan()).isEqualTo(ofMillis(10));
+        assertThat(underTest.sweep(WAVE, 1, 4)).extracting(SimulationResult::getMakespan)
+                .containsExactly(ofMillis(80), ofMillis(40), ofMillis(30), ofMillis(20));
+    }
+
+    @Test
+    public void shouldPredictStreamingRunWhereAnUnrelatedDependencyEndsTheWave() {
+        final Job producer = new Job("producer") {
+            @Override
+            public JobResult<String> call() throws Exception {
+                for (int i = 1; i <= 4; i++) {
+                    Thread.sleep(50);
+                    publish(i);
+                }
+                return new JobResult<>(getName());
+            }
+        };
+        final Job consumer = new Job("consumer") {
+            @Override
+            public JobResult<Integer> call() throws Exception {
+                int sum = 0;
+                final JobStream<Integer> elements = getDependencyResult(0);
+                for (final Integer element : elements) {
+                    Thread.sleep(25);
+                    sum += element;
+                }
+                return new JobResult<>(sum);
+            }
+        };
+        final Job report = new SleepingJob("report", 50);
+        final Job unrelated = new SleepingJob("unrelated", 200);
+        final Job unrelatedDependent = new SleepingJob("unrelatedDependent", 100);
+        final JobSuite jobSuite = new JobSuiteBuilder()
+                .addJob(unrelated)
+                .addJob(producer)
+                .addJob(unrelatedDependent, unrelated)
+                .addStreamingJob(consumer, producer, 2)
+                .addJob(report, consumer)
+                .build();
+        final Map<Job, Duration> durations = new HashMap<>();
+        durations.put(producer, ofMillis(200));
+        durations.put(consumer, ofMillis(100));
+        durations.put(report, ofMillis(50));
+        durations.put(unrelated, ofMillis(200));
+        durations.put(unrelatedDependent, ofMillis(100));
+        final SimulationResult prediction = new JobSuiteSimulator(jobSuite, durations).simulate(WAVE, 4);
+        final JobExecutorService withPool = new JobExecutorServiceBuilder()
+                .withSchedulingMode(WAVE)
+                .withFixedThreadPool(4)
+                .build();
+
+        final JobSuiteResult result;
+        try {
+            result = withPool.runJobSuite(jobSuite);
+        } finally {
+            withPool.shutdown();
+        }
+
+        long runStart = Long.MAX_VALUE;
+        long runEnd = Long.MIN_VALUE;
+        for (final JobResult<?> jobResult : result.getJobResults().values()) {
+            runStart = Math.min(runStart, jobResult.getStartTimeNanos());
+            runEnd = Math.max(runEnd, jobResult.getEndTimeNanos());
+        }
+        assertThat(result.hasFailedJobs()).isEqualTo(false);
+        assertThat(prediction.getMakespan()).isEqualTo(ofMillis(300));
+        assertThat(prediction.getCriticalPathLength()).isEqualTo(ofMillis(300));
+        // the prediction is a lower bound, running the jobs one after another would take 650 ms
+        assertThat(runEnd - runStart).isBetween(ofMillis(300).toNanos(), ofMillis(650).toNanos());
+    }
+
+    private Map<Job, Duration> durations(final long aMillis, final long bMillis, final long cMillis, final long dMillis) {
+        final Map<Job, Duration> durations = new HashMap<>();
+        durations.put(a, ofMillis(aMillis));
+        durations.put(b, ofMillis(bMillis));
+        durations.put(c, ofMillis(cMillis));
+        durations.put(d, ofMillis(dMillis));
+        return durations;
+    }
+
+    private static final class SleepingJob extends Job {
+
+        private final long millis;
+
+        private SleepingJob(final String name, final long millis) {
+            super(name);
+            this.millis = millis;
+        }
+
+        @Override
+        public JobResult<String> call() throws Exception {
+            Thread.sleep(millis);
+            return new JobResult<>(getName());
+        }
+    }
+}
@@ -4,7 +4,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.MockitoAnnotations.initMocks;
@@ -83,38 +84,46 @@ public class JobSuiteTest {
     }
 
     @Test
-    public void shouldReturnCorrectNextJobsWhenEmptyingJobSuite() {
-        final Queue<Job> first = underTest.getNextJobs();
-
-        assertThat(first).hasSize(2);
-        assertThat(first).containsOnly(a, b);
-
-        final Queue<Job> second = underTest.getNextJobs();
-
-        assertThat(second).hasSize(3);
-        assertThat(second).containsOnly(c, d, e);
-
-        final Queue<Job> third = underTest.getNextJobs();
-
-        assertThat(third).hasSize(3);
-        assertThat(third).containsOnly(f, g, h);
+    public void shouldReturnCorrectWavesWhenGettingWaves() {
+        assertThat(underTest.getWaveCount()).isEqualTo(3);
+        assertThat(getWave(0)).containsOnly(a, b);
+        assertThat(getWave(1)).containsOnly(c, d, e);
+        assertThat(getWave(2)).containsOnly(f, g, h);
+    }
 
+    @Test
+    public void shouldAssignIdsInExecutionOrderWhenBuilt() {
+        for (int jobId = 0; jobId < underTest.getTotalJobCount(); jobId++) {
+            assertThat(underTest.getJobId(underTest.getJob(jobId))).isEqualTo(jobId);
+            for (int i = 0; i < underTest.getDependencyCount(jobId); i++) {
+                assertThat(underTest.getDependencyId(jobId, i)).isLessThan(jobId);
+            }
+        }
     }
 
     @Test
-    public void shouldReturnFalseForHasFinishedWhenAllJobsAreExecuted() {
-        underTest.getNextJobs();
-        underTest.getNextJobs();
-        underTest.getNextJobs();
-        assertThat(underTest.hasJobsLeft()).isEqualTo(false);
+    public void shouldReturnCostOfLongestPathToTheEndWhenComputeRemainingPathCostsIsCalled() {
+        final long[] costs = new long[underTest.getTotalJobCount()];
+        costs[underTest.getJobId(a)] = 1;
+        costs[underTest.getJobId(b)] = 2;
+        costs[underTest.getJobId(e)] = 4;
+        costs[underTest.getJobId(g)] = 8;
+
+        final long[] result = underTest.computeRemainingPathCosts(costs);
+
+        assertThat(result[underTest.getJobId(a)]).isEqualTo(9);
+        assertThat(result[underTest.getJobId(b)]).isEqualTo(14);
+        assertThat(result[underTest.getJobId(h)]).isEqualTo(0);
     }
 
-    @Test(expectedExceptions = IllegalStateException.class)
-    public void shouldThrowExceptionWhenNoMoreJobsAreLeft() {
-        underTest.getNextJobs();
-        underTest.getNextJobs();
-        underTest.getNextJobs();
-        underTest.getNextJobs();
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void shouldThrowExceptionWhenJobIsNotPartOfJobSuite() {
+        underTest.getJobId(new Job("unknown") {
+            @Override
+            public JobResult<?> call() throws Exception {
+                return null;
+            }
+        });
     }
 
     @Test(dataProvider = "getWombat")
@@ -137,4 +146,84 @@ public class JobSuiteTest {
         // @formatter:on
     }
 
+    @Test
+    public void shouldReturnDependentsOfAJobWhenGetDependentsOfCalled() {
+        assertThat(underTest.getDependentsOf(a)).containsOnly(c, d, g);
+        assertThat(underTest.getDependentsOf(e)).containsOnly(g, h);
+        assertThat(underTest.getDependentsOf(f)).isEmpty();
+    }
+
+    @Test
+    public void shouldReturnOnlyDependentOfJobWhenGetChainSuccessorIsCalledOnLinearChain() {
+        final JobSuite chain = new JobSuiteBuilder()//
+                .addJob(b, a)//
+                .addJob(c, b)//
+                .addJob(d, b)//
+                .addJob(e, c, d)//
+                .addJob(a)//
+                .build();
+
+        assertThat(chain.getChainSuccessor(chain.getJobId(a))).isEqualTo(chain.getJobId(b));
+        assertThat(chain.getChainSuccessor(chain.getJobId(b))).isEqualTo(-1);
+        assertThat(chain.getChainSuccessor(chain.getJobId(c))).isEqualTo(-1);
+        assertThat(chain.getChainSuccessor(chain.getJobId(e))).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldPutConsumerIntoWaveOfProducerWhenDependencyIsStreaming() {
+        final JobSuite streaming = new JobSuiteBuilder()//
+                .addJob(a)//
+                .addJob(b, a)//
+                .addStreamingJob(c, b, 16)//
+                .addJob(d, c)//
+                .build();
+
+        assertThat(streaming.getWaveCount()).isEqualTo(3);
+        assertThat(streaming.getStreamConsumerId(streaming.getJobId(b))).isEqualTo(streaming.getJobId(c));
+        assertThat(streaming.getStreamBufferCapacity(streaming.getJobId(b))).isEqualTo(16);
+        assertThat(streaming.getStreamConsumerId(streaming.getJobId(c))).isEqualTo(-1);
+        assertThat(streaming.isStreaming(streaming.getJobId(c))).isEqualTo(true);
+        assertThat(streaming.isStreaming(streaming.getJobId(d))).isEqualTo(false);
+    }
+
+    @Test
+    public void shouldPutConsumerIntoWaveOfProducerWhenAnUnrelatedDependencyEndsTheWave() {
+        underTest = new JobSuiteBuilder()//
+                .addJob(a)//
+                .addJob(b)//
+                .addJob(c, a)//
+                .addStreamingJob(d, b, 2)//
+                .build();
+
+        assertThat(underTest.getWaveCount()).isEqualTo(2);
+        assertThat(getWave(0)).containsOnly(a, b, d);
+        assertThat(getWave(1)).containsOnly(c);
+    }
+
+    @Test
+    public void shouldMoveProducerIntoWaveOfConsumerWhenConsumerHasALaterDependency() {
+        underTest = new JobSuiteBuilder()//
+                .addJob(a)//
+                .addJob(b)//
+                .addJob(c, a)//
+                .addStreamingJob(d, b, 2)//
+                .addJob(d, c)//
+                .addJob(e, b)//
+                .build();
+
+        assertThat(underTest.getWaveCount()).isEqualTo(4);
+        assertThat(getWave(0)).containsOnly(a);
+        assertThat(getWave(1)).containsOnly(c);
+        assertThat(getWave(2)).containsOnly(b, d);
+        assertThat(getWave(3)).containsOnly(e);
+    }
+
+    private List<Job> getWave(final int wave) {
+        final List<Job> jobs = new ArrayList<>();
+        for (int position = underTest.getWaveStart(wave); position < underTest.getWaveEnd(wave); position++) {
+            jobs.add(underTest.getJob(underTest.getWaveJobId(position)));
+        }
+        return jobs;
+    }
+
 }
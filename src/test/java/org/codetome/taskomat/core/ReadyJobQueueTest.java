@@ -0,0 +1,38 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReadyJobQueueTest {
+
+    private static final int JOB_COUNT = 1000;
+
+    @Test
+    public void shouldReturnJobIdsInDescendingPriorityOrderWhenPolled() {
+        final Random random = new Random(42);
+        final long[] priorities = new long[JOB_COUNT];
+        for (int jobId = 0; jobId < JOB_COUNT; jobId++) {
+            priorities[jobId] = random.nextInt(100);
+        }
+        final ReadyJobQueue underTest = new ReadyJobQueue(priorities);
+        for (int jobId = 0; jobId < JOB_COUNT; jobId++) {
+            underTest.add(jobId);
+        }
+
+        long previousPriority = Long.MAX_VALUE;
+        for (int i = 0; i < JOB_COUNT; i++) {
+            final int jobId = underTest.poll();
+            assertThat(priorities[jobId]).isLessThanOrEqualTo(previousPriority);
+            previousPriority = priorities[jobId];
+        }
+        assertThat(underTest.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReturnMinusOneWhenPollIsCalledOnEmptyQueue() {
+        assertThat(new ReadyJobQueue(new long[1]).poll()).isEqualTo(-1);
+    }
+}
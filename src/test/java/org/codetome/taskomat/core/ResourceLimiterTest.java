@@ -0,0 +1,46 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResourceLimiterTest {
+
+    @Test
+    public void shouldParkDemandUntilEnoughResourcesAreReleased() {
+        final ResourceLimiter underTest = new ResourceLimiter(singletonMap("memory", 3));
+        final int[] twoUnits = underTest.toDemand(singletonMap("memory", 2));
+        final List<String> started = new ArrayList<>();
+
+        underTest.acquire(twoUnits, () -> started.add("first"));
+        underTest.acquire(twoUnits, () -> started.add("second"));
+
+        assertThat(started).containsExactly("first");
+        assertThat(underTest.getAvailable("memory")).isEqualTo(1);
+
+        underTest.release(twoUnits);
+
+        assertThat(started).containsExactly("first", "second");
+        assertThat(underTest.getAvailable("memory")).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldIgnoreUnlimitedClassesAndCapDemandAtCapacity() {
+        final Map<String, Integer> limits = new LinkedHashMap<>();
+        limits.put("memory", 2);
+        limits.put("io", 4);
+        final ResourceLimiter underTest = new ResourceLimiter(limits);
+        final Map<String, Integer> resourceDemands = new LinkedHashMap<>();
+        resourceDemands.put("memory", 5);
+        resourceDemands.put("gpu", 1);
+
+        assertThat(underTest.toDemand(resourceDemands)).containsExactly(2, 0);
+        assertThat(underTest.toDemand(singletonMap("gpu", 1))).isNull();
+    }
+}
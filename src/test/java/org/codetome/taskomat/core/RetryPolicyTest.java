@@ -0,0 +1,49 @@
+package org.codetome.taskomat.core;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static java.time.Duration.ofMillis;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void shouldDoubleBackoffUpToMaxBackoffWhenJitterIsDisabled() {
+        final RetryPolicy underTest = new RetryPolicyBuilder()
+                .withBackoff(ofMillis(100), ofMillis(300))
+                .withJitter(0)
+                .build();
+
+        assertThat(underTest.computeBackoffNanos(1)).isEqualTo(MILLISECONDS.toNanos(100));
+        assertThat(underTest.computeBackoffNanos(2)).isEqualTo(MILLISECONDS.toNanos(200));
+        assertThat(underTest.computeBackoffNanos(3)).isEqualTo(MILLISECONDS.toNanos(300));
+        assertThat(underTest.computeBackoffNanos(30)).isEqualTo(MILLISECONDS.toNanos(300));
+    }
+
+    @Test
+    public void shouldShortenBackoffByAtMostJitterWhenJitterIsEnabled() {
+        final RetryPolicy underTest = new RetryPolicyBuilder()
+                .withBackoff(ofMillis(100), ofMillis(100))
+                .withJitter(0.25)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(underTest.computeBackoffNanos(1)).isBetween(MILLISECONDS.toNanos(75), MILLISECONDS.toNanos(100));
+        }
+    }
+
+    @Test
+    public void shouldOnlyRetryMatchingExceptionsUntilMaxAttemptsIsReached() {
+        final RetryPolicy underTest = new RetryPolicyBuilder()
+                .withMaxAttempts(2)
+                .retryOn(IOException.class)
+                .build();
+
+        assertThat(underTest.shouldRetry(1, new IOException())).isEqualTo(true);
+        assertThat(underTest.shouldRetry(2, new IOException())).isEqualTo(false);
+        assertThat(underTest.shouldRetry(1, new IllegalStateException())).isEqualTo(false);
+    }
+}